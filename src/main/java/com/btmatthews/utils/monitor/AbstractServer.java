@@ -76,4 +76,31 @@ public abstract class AbstractServer implements Server {
     public boolean isStopped(final Logger logger) {
         return true;
     }
+
+    /**
+     * Check concurrently whether all the probes succeed. Servers can use this to implement
+     * {@link #isStarted(Logger)} by probing the ports or endpoints they listen on.
+     *
+     * @param timeout The timeout in milliseconds for each probe.
+     * @param probes  The probes.
+     * @return {@code true} if all the probes succeeded.
+     * @since 3.1.0
+     */
+    protected boolean isReachable(final long timeout, final NetworkProbe... probes) {
+        return NetworkProbe.awaitAll(timeout, probes) == probes.length;
+    }
+
+    /**
+     * Check concurrently whether all the probes fail. Servers can use this to implement
+     * {@link #isStopped(Logger)} by probing the ports or endpoints they listen on.
+     *
+     * @param timeout The timeout in milliseconds for each probe.
+     * @param probes  The probes.
+     * @return {@code true} if none of the probes succeeded or {@code false} if any of them succeeded or they could not
+     * be completed.
+     * @since 3.1.0
+     */
+    protected boolean isUnreachable(final long timeout, final NetworkProbe... probes) {
+        return NetworkProbe.awaitAll(timeout, probes) == 0;
+    }
 }
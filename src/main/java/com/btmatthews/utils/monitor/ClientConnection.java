@@ -0,0 +1,316 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A connection accepted by a monitor's non-blocking listener. The bytes received are accumulated until a complete
+ * request has been received. A request is either a key and command pair or, if enabled, a minimal HTTP {@code GET}
+ * request.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+final class ClientConnection {
+
+    /**
+     * The maximum length of a request line.
+     */
+    private static final int MAX_LINE_LENGTH = 8192;
+    /**
+     * The prefix of a HTTP {@code GET} request line.
+     */
+    private static final String HTTP_GET = "GET ";
+    /**
+     * Used to number the connections in the order in which they were accepted.
+     */
+    private static final AtomicLong ACCEPTED = new AtomicLong();
+    /**
+     * The order in which the connection was accepted.
+     */
+    private final long sequence = ACCEPTED.incrementAndGet();
+    /**
+     * The socket channel.
+     */
+    private final SocketChannel channel;
+    /**
+     * The selection key for the socket channel.
+     */
+    private final SelectionKey key;
+    /**
+     * Buffer used to read from the socket channel.
+     */
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(512);
+    /**
+     * The lines received from the client.
+     */
+    private final LineBuffer lines = new LineBuffer(MAX_LINE_LENGTH);
+    /**
+     * Set when the client has closed its side of the connection.
+     */
+    private boolean endOfStream;
+    /**
+     * The HTTP request line if this is a HTTP request.
+     */
+    private String httpRequestLine;
+    /**
+     * The request once it has been completely received.
+     */
+    private Request request;
+    /**
+     * The writer used to send the response to the client.
+     */
+    private PrintWriter response;
+    /**
+     * Times the connection for Java Flight Recorder.
+     */
+    private final JfrSupport.Span span;
+
+    /**
+     * Accept a connection and register it with the selector.
+     *
+     * @param channel  The accepted socket channel.
+     * @param selector The selector.
+     * @param span     Times the connection for Java Flight Recorder.
+     * @throws IOException If there was a problem registering the channel.
+     */
+    ClientConnection(final SocketChannel channel, final Selector selector, final JfrSupport.Span span)
+            throws IOException {
+        this.channel = channel;
+        this.span = span;
+        channel.configureBlocking(false);
+        key = channel.register(selector, SelectionKey.OP_READ, this);
+    }
+
+    /**
+     * Read the data available from the client.
+     *
+     * @return {@code false} if a request line was too long.
+     * @throws IOException If there was a problem reading from the socket channel.
+     */
+    boolean read() throws IOException {
+        readBuffer.clear();
+        final int count = channel.read(readBuffer);
+        readBuffer.flip();
+        if (!lines.append(readBuffer)) {
+            return false;
+        }
+        if (count < 0 && !endOfStream) {
+            endOfStream = true;
+            lines.endOfStream();
+        }
+        return true;
+    }
+
+    /**
+     * Get the request if it has been completely received. Once complete the same request is returned by subsequent
+     * calls.
+     *
+     * @param monitorKey  The monitor key that must prefix any commands.
+     * @param httpEnabled If {@code true} requests starting with a HTTP {@code GET} request line are accepted.
+     * @return The request or {@code null} if the request has not been completely received.
+     */
+    Request getRequest(final String monitorKey, final boolean httpEnabled) {
+        if (request == null) {
+            request = parseRequest(monitorKey, httpEnabled);
+        }
+        return request;
+    }
+
+    /**
+     * Parse the request from the lines that have been received.
+     *
+     * @param monitorKey  The monitor key that must prefix any commands.
+     * @param httpEnabled If {@code true} requests starting with a HTTP {@code GET} request line are accepted.
+     * @return The request or {@code null} if the request has not been completely received.
+     */
+    private Request parseRequest(final String monitorKey, final boolean httpEnabled) {
+        if (httpRequestLine == null) {
+            final String first = lines.peek();
+            if (first == null) {
+                return endOfStream ? new Request(RequestType.INVALID_KEY, null) : null;
+            }
+            if (!httpEnabled || !first.startsWith(HTTP_GET)) {
+                if (!monitorKey.equals(first)) {
+                    return new Request(RequestType.INVALID_KEY, null);
+                }
+                if (lines.size() > 1) {
+                    lines.poll();
+                    return new Request(RequestType.COMMAND, lines.poll());
+                }
+                return endOfStream ? new Request(RequestType.COMMAND, null) : null;
+            }
+            httpRequestLine = lines.poll();
+        }
+        for (String header = lines.poll(); header != null; header = lines.poll()) {
+            if (header.isEmpty()) {
+                return httpRequest(httpRequestLine);
+            }
+        }
+        return endOfStream ? httpRequest(httpRequestLine) : null;
+    }
+
+    /**
+     * Cancel the registration with the selector. The selector must then be selected before the channel can be put
+     * into blocking mode by {@link #getResponse()}.
+     */
+    void deregister() {
+        key.cancel();
+    }
+
+    /**
+     * Get the writer used to send the response to the client. The channel is switched to blocking mode.
+     *
+     * @return The response writer.
+     * @throws IOException If there was a problem switching the channel to blocking mode.
+     */
+    PrintWriter getResponse() throws IOException {
+        if (response == null) {
+            channel.configureBlocking(true);
+            response = new PrintWriter(new OutputStreamWriter(Channels.newOutputStream(channel), LineBuffer.CHARSET),
+                    true);
+        }
+        return response;
+    }
+
+    /**
+     * Get the order in which the connection was accepted. Requests that are completed together are reported by the
+     * selector in no particular order so this is used to execute them in the order in which they were sent.
+     *
+     * @return The sequence number.
+     * @since 3.1.0
+     */
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get the socket channel.
+     *
+     * @return The socket channel.
+     */
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Close the connection flushing any response.
+     */
+    void close() {
+        if (!channel.isOpen()) {
+            return;
+        }
+        if (response != null) {
+            response.flush();
+        }
+        key.cancel();
+        try {
+            channel.close();
+        } catch (final IOException e) {
+            // Ignore errors closing the connection
+        }
+        if (request == null) {
+            span.end(false, "INCOMPLETE");
+        } else {
+            span.end(request.getType() != RequestType.INVALID_KEY, request.getType().name());
+        }
+    }
+
+    /**
+     * Create a HTTP request from the request line.
+     *
+     * @param requestLine The HTTP request line.
+     * @return The HTTP request.
+     */
+    private static Request httpRequest(final String requestLine) {
+        final String target = requestLine.substring(HTTP_GET.length());
+        final int end = target.indexOf(' ');
+        return new Request(RequestType.HTTP, end < 0 ? target : target.substring(0, end));
+    }
+
+    /**
+     * The types of request.
+     */
+    enum RequestType {
+        /**
+         * A command prefixed with a valid monitor key. The command is {@code null} if the client closed the
+         * connection before sending it.
+         */
+        COMMAND,
+        /**
+         * A HTTP {@code GET} request.
+         */
+        HTTP,
+        /**
+         * A request prefixed with an invalid monitor key.
+         */
+        INVALID_KEY
+    }
+
+    /**
+     * A request received from a client.
+     */
+    static final class Request {
+
+        /**
+         * The request type.
+         */
+        private final RequestType type;
+        /**
+         * The command or HTTP request target.
+         */
+        private final String value;
+
+        /**
+         * Initialise the request.
+         *
+         * @param type  The request type.
+         * @param value The command or HTTP request target.
+         */
+        Request(final RequestType type, final String value) {
+            this.type = type;
+            this.value = value;
+        }
+
+        /**
+         * Get the request type.
+         *
+         * @return The request type.
+         */
+        RequestType getType() {
+            return type;
+        }
+
+        /**
+         * Get the command or HTTP request target.
+         *
+         * @return The command or HTTP request target.
+         */
+        String getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records the commands received by a monitor in a fixed size ring of entries held in a memory-mapped file. Recording
+ * an entry only writes to the mapped memory so there are no system calls or allocations on the command path. The
+ * operating system writes the pages back to the file, so the journal survives the JVM crashing, and
+ * {@link CommandJournalReader} can read it back. If the file already holds a journal with the same capacity then new
+ * entries are appended after the existing ones.
+ * <p>
+ * The file starts with a header holding a magic number, the format version, the capacity, the entry size and the
+ * sequence number of the next entry. Each entry holds its sequence number plus one, which is written last so that
+ * partially written entries can be recognised, followed by the time stamp, the latency in nanoseconds, the outcome and
+ * the source address and command verb as truncated ASCII strings.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public final class CommandJournal implements Closeable {
+
+    /**
+     * The default number of entries in the ring.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+    /**
+     * Identifies a command journal file.
+     */
+    static final int MAGIC = 0x4D4A4E4C;
+    /**
+     * The version of the file format.
+     */
+    static final int VERSION = 1;
+    /**
+     * The size of the header.
+     */
+    static final int HEADER_SIZE = 64;
+    /**
+     * The size of each entry.
+     */
+    static final int ENTRY_SIZE = 128;
+    /**
+     * The offset of the capacity in the header.
+     */
+    static final int CAPACITY_OFFSET = 8;
+    /**
+     * The offset of the entry size in the header.
+     */
+    static final int ENTRY_SIZE_OFFSET = 12;
+    /**
+     * The offset of the next sequence number in the header.
+     */
+    static final int NEXT_SEQUENCE_OFFSET = 16;
+    /**
+     * The offset of the time stamp in an entry.
+     */
+    static final int TIMESTAMP_OFFSET = 8;
+    /**
+     * The offset of the latency in an entry.
+     */
+    static final int LATENCY_OFFSET = 16;
+    /**
+     * The offset of the outcome in an entry.
+     */
+    static final int OUTCOME_OFFSET = 24;
+    /**
+     * The offset of the source address length in an entry.
+     */
+    static final int SOURCE_LENGTH_OFFSET = 25;
+    /**
+     * The offset of the verb length in an entry.
+     */
+    static final int VERB_LENGTH_OFFSET = 26;
+    /**
+     * The offset of the source address in an entry.
+     */
+    static final int SOURCE_OFFSET = 28;
+    /**
+     * The maximum length of the source address.
+     */
+    static final int MAX_SOURCE_LENGTH = 48;
+    /**
+     * The offset of the verb in an entry.
+     */
+    static final int VERB_OFFSET = SOURCE_OFFSET + MAX_SOURCE_LENGTH;
+    /**
+     * The maximum length of the verb.
+     */
+    static final int MAX_VERB_LENGTH = ENTRY_SIZE - VERB_OFFSET;
+    /**
+     * The mapped file.
+     */
+    private final MappedByteBuffer buffer;
+    /**
+     * The number of entries in the ring.
+     */
+    private final int capacity;
+    /**
+     * The sequence number of the next entry.
+     */
+    private long nextSequence;
+
+    /**
+     * Initialise the journal.
+     *
+     * @param buffer       The mapped file.
+     * @param capacity     The number of entries in the ring.
+     * @param nextSequence The sequence number of the next entry.
+     */
+    private CommandJournal(final MappedByteBuffer buffer, final int capacity, final long nextSequence) {
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.nextSequence = nextSequence;
+    }
+
+    /**
+     * Open a journal creating the file if necessary.
+     *
+     * @param file     The journal file.
+     * @param capacity The number of entries in the ring.
+     * @return The journal.
+     * @throws IOException              If there was a problem creating or mapping the file.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     */
+    public static CommandJournal open(final Path file, final int capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Command journal capacity must be positive");
+        }
+        final Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final long size = HEADER_SIZE + (long) capacity * ENTRY_SIZE;
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            final boolean compatible = channel.size() == size;
+            if (!compatible) {
+                channel.truncate(0L);
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, size);
+            if (compatible && buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION
+                    && buffer.getInt(CAPACITY_OFFSET) == capacity && buffer.getInt(ENTRY_SIZE_OFFSET) == ENTRY_SIZE) {
+                return new CommandJournal(buffer, capacity, buffer.getLong(NEXT_SEQUENCE_OFFSET));
+            }
+            for (long offset = HEADER_SIZE; offset < size; offset += ENTRY_SIZE) {
+                buffer.putLong((int) offset, 0L);
+            }
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(CAPACITY_OFFSET, capacity);
+            buffer.putInt(ENTRY_SIZE_OFFSET, ENTRY_SIZE);
+            buffer.putLong(NEXT_SEQUENCE_OFFSET, 0L);
+            return new CommandJournal(buffer, capacity, 0L);
+        }
+    }
+
+    /**
+     * Record a command.
+     *
+     * @param timestamp The time the command was received in milliseconds since the epoch.
+     * @param source    The address of the client that sent the command.
+     * @param verb      The command verb.
+     * @param outcome   The outcome.
+     * @param latency   The time taken to execute the command in nanoseconds.
+     */
+    synchronized void record(final long timestamp, final String source, final String verb, final Outcome outcome,
+                             final long latency) {
+        final long sequence = nextSequence++;
+        final int offset = HEADER_SIZE + (int) (sequence % capacity) * ENTRY_SIZE;
+        buffer.putLong(offset, 0L);
+        buffer.putLong(offset + TIMESTAMP_OFFSET, timestamp);
+        buffer.putLong(offset + LATENCY_OFFSET, latency);
+        buffer.put(offset + OUTCOME_OFFSET, (byte) outcome.ordinal());
+        buffer.put(offset + SOURCE_LENGTH_OFFSET, putAscii(offset + SOURCE_OFFSET, source, MAX_SOURCE_LENGTH));
+        buffer.put(offset + VERB_LENGTH_OFFSET, putAscii(offset + VERB_OFFSET, verb, MAX_VERB_LENGTH));
+        buffer.putLong(offset, sequence + 1L);
+        buffer.putLong(NEXT_SEQUENCE_OFFSET, nextSequence);
+    }
+
+    /**
+     * Write a string as ASCII truncating it if necessary. Characters outside the ASCII range are replaced with
+     * {@code ?}.
+     *
+     * @param offset    The offset at which to write the string.
+     * @param value     The string or {@code null}.
+     * @param maxLength The maximum length.
+     * @return The number of bytes written.
+     */
+    private byte putAscii(final int offset, final String value, final int maxLength) {
+        if (value == null) {
+            return 0;
+        }
+        final int length = Math.min(value.length(), maxLength);
+        for (int i = 0; i < length; ++i) {
+            final char c = value.charAt(i);
+            buffer.put(offset + i, c < 0x80 ? (byte) c : (byte) '?');
+        }
+        return (byte) length;
+    }
+
+    /**
+     * Flush the journal to the file.
+     */
+    @Override
+    public synchronized void close() {
+        buffer.force();
+    }
+
+    /**
+     * The outcomes of a command.
+     */
+    public enum Outcome {
+        /**
+         * The command was executed.
+         */
+        OK,
+        /**
+         * The command was not recognised.
+         */
+        UNRECOGNISED,
+        /**
+         * The command failed with an exception.
+         */
+        FAILED
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the entries recorded in a {@link CommandJournal}. This can also be run from the command line to print a
+ * journal:
+ * <pre>
+ * java -cp monitor.jar com.btmatthews.utils.monitor.CommandJournalReader target/monitor.journal
+ * </pre>
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public final class CommandJournalReader {
+
+    /**
+     * The constructor is private because this class only provides static helper methods.
+     */
+    private CommandJournalReader() {
+    }
+
+    /**
+     * Print the entries in the journal files named on the command line.
+     *
+     * @param args The journal files.
+     * @throws IOException If there was a problem reading a journal.
+     */
+    public static void main(final String[] args) throws IOException {
+        for (final String arg : args) {
+            for (final Entry entry : read(Paths.get(arg))) {
+                System.out.println(entry);
+            }
+        }
+    }
+
+    /**
+     * Read the complete entries in a journal oldest first.
+     *
+     * @param file The journal file.
+     * @return The entries.
+     * @throws IOException If the file could not be read or is not a command journal.
+     */
+    public static List<Entry> read(final Path file) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() < CommandJournal.HEADER_SIZE || buffer.getInt(0) != CommandJournal.MAGIC
+                || buffer.getInt(4) != CommandJournal.VERSION) {
+            throw new IOException("Not a command journal: " + file);
+        }
+        final int capacity = buffer.getInt(CommandJournal.CAPACITY_OFFSET);
+        final int entrySize = buffer.getInt(CommandJournal.ENTRY_SIZE_OFFSET);
+        final List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < capacity; ++i) {
+            final int offset = CommandJournal.HEADER_SIZE + i * entrySize;
+            if (offset + entrySize > buffer.limit()) {
+                break;
+            }
+            final long marker = buffer.getLong(offset);
+            if (marker != 0L) {
+                entries.add(new Entry(marker - 1L,
+                        buffer.getLong(offset + CommandJournal.TIMESTAMP_OFFSET),
+                        getAscii(buffer, offset + CommandJournal.SOURCE_OFFSET,
+                                buffer.get(offset + CommandJournal.SOURCE_LENGTH_OFFSET)),
+                        getAscii(buffer, offset + CommandJournal.VERB_OFFSET,
+                                buffer.get(offset + CommandJournal.VERB_LENGTH_OFFSET)),
+                        CommandJournal.Outcome.values()[buffer.get(offset + CommandJournal.OUTCOME_OFFSET)],
+                        buffer.getLong(offset + CommandJournal.LATENCY_OFFSET)));
+            }
+        }
+        entries.sort(Comparator.comparingLong(Entry::getSequence));
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Read an ASCII string.
+     *
+     * @param buffer The journal contents.
+     * @param offset The offset of the string.
+     * @param length The length of the string.
+     * @return The string.
+     */
+    private static String getAscii(final ByteBuffer buffer, final int offset, final int length) {
+        return new String(buffer.array(), offset, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * An entry in the command journal.
+     */
+    public static final class Entry {
+
+        /**
+         * The sequence number.
+         */
+        private final long sequence;
+        /**
+         * The time the command was received in milliseconds since the epoch.
+         */
+        private final long timestamp;
+        /**
+         * The address of the client that sent the command.
+         */
+        private final String source;
+        /**
+         * The command verb.
+         */
+        private final String verb;
+        /**
+         * The outcome.
+         */
+        private final CommandJournal.Outcome outcome;
+        /**
+         * The time taken to execute the command in nanoseconds.
+         */
+        private final long latency;
+
+        /**
+         * Initialise the entry.
+         *
+         * @param sequence  The sequence number.
+         * @param timestamp The time the command was received in milliseconds since the epoch.
+         * @param source    The address of the client that sent the command.
+         * @param verb      The command verb.
+         * @param outcome   The outcome.
+         * @param latency   The time taken to execute the command in nanoseconds.
+         */
+        Entry(final long sequence, final long timestamp, final String source, final String verb,
+              final CommandJournal.Outcome outcome, final long latency) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.source = source;
+            this.verb = verb;
+            this.outcome = outcome;
+            this.latency = latency;
+        }
+
+        /**
+         * Get the sequence number.
+         *
+         * @return The sequence number.
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Get the time the command was received.
+         *
+         * @return The time in milliseconds since the epoch.
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * Get the address of the client that sent the command.
+         *
+         * @return The source address.
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * Get the command verb.
+         *
+         * @return The verb.
+         */
+        public String getVerb() {
+            return verb;
+        }
+
+        /**
+         * Get the outcome.
+         *
+         * @return The outcome.
+         */
+        public CommandJournal.Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * Get the time taken to execute the command.
+         *
+         * @return The latency in nanoseconds.
+         */
+        public long getLatency() {
+            return latency;
+        }
+
+        /**
+         * Format the entry.
+         *
+         * @return The formatted entry.
+         */
+        @Override
+        public String toString() {
+            return sequence + " " + Instant.ofEpochMilli(timestamp) + " " + source + " " + verb + " " + outcome
+                    + " " + TimeUnit.NANOSECONDS.toMicros(latency) + "us";
+        }
+    }
+}
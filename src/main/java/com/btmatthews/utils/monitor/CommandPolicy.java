@@ -0,0 +1,41 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+/**
+ * Determines how a monitor handles the pending {@code configure} commands when a {@code stop} or {@code drain} command
+ * is received. Commands are executed one at a time so when many clients send commands at once, for example a flood of
+ * {@code configure} commands, the {@code stop} or {@code drain} command would otherwise wait behind all the commands
+ * that arrived before it. It is always executed ahead of the other pending commands and the policy decides whether the
+ * {@code configure} commands it supersedes are discarded or applied first.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public enum CommandPolicy {
+
+    /**
+     * Execute {@code stop} and {@code drain} commands ahead of the other pending commands and cancel the pending
+     * {@code configure} commands they supersede without executing them.
+     */
+    CANCEL,
+    /**
+     * Execute {@code stop} and {@code drain} commands ahead of the other pending commands but first apply the pending
+     * {@code configure} commands coalesced so that only the last value received for each property is applied.
+     */
+    COALESCE
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.regex.Matcher;
+
+/**
+ * Orders the requests that a monitor has received but not yet executed. If one of the requests is a {@code stop} or
+ * {@code drain} command then it is executed before the requests that arrived ahead of it. Depending on the
+ * {@link CommandPolicy} the pending {@code configure} commands are either cancelled or coalesced to the last value for
+ * each property and applied before it. Otherwise the requests are executed in the order in which they were received.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+final class CommandQueue {
+
+    /**
+     * The priority of the coalesced {@code configure} commands that are applied before a lifecycle command.
+     */
+    private static final int COALESCED_CONFIGURE = 0;
+    /**
+     * The priority of {@code stop} and {@code drain} commands.
+     */
+    private static final int LIFECYCLE = 1;
+    /**
+     * The priority of all other requests.
+     */
+    private static final int OTHER = 2;
+    /**
+     * The policy used to order the requests.
+     */
+    private final CommandPolicy policy;
+    /**
+     * The monitor key that must prefix any commands.
+     */
+    private final String monitorKey;
+    /**
+     * If {@code true} HTTP requests are accepted.
+     */
+    private final boolean httpEnabled;
+    /**
+     * The pending requests.
+     */
+    private final PriorityQueue<Entry> entries = new PriorityQueue<>();
+
+    /**
+     * Initialise the command queue.
+     *
+     * @param policy      The policy used to order the requests.
+     * @param monitorKey  The monitor key that must prefix any commands.
+     * @param httpEnabled If {@code true} HTTP requests are accepted.
+     */
+    CommandQueue(final CommandPolicy policy, final String monitorKey, final boolean httpEnabled) {
+        this.policy = policy;
+        this.monitorKey = monitorKey;
+        this.httpEnabled = httpEnabled;
+    }
+
+    /**
+     * Add the connections with complete requests that were received together. Connections for {@code configure}
+     * commands that are cancelled or superseded are closed without executing them.
+     *
+     * @param ready  The connections in the order reported by the selector.
+     * @param logger Used to log information messages.
+     */
+    void addAll(final List<ClientConnection> ready, final Logger logger) {
+        final List<ClientConnection> received = new ArrayList<>(ready);
+        received.sort(Comparator.comparingLong(ClientConnection::getSequence));
+        boolean lifecyclePending = false;
+        for (final ClientConnection connection : received) {
+            lifecyclePending |= isLifecycle(connection);
+        }
+        if (!lifecyclePending) {
+            for (final ClientConnection connection : received) {
+                offer(connection, OTHER);
+            }
+            return;
+        }
+        final Map<String, ClientConnection> configures = new LinkedHashMap<>();
+        int superseded = 0;
+        for (final ClientConnection connection : received) {
+            final Matcher matcher = configureMatcher(connection);
+            if (isLifecycle(connection)) {
+                offer(connection, LIFECYCLE);
+            } else if (matcher == null) {
+                offer(connection, OTHER);
+            } else if (policy == CommandPolicy.CANCEL) {
+                connection.close();
+                ++superseded;
+            } else {
+                final ClientConnection previous = configures.remove(matcher.group(1));
+                if (previous != null) {
+                    previous.close();
+                    ++superseded;
+                }
+                configures.put(matcher.group(1), connection);
+            }
+        }
+        for (final ClientConnection connection : configures.values()) {
+            offer(connection, COALESCED_CONFIGURE);
+        }
+        if (superseded > 0) {
+            logger.logInfo((policy == CommandPolicy.CANCEL ? "Cancelled " : "Coalesced ") + superseded
+                    + " configure commands superseded by a lifecycle command");
+        }
+    }
+
+    /**
+     * Remove the connection whose request should be executed next.
+     *
+     * @return The connection or {@code null} if the queue is empty.
+     */
+    ClientConnection poll() {
+        final Entry entry = entries.poll();
+        return entry == null ? null : entry.connection;
+    }
+
+    /**
+     * Add a connection to the queue.
+     *
+     * @param connection The connection.
+     * @param priority   The priority of its request.
+     */
+    private void offer(final ClientConnection connection, final int priority) {
+        entries.add(new Entry(connection, priority));
+    }
+
+    /**
+     * Get the command sent on a connection.
+     *
+     * @param connection The connection.
+     * @return The command or {@code null} if the request is not a command.
+     */
+    private String getCommand(final ClientConnection connection) {
+        final ClientConnection.Request request = connection.getRequest(monitorKey, httpEnabled);
+        return request.getType() == ClientConnection.RequestType.COMMAND ? request.getValue() : null;
+    }
+
+    /**
+     * Check whether the request on a connection is a {@code stop} or {@code drain} command.
+     *
+     * @param connection The connection.
+     * @return {@code true} if the request is a lifecycle command.
+     */
+    private boolean isLifecycle(final ClientConnection connection) {
+        final String command = getCommand(connection);
+        return command != null && (Monitor.STOP.equals(command) || Monitor.DRAIN_PATTERN.matcher(command).matches());
+    }
+
+    /**
+     * Match the request on a connection against the {@code configure} command.
+     *
+     * @param connection The connection.
+     * @return The matcher if the request is a {@code configure} command or {@code null}.
+     */
+    private Matcher configureMatcher(final ClientConnection connection) {
+        final String command = getCommand(connection);
+        if (command == null) {
+            return null;
+        }
+        final Matcher matcher = Monitor.CONFIGURE_PATTERN.matcher(command);
+        return matcher.matches() ? matcher : null;
+    }
+
+    /**
+     * A pending request ordered by priority and then by the order in which it was received.
+     */
+    private static final class Entry implements Comparable<Entry> {
+
+        /**
+         * The connection on which the request was received.
+         */
+        private final ClientConnection connection;
+        /**
+         * The priority where lower values are executed first.
+         */
+        private final int priority;
+        /**
+         * Initialise the entry.
+         *
+         * @param connection The connection on which the request was received.
+         * @param priority   The priority where lower values are executed first.
+         */
+        Entry(final ClientConnection connection, final int priority) {
+            this.connection = connection;
+            this.priority = priority;
+        }
+
+        /**
+         * Compare the priority and then the order in which the requests were received.
+         *
+         * @param other The entry being compared.
+         * @return A negative value if this entry should be executed first.
+         */
+        @Override
+        public int compareTo(final Entry other) {
+            final int result = Integer.compare(priority, other.priority);
+            return result == 0 ? Long.compare(connection.getSequence(), other.connection.getSequence()) : result;
+        }
+    }
+}
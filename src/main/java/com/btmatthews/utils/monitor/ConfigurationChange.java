@@ -0,0 +1,116 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Describes the difference between the effective configuration of a running server and the configuration that
+ * results from applying one or more {@code configure} commands.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public final class ConfigurationChange {
+
+    /**
+     * The configuration before the change.
+     */
+    private final ServerConfiguration previous;
+    /**
+     * The configuration after the change.
+     */
+    private final ServerConfiguration current;
+    /**
+     * The names of the properties whose values changed.
+     */
+    private final Set<String> changedNames;
+
+    /**
+     * Initialise the change by comparing the configuration before and after the change.
+     *
+     * @param previous The configuration before the change.
+     * @param current  The configuration after the change.
+     */
+    public ConfigurationChange(final ServerConfiguration previous, final ServerConfiguration current) {
+        this.previous = previous;
+        this.current = current;
+        final Set<String> names = new LinkedHashSet<>();
+        for (final Map.Entry<String, Object> entry : current.asMap().entrySet()) {
+            if (!previous.contains(entry.getKey())
+                    || !Objects.equals(previous.get(entry.getKey()), entry.getValue())) {
+                names.add(entry.getKey());
+            }
+        }
+        for (final String name : previous.getNames()) {
+            if (!current.contains(name)) {
+                names.add(name);
+            }
+        }
+        changedNames = Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * Get the configuration before the change.
+     *
+     * @return The previous configuration.
+     */
+    public ServerConfiguration getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Get the configuration after the change.
+     *
+     * @return The current configuration.
+     */
+    public ServerConfiguration getCurrent() {
+        return current;
+    }
+
+    /**
+     * Get the names of the properties whose values changed.
+     *
+     * @return The changed property names.
+     */
+    public Set<String> getChangedNames() {
+        return changedNames;
+    }
+
+    /**
+     * Check whether the value of a property changed.
+     *
+     * @param name The property name.
+     * @return {@code true} if the value changed.
+     */
+    public boolean isChanged(final String name) {
+        return changedNames.contains(name);
+    }
+
+    /**
+     * Check whether any property values changed.
+     *
+     * @return {@code true} if nothing changed.
+     */
+    public boolean isEmpty() {
+        return changedNames.isEmpty();
+    }
+}
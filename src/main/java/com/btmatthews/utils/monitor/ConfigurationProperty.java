@@ -0,0 +1,169 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.io.File;
+
+/**
+ * Describes a server configuration property declared in a {@link ConfigurationSchema}. Values supplied as strings
+ * are converted to the declared type when the configuration is validated. The supported conversions are to
+ * {@link String}, {@link Boolean}, {@link Integer}, {@link Long} and {@link File}. Values of other declared types
+ * must already be instances of that type.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public final class ConfigurationProperty {
+
+    /**
+     * The property name.
+     */
+    private final String name;
+    /**
+     * The declared type of the property value.
+     */
+    private final Class<?> type;
+    /**
+     * {@code true} if a value must be supplied for the property.
+     */
+    private final boolean required;
+    /**
+     * The value used if no value is supplied or {@code null}.
+     */
+    private final Object defaultValue;
+
+    /**
+     * Initialise the property description.
+     *
+     * @param name         The property name.
+     * @param type         The declared type of the property value.
+     * @param required     {@code true} if a value must be supplied for the property.
+     * @param defaultValue The value used if no value is supplied or {@code null}.
+     */
+    private ConfigurationProperty(final String name, final Class<?> type, final boolean required,
+                                  final Object defaultValue) {
+        this.name = name;
+        this.type = type;
+        this.required = required;
+        this.defaultValue = defaultValue;
+    }
+
+    /**
+     * Declare a property for which a value must be supplied.
+     *
+     * @param name The property name.
+     * @param type The declared type of the property value.
+     * @return The property description.
+     */
+    public static ConfigurationProperty required(final String name, final Class<?> type) {
+        return new ConfigurationProperty(name, type, true, null);
+    }
+
+    /**
+     * Declare a property for which a value may be omitted.
+     *
+     * @param name The property name.
+     * @param type The declared type of the property value.
+     * @return The property description.
+     */
+    public static ConfigurationProperty optional(final String name, final Class<?> type) {
+        return new ConfigurationProperty(name, type, false, null);
+    }
+
+    /**
+     * Declare a property that takes a default value if a value is omitted.
+     *
+     * @param name         The property name.
+     * @param type         The declared type of the property value.
+     * @param defaultValue The default value.
+     * @param <T>          The declared type of the property value.
+     * @return The property description.
+     */
+    public static <T> ConfigurationProperty optional(final String name, final Class<T> type, final T defaultValue) {
+        return new ConfigurationProperty(name, type, false, defaultValue);
+    }
+
+    /**
+     * Get the property name.
+     *
+     * @return The property name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the declared type of the property value.
+     *
+     * @return The declared type.
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * Check whether a value must be supplied for the property.
+     *
+     * @return {@code true} if the property is required.
+     */
+    public boolean isRequired() {
+        return required;
+    }
+
+    /**
+     * Get the value used if no value is supplied.
+     *
+     * @return The default value or {@code null}.
+     */
+    public Object getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * Convert a supplied value to the declared type.
+     *
+     * @param value The supplied value.
+     * @return The converted value.
+     * @throws IllegalArgumentException If the value could not be converted.
+     */
+    Object convert(final Object value) {
+        if (type.isInstance(value)) {
+            return value;
+        }
+        if (value instanceof String) {
+            final String text = ((String) value).trim();
+            if (type == Boolean.class) {
+                if ("true".equalsIgnoreCase(text) || "false".equalsIgnoreCase(text)) {
+                    return Boolean.valueOf(text);
+                }
+            } else if (type == Integer.class) {
+                return Integer.valueOf(text);
+            } else if (type == Long.class) {
+                return Long.valueOf(text);
+            } else if (type == File.class) {
+                return new File(text);
+            }
+        } else if (value instanceof Integer && type == Long.class) {
+            return ((Integer) value).longValue();
+        } else if (value instanceof Long && type == Integer.class) {
+            return Math.toIntExact((Long) value);
+        } else if (type == String.class && value != null) {
+            return value.toString();
+        }
+        throw new IllegalArgumentException("Property " + name + " must be of type " + type.getSimpleName());
+    }
+}
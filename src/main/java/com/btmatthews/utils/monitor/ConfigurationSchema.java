@@ -0,0 +1,124 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Declares the configuration properties accepted by the servers created by a {@link ServerFactory}. The schema is
+ * used to validate and convert the raw configuration before the server is created so that malformed configuration is
+ * reported before the server is started.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public final class ConfigurationSchema {
+
+    /**
+     * A schema that accepts any property and passes the values through unchanged. This is used by server factories
+     * that do not declare a schema.
+     */
+    public static final ConfigurationSchema ANY = new ConfigurationSchema(false);
+    /**
+     * The declared properties keyed by name.
+     */
+    private final Map<String, ConfigurationProperty> properties = new LinkedHashMap<>();
+    /**
+     * If {@code true} properties that have not been declared are rejected.
+     */
+    private final boolean strict;
+
+    /**
+     * Initialise a schema that only accepts the declared properties.
+     *
+     * @param properties The declared properties.
+     */
+    public ConfigurationSchema(final ConfigurationProperty... properties) {
+        this(true, properties);
+    }
+
+    /**
+     * Initialise a schema.
+     *
+     * @param strict     If {@code true} properties that have not been declared are rejected.
+     * @param properties The declared properties.
+     */
+    public ConfigurationSchema(final boolean strict, final ConfigurationProperty... properties) {
+        this.strict = strict;
+        for (final ConfigurationProperty property : properties) {
+            this.properties.put(property.getName(), property);
+        }
+    }
+
+    /**
+     * Get the declared properties.
+     *
+     * @return The declared properties keyed by name.
+     */
+    public Map<String, ConfigurationProperty> getProperties() {
+        return Collections.unmodifiableMap(properties);
+    }
+
+    /**
+     * Validate the raw configuration against the schema converting the values to the declared types and applying
+     * defaults.
+     *
+     * @param config The raw configuration. May be {@code null} if there is no configuration.
+     * @return The validated configuration.
+     * @throws InvalidConfigurationException If the configuration does not conform to the schema.
+     */
+    public ServerConfiguration validate(final Map<String, ?> config) throws InvalidConfigurationException {
+        final Map<String, Object> values = new LinkedHashMap<>();
+        final List<String> problems = new ArrayList<>();
+        if (config != null) {
+            for (final Map.Entry<String, ?> entry : config.entrySet()) {
+                final ConfigurationProperty property = properties.get(entry.getKey());
+                if (property == null) {
+                    if (strict) {
+                        problems.add("Unknown property " + entry.getKey());
+                    } else {
+                        values.put(entry.getKey(), entry.getValue());
+                    }
+                } else if (entry.getValue() != null) {
+                    try {
+                        values.put(entry.getKey(), property.convert(entry.getValue()));
+                    } catch (final IllegalArgumentException | ArithmeticException e) {
+                        problems.add("Property " + entry.getKey() + " must be of type "
+                                + property.getType().getSimpleName());
+                    }
+                }
+            }
+        }
+        for (final ConfigurationProperty property : properties.values()) {
+            if (!values.containsKey(property.getName())) {
+                if (property.getDefaultValue() != null) {
+                    values.put(property.getName(), property.getDefaultValue());
+                } else if (property.isRequired()) {
+                    problems.add("Missing required property " + property.getName());
+                }
+            }
+        }
+        if (!problems.isEmpty()) {
+            throw new InvalidConfigurationException(problems);
+        }
+        return new ServerConfiguration(values);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.io.PrintWriter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for the in-flight work of a {@link DrainableServer} to complete after it has been asked to stop accepting new
+ * work. The in-flight count is polled on the shared scheduler so that the monitor can continue to answer
+ * {@code status} and health requests while the server is draining. Progress is written to the client that sent the
+ * {@code drain} command and the monitor is notified when the in-flight work has completed or the deadline has passed.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+final class DrainTask {
+
+    /**
+     * The server being drained.
+     */
+    private final DrainableServer server;
+    /**
+     * Used to log error messages.
+     */
+    private final Logger logger;
+    /**
+     * Used to report progress to the client.
+     */
+    private final PrintWriter response;
+    /**
+     * The time in nanoseconds by which the in-flight work must have completed.
+     */
+    private final long deadline;
+    /**
+     * Invoked on the scheduler thread once draining has finished.
+     */
+    private final Runnable onComplete;
+    /**
+     * Released once draining has finished or been cancelled.
+     */
+    private final CountDownLatch done = new CountDownLatch(1);
+    /**
+     * The in-flight count that was last reported to the client.
+     */
+    private int reported = -1;
+    /**
+     * The scheduled task that polls the in-flight count.
+     */
+    private ScheduledFuture<?> poller;
+    /**
+     * The connection to the client that sent the {@code drain} command or {@code null} if the response is not
+     * written to a client connection.
+     */
+    private ClientConnection connection;
+
+    /**
+     * Initialise the drain task.
+     *
+     * @param server     The server being drained.
+     * @param logger     Used to log error messages.
+     * @param response   Used to report progress to the client.
+     * @param timeout    The deadline in milliseconds.
+     * @param onComplete Invoked on the scheduler thread once draining has finished.
+     */
+    DrainTask(final DrainableServer server, final Logger logger, final PrintWriter response, final long timeout,
+              final Runnable onComplete) {
+        this.server = server;
+        this.logger = logger;
+        this.response = response;
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        this.onComplete = onComplete;
+    }
+
+    /**
+     * Start polling the in-flight count.
+     *
+     * @param interval The interval in milliseconds between polls.
+     */
+    synchronized void start(final long interval) {
+        poller = MonitorScheduler.getExecutor().scheduleWithFixedDelay(this::poll, 0L, interval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Check whether draining has finished or been cancelled.
+     *
+     * @return {@code true} if draining has finished.
+     */
+    boolean isDone() {
+        return done.getCount() == 0L;
+    }
+
+    /**
+     * Wait for draining to finish.
+     *
+     * @throws InterruptedException If the thread was interrupted while waiting.
+     */
+    void await() throws InterruptedException {
+        done.await();
+    }
+
+    /**
+     * Stop polling the in-flight count without reporting the outcome to the client. This is used if the server is
+     * stopped by another command while it is being drained.
+     */
+    synchronized void cancel() {
+        if (!isDone()) {
+            poller.cancel(false);
+            done.countDown();
+        }
+    }
+
+    /**
+     * Take ownership of the client connection so that it is kept open until the monitor has stopped the server.
+     *
+     * @param clientConnection The connection to the client that sent the {@code drain} command.
+     */
+    void attach(final ClientConnection clientConnection) {
+        connection = clientConnection;
+    }
+
+    /**
+     * Check whether the task has taken ownership of a client connection.
+     *
+     * @return {@code true} if a client connection has been attached.
+     */
+    boolean isAttached() {
+        return connection != null;
+    }
+
+    /**
+     * Check whether the task has taken ownership of a particular client connection.
+     *
+     * @param clientConnection The client connection.
+     * @return {@code true} if the client connection has been attached.
+     */
+    boolean isAttached(final ClientConnection clientConnection) {
+        return connection == clientConnection;
+    }
+
+    /**
+     * Close the client connection if one was attached.
+     */
+    void close() {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Poll the in-flight count reporting any change to the client and finishing once it has reached zero or the
+     * deadline has passed.
+     */
+    private void poll() {
+        int inFlight;
+        try {
+            inFlight = server.getInFlightCount(logger);
+        } catch (final RuntimeException e) {
+            logger.logError("Error getting the in-flight count", e);
+            inFlight = 0;
+        }
+        if (inFlight > 0 && System.nanoTime() - deadline < 0) {
+            if (inFlight != reported) {
+                response.println("in-flight " + inFlight);
+                response.flush();
+                reported = inFlight;
+            }
+            return;
+        }
+        finish(inFlight > 0 ? "deadline exceeded with " + inFlight + " in-flight, forcing stop" : "drained");
+    }
+
+    /**
+     * Report the outcome to the client, stop polling and notify the monitor.
+     *
+     * @param outcome The outcome.
+     */
+    private synchronized void finish(final String outcome) {
+        if (isDone()) {
+            return;
+        }
+        poller.cancel(false);
+        response.println(outcome);
+        response.flush();
+        done.countDown();
+        onComplete.run();
+    }
+}
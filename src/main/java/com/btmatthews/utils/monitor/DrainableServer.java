@@ -0,0 +1,44 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+/**
+ * Implemented by servers that can be drained before they are stopped. When the monitor receives a {@code drain}
+ * command it asks the server to stop accepting new work and then waits for the in-flight work to complete, reporting
+ * progress to the client, before stopping the server. The server is stopped anyway if the in-flight work has not
+ * completed by the deadline.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public interface DrainableServer extends Server {
+
+    /**
+     * Stop accepting new work. Work that is already in progress should be allowed to complete.
+     *
+     * @param logger Used to log error messages.
+     */
+    void beginDrain(Logger logger);
+
+    /**
+     * Get the amount of work that is still in progress.
+     *
+     * @param logger Used to log error messages.
+     * @return The number of in-flight requests or tasks.
+     */
+    int getInFlightCount(Logger logger);
+}
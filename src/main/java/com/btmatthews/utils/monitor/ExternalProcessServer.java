@@ -0,0 +1,532 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A server that runs an external process. The standard output and standard error of the process are pumped into the
+ * {@link Logger} by a task on the shared monitor scheduler which reads whatever is available from each stream in
+ * bounded chunks until nothing more is available or a per-tick budget is spent, so no threads are dedicated to the
+ * streams and a chatty process cannot cause unbounded buffering.
+ * Stopping the server asks the process to terminate and then forcibly kills it if it has not exited within the stop
+ * timeout.
+ * <p>
+ * If ready markers are configured the output is scanned for them as it is pumped and the monitor is told the server
+ * has started as soon as one is written, instead of the monitor polling for the process to be running. Writing a
+ * failure marker, or exiting before a ready marker is written, signals that the server failed to start.
+ * <p>
+ * The server supports the following configuration properties:
+ * <ul>
+ * <li>{@code command} - the command line which is split on white space unless quoted</li>
+ * <li>{@code workingDirectory} - the working directory of the process</li>
+ * <li>{@code stopTimeout} - the time in milliseconds the process is given to exit before it is killed</li>
+ * <li>{@code readyMarkers} - strings separated by {@code |} that indicate the server has started</li>
+ * <li>{@code failureMarkers} - strings separated by {@code |} that indicate the server has failed to start</li>
+ * </ul>
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public class ExternalProcessServer extends AbstractServer implements ReadinessAwareServer {
+
+    /**
+     * The name of the property holding the command line.
+     */
+    public static final String COMMAND = "command";
+    /**
+     * The name of the property holding the working directory.
+     */
+    public static final String WORKING_DIRECTORY = "workingDirectory";
+    /**
+     * The name of the property holding the stop timeout.
+     */
+    public static final String STOP_TIMEOUT = "stopTimeout";
+    /**
+     * The name of the property holding the ready markers.
+     */
+    public static final String READY_MARKERS = "readyMarkers";
+    /**
+     * The name of the property holding the failure markers.
+     */
+    public static final String FAILURE_MARKERS = "failureMarkers";
+    /**
+     * The default time in milliseconds the process is given to exit before it is killed.
+     */
+    public static final long DEFAULT_STOP_TIMEOUT = 10000L;
+    /**
+     * The interval in milliseconds at which the output of the process is pumped into the logger.
+     */
+    private static final long PUMP_INTERVAL = 50L;
+    /**
+     * The maximum number of bytes read from a stream by a single read.
+     */
+    private static final int CHUNK_SIZE = 8192;
+    /**
+     * The maximum number of bytes read from each stream each time the output is pumped. Reading stops earlier if no
+     * more output is available.
+     */
+    private static final int MAX_BYTES_PER_PUMP = 1024 * 1024;
+    /**
+     * The maximum length of a line of output. Longer lines are split.
+     */
+    private static final int MAX_LINE_LENGTH = 8192;
+    /**
+     * Separates the markers in the ready and failure marker properties.
+     */
+    private static final String MARKER_SEPARATOR = "\\|";
+    /**
+     * The command line.
+     */
+    private List<String> command = Collections.emptyList();
+    /**
+     * The working directory or {@code null} to inherit the working directory of the JVM.
+     */
+    private File workingDirectory;
+    /**
+     * The time in milliseconds the process is given to exit before it is killed.
+     */
+    private long stopTimeout = DEFAULT_STOP_TIMEOUT;
+    /**
+     * The markers that indicate the server has started.
+     */
+    private List<String> readyMarkers = Collections.emptyList();
+    /**
+     * The markers that indicate the server has failed to start.
+     */
+    private List<String> failureMarkers = Collections.emptyList();
+    /**
+     * Scans the output for the markers or {@code null} if there are no ready markers.
+     */
+    private LogReadinessDetector detector;
+    /**
+     * The running process.
+     */
+    private volatile Process process;
+    /**
+     * Used to log the output of the process.
+     */
+    private Logger outputLogger;
+    /**
+     * The standard output of the process.
+     */
+    private ProcessOutput stdout;
+    /**
+     * The standard error of the process.
+     */
+    private ProcessOutput stderr;
+    /**
+     * Buffer used to read from the process output streams.
+     */
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    /**
+     * The scheduled task that pumps the output of the process.
+     */
+    private ScheduledFuture<?> pumpTask;
+    /**
+     * The scheduled task that kills the process if it does not exit within the stop timeout.
+     */
+    private ScheduledFuture<?> killTask;
+
+    /**
+     * Invoked by the monitor to configure a server property.
+     *
+     * @param name   The property name.
+     * @param value  The property value.
+     * @param logger Used to log error messages.
+     * @see Server#configure(String, Object, Logger)
+     */
+    @Override
+    public void configure(final String name, final Object value, final Logger logger) {
+        if (COMMAND.equals(name)) {
+            command = parseCommand(String.valueOf(value));
+        } else if (WORKING_DIRECTORY.equals(name)) {
+            workingDirectory = value instanceof File ? (File) value : new File(String.valueOf(value));
+        } else if (STOP_TIMEOUT.equals(name)) {
+            try {
+                stopTimeout = value instanceof Number
+                        ? ((Number) value).longValue()
+                        : Long.parseLong(String.valueOf(value));
+            } catch (final NumberFormatException e) {
+                logger.logError("Invalid stop timeout: " + value);
+            }
+        } else if (READY_MARKERS.equals(name)) {
+            readyMarkers = parseMarkers(value);
+        } else if (FAILURE_MARKERS.equals(name)) {
+            failureMarkers = parseMarkers(value);
+        }
+    }
+
+    /**
+     * Get a future that will be completed when a ready or failure marker has been written by the process.
+     *
+     * @param logger Used to log error messages.
+     * @return The future or {@code null} if no ready markers were configured.
+     * @see ReadinessAwareServer#getReadiness(Logger)
+     */
+    @Override
+    public synchronized CompletableFuture<Boolean> getReadiness(final Logger logger) {
+        if (readyMarkers.isEmpty()) {
+            return null;
+        }
+        if (detector == null) {
+            detector = new LogReadinessDetector(readyMarkers, failureMarkers, LineBuffer.CHARSET);
+        }
+        return detector.getResult();
+    }
+
+    /**
+     * Invoked by the monitor to launch the process and begin pumping its output into the logger.
+     *
+     * @param logger Used to log the output of the process and error messages.
+     * @see Server#start(Logger)
+     */
+    @Override
+    public synchronized void start(final Logger logger) {
+        if (command.isEmpty()) {
+            logger.logError("No command specified");
+            return;
+        }
+        final ProcessBuilder builder = new ProcessBuilder(command);
+        if (workingDirectory != null) {
+            builder.directory(workingDirectory);
+        }
+        try {
+            process = builder.start();
+        } catch (final IOException exception) {
+            logger.logError("Error starting process", exception);
+            return;
+        }
+        outputLogger = logger;
+        if (!readyMarkers.isEmpty() && (detector == null || detector.getResult().isDone())) {
+            detector = new LogReadinessDetector(readyMarkers, failureMarkers, LineBuffer.CHARSET);
+        }
+        stdout = new ProcessOutput(process.getInputStream(), false,
+                detector == null ? null : detector.newScanner());
+        stderr = new ProcessOutput(process.getErrorStream(), true,
+                detector == null ? null : detector.newScanner());
+        pumpTask = MonitorScheduler.getExecutor().scheduleWithFixedDelay(this::pump, 0L, PUMP_INTERVAL,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Invoked by the monitor to check if the process is running and, if ready markers were configured, has written
+     * one of them.
+     *
+     * @param logger Used to log error messages.
+     * @return {@code true} if the process is running and ready.
+     * @see Server#isStarted(Logger)
+     */
+    @Override
+    public boolean isStarted(final Logger logger) {
+        final Process current = process;
+        if (current == null || !current.isAlive()) {
+            return false;
+        }
+        final LogReadinessDetector currentDetector = getDetector();
+        return currentDetector == null || Boolean.TRUE.equals(currentDetector.getResult().getNow(false));
+    }
+
+    /**
+     * Invoked by the monitor to ask the process to terminate. If it has not exited within the stop timeout then it
+     * is forcibly killed.
+     *
+     * @param logger Used to log error messages.
+     * @see Server#stop(Logger)
+     */
+    @Override
+    public synchronized void stop(final Logger logger) {
+        final Process current = process;
+        if (current == null || !current.isAlive()) {
+            return;
+        }
+        try {
+            current.getOutputStream().close();
+        } catch (final IOException e) {
+            // Ignore errors closing the standard input of the process
+        }
+        current.destroy();
+        killTask = MonitorScheduler.getExecutor().schedule(() -> {
+            if (current.isAlive()) {
+                logger.logError("Process did not stop within " + stopTimeout + "ms, killing it");
+                current.destroyForcibly();
+            }
+        }, stopTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Invoked by the monitor to check if the process has exited. Once it has the remaining output is flushed to the
+     * logger.
+     *
+     * @param logger Used to log error messages.
+     * @return {@code true} if the process has exited or was never started.
+     * @see Server#isStopped(Logger)
+     */
+    @Override
+    public boolean isStopped(final Logger logger) {
+        final Process current = process;
+        if (current == null) {
+            return true;
+        }
+        if (current.isAlive()) {
+            return false;
+        }
+        finish();
+        return true;
+    }
+
+    /**
+     * Get the exit code of the process.
+     *
+     * @return The exit code or {@code null} if the process has not been started or has not exited.
+     */
+    public Integer getExitCode() {
+        final Process current = process;
+        return current == null || current.isAlive() ? null : current.exitValue();
+    }
+
+    /**
+     * Pump the output that is available from the process into the logger. Once the process has exited and all of
+     * its output has been read the remaining partial lines are flushed and the task is cancelled.
+     */
+    private synchronized void pump() {
+        if (stdout == null) {
+            return;
+        }
+        final boolean read = drain(stdout) | drain(stderr);
+        if (!read && !process.isAlive()) {
+            finish();
+        }
+    }
+
+    /**
+     * Read the output that is available from a stream until no more is available or {@link #MAX_BYTES_PER_PUMP}
+     * bytes have been read.
+     *
+     * @param output The stream.
+     * @return {@code true} if any output was read.
+     */
+    private boolean drain(final ProcessOutput output) {
+        int total = 0;
+        for (int count = output.pump(chunk, outputLogger); count > 0; count = output.pump(chunk, outputLogger)) {
+            total += count;
+            if (total >= MAX_BYTES_PER_PUMP) {
+                break;
+            }
+        }
+        return total > 0;
+    }
+
+    /**
+     * Stop pumping the output of the process after flushing the remaining output to the logger.
+     */
+    private synchronized void finish() {
+        if (stdout == null) {
+            return;
+        }
+        while (drain(stdout) | drain(stderr)) {
+            // Drain the remaining output
+        }
+        stdout.close(outputLogger);
+        stderr.close(outputLogger);
+        if (detector != null) {
+            detector.endOfOutput();
+        }
+        stdout = null;
+        stderr = null;
+        if (pumpTask != null) {
+            pumpTask.cancel(false);
+            pumpTask = null;
+        }
+        if (killTask != null) {
+            killTask.cancel(false);
+            killTask = null;
+        }
+    }
+
+    /**
+     * Get the detector that scans the output for the markers.
+     *
+     * @return The detector or {@code null} if there are no ready markers.
+     */
+    private synchronized LogReadinessDetector getDetector() {
+        return detector;
+    }
+
+    /**
+     * Split the value of a marker property into the markers.
+     *
+     * @param value The property value.
+     * @return The markers.
+     */
+    private static List<String> parseMarkers(final Object value) {
+        final List<String> markers = new ArrayList<>();
+        for (final String marker : String.valueOf(value).split(MARKER_SEPARATOR)) {
+            if (!marker.isEmpty()) {
+                markers.add(marker);
+            }
+        }
+        return markers;
+    }
+
+    /**
+     * Split a command line into arguments on white space. Single or double quotes can be used to include white
+     * space in an argument.
+     *
+     * @param commandLine The command line.
+     * @return The arguments.
+     */
+    static List<String> parseCommand(final String commandLine) {
+        final List<String> arguments = new ArrayList<>();
+        final StringBuilder argument = new StringBuilder();
+        boolean inArgument = false;
+        char quote = 0;
+        for (int i = 0; i < commandLine.length(); ++i) {
+            final char c = commandLine.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else {
+                    argument.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                inArgument = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inArgument) {
+                    arguments.add(argument.toString());
+                    argument.setLength(0);
+                    inArgument = false;
+                }
+            } else {
+                argument.append(c);
+                inArgument = true;
+            }
+        }
+        if (inArgument) {
+            arguments.add(argument.toString());
+        }
+        return arguments;
+    }
+
+    /**
+     * One of the output streams of the process.
+     */
+    private static final class ProcessOutput {
+
+        /**
+         * The output stream of the process.
+         */
+        private final InputStream stream;
+        /**
+         * If {@code true} the output is logged as errors.
+         */
+        private final boolean error;
+        /**
+         * Splits the output into lines.
+         */
+        private final LineBuffer lines = new LineBuffer(MAX_LINE_LENGTH, true);
+        /**
+         * Scans the output for the ready and failure markers or {@code null}.
+         */
+        private final LogReadinessDetector.Scanner scanner;
+
+        /**
+         * Initialise the process output.
+         *
+         * @param stream  The output stream of the process.
+         * @param error   If {@code true} the output is logged as errors.
+         * @param scanner Scans the output for the ready and failure markers or {@code null}.
+         */
+        ProcessOutput(final InputStream stream, final boolean error, final LogReadinessDetector.Scanner scanner) {
+            this.stream = stream;
+            this.error = error;
+            this.scanner = scanner;
+        }
+
+        /**
+         * Read the output that is available without blocking and log the complete lines.
+         *
+         * @param chunk  The buffer used to read from the stream.
+         * @param logger Used to log the output.
+         * @return The number of bytes read or {@code 0} if no output was available.
+         */
+        int pump(final byte[] chunk, final Logger logger) {
+            final int count;
+            try {
+                final int available = stream.available();
+                if (available <= 0) {
+                    return 0;
+                }
+                count = stream.read(chunk, 0, Math.min(available, chunk.length));
+            } catch (final IOException e) {
+                return 0;
+            }
+            if (count <= 0) {
+                return 0;
+            }
+            if (scanner != null) {
+                scanner.scan(chunk, 0, count);
+            }
+            lines.append(ByteBuffer.wrap(chunk, 0, count));
+            for (String line = lines.poll(); line != null; line = lines.poll()) {
+                log(line, logger);
+            }
+            return count;
+        }
+
+        /**
+         * Log any partial line and close the stream.
+         *
+         * @param logger Used to log the output.
+         */
+        void close(final Logger logger) {
+            final String line = lines.takePartial();
+            if (!line.isEmpty()) {
+                log(line, logger);
+            }
+            try {
+                stream.close();
+            } catch (final IOException e) {
+                // Ignore errors closing the stream
+            }
+        }
+
+        /**
+         * Log a line of output.
+         *
+         * @param line   The line.
+         * @param logger Used to log the output.
+         */
+        private void log(final String line, final Logger logger) {
+            if (error) {
+                logger.logError(line);
+            } else {
+                logger.logInfo(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.io.File;
+
+/**
+ * Creates {@link ExternalProcessServer}s which run an external process.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public class ExternalProcessServerFactory implements ServerFactory {
+
+    /**
+     * The name of servers that run an external process.
+     */
+    public static final String SERVER_NAME = "process";
+
+    /**
+     * Returns the name of servers that run an external process.
+     *
+     * @return Always returns {@code "process"}.
+     * @see ServerFactory#getServerName()
+     */
+    @Override
+    public String getServerName() {
+        return SERVER_NAME;
+    }
+
+    /**
+     * Creates a server that runs an external process.
+     *
+     * @return An instance of {@link ExternalProcessServer}.
+     * @see ServerFactory#createServer()
+     */
+    @Override
+    public Server createServer() {
+        return new ExternalProcessServer();
+    }
+
+    /**
+     * Returns the schema for the external process server configuration which requires the {@code command} property.
+     *
+     * @return The configuration schema.
+     * @see ServerFactory#getConfigurationSchema()
+     */
+    @Override
+    public ConfigurationSchema getConfigurationSchema() {
+        return new ConfigurationSchema(
+                ConfigurationProperty.required(ExternalProcessServer.COMMAND, String.class),
+                ConfigurationProperty.optional(ExternalProcessServer.WORKING_DIRECTORY, File.class),
+                ConfigurationProperty.optional(ExternalProcessServer.STOP_TIMEOUT, Long.class,
+                        ExternalProcessServer.DEFAULT_STOP_TIMEOUT),
+                ConfigurationProperty.optional(ExternalProcessServer.READY_MARKERS, String.class),
+                ConfigurationProperty.optional(ExternalProcessServer.FAILURE_MARKERS, String.class));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when a server configuration does not conform to the {@link ConfigurationSchema} declared by the server
+ * factory. The exception reports every problem that was found rather than just the first.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public class InvalidConfigurationException extends Exception {
+
+    /**
+     * The version of the serialised form.
+     */
+    private static final long serialVersionUID = 1L;
+    /**
+     * The problems found with the configuration.
+     */
+    private final List<String> problems;
+
+    /**
+     * Initialise the exception with the problems found with the configuration.
+     *
+     * @param problems The problems found with the configuration.
+     */
+    public InvalidConfigurationException(final List<String> problems) {
+        super("Invalid server configuration: " + String.join("; ", problems));
+        this.problems = Collections.unmodifiableList(new ArrayList<>(problems));
+    }
+
+    /**
+     * Get the problems found with the configuration.
+     *
+     * @return The problems.
+     */
+    public List<String> getProblems() {
+        return problems;
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The Java Flight Recorder events emitted by the monitor. This class is loaded by {@link JfrSupport} only if the JFR
+ * API is present. It is only compiled when building on Java 11 or later because the JFR API is not available to the
+ * compiler on earlier versions.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+final class JfrEvents implements JfrSupport.Events {
+
+    /**
+     * The constructor is used by {@link JfrSupport} when it loads this class.
+     */
+    JfrEvents() {
+    }
+
+    /**
+     * Emit an event for each phase of a start-up timeline.
+     *
+     * @param timeline The start-up timeline.
+     */
+    @Override
+    public void commitStartup(final StartupTimeline timeline) {
+        for (final StartupTimeline.Entry entry : timeline.getEntries()) {
+            final StartupPhaseEvent event = new StartupPhaseEvent();
+            if (event.shouldCommit()) {
+                event.monitorKey = timeline.getMonitorKey();
+                event.phase = entry.getName();
+                event.offset = entry.getOffsetNanos();
+                event.phaseDuration = entry.getDurationNanos();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Begin timing the execution of a monitor command.
+     *
+     * @param monitorKey The monitor key.
+     * @param verb       The command verb.
+     * @return The event.
+     */
+    @Override
+    public JfrSupport.Span beginCommand(final String monitorKey, final String verb) {
+        final MonitorCommandEvent event = new MonitorCommandEvent();
+        event.monitorKey = monitorKey;
+        event.verb = verb;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begin timing a server start-up.
+     *
+     * @param monitorKey The monitor key.
+     * @return The event.
+     */
+    @Override
+    public JfrSupport.Span beginServerStart(final String monitorKey) {
+        final ServerStartEvent event = new ServerStartEvent();
+        event.monitorKey = monitorKey;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begin timing a server shutdown.
+     *
+     * @param monitorKey The monitor key.
+     * @return The event.
+     */
+    @Override
+    public JfrSupport.Span beginServerStop(final String monitorKey) {
+        final ServerStopEvent event = new ServerStopEvent();
+        event.monitorKey = monitorKey;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begin timing a client connection to the monitor.
+     *
+     * @param monitorKey The monitor key.
+     * @return The event.
+     */
+    @Override
+    public JfrSupport.Span beginConnection(final String monitorKey) {
+        final MonitorConnectionEvent event = new MonitorConnectionEvent();
+        event.monitorKey = monitorKey;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Records the execution of a command by a monitor.
+     */
+    @Name("com.btmatthews.monitor.MonitorCommand")
+    @Label("Monitor Command")
+    @Category("Monitor")
+    @Description("A command executed by a monitor")
+    static final class MonitorCommandEvent extends Event implements JfrSupport.Span {
+
+        /**
+         * The monitor key.
+         */
+        @Label("Monitor Key")
+        String monitorKey;
+        /**
+         * The command verb.
+         */
+        @Label("Verb")
+        String verb;
+        /**
+         * {@code true} if the command was recognised and executed.
+         */
+        @Label("Success")
+        boolean success;
+
+        /**
+         * End the command and commit the event if it is enabled.
+         *
+         * @param outcome {@code true} if the command was recognised and executed.
+         * @param detail  Ignored.
+         */
+        @Override
+        public void end(final boolean outcome, final String detail) {
+            end();
+            if (shouldCommit()) {
+                success = outcome;
+                commit();
+            }
+        }
+    }
+
+    /**
+     * Records the start-up of a server from the call to {@link Server#start(Logger)} until the server was found to
+     * have started.
+     */
+    @Name("com.btmatthews.monitor.ServerStart")
+    @Label("Server Start")
+    @Category("Monitor")
+    @Description("The start-up of a server controlled by a monitor")
+    static final class ServerStartEvent extends Event implements JfrSupport.Span {
+
+        /**
+         * The monitor key.
+         */
+        @Label("Monitor Key")
+        String monitorKey;
+        /**
+         * {@code true} if the server started.
+         */
+        @Label("Success")
+        boolean success;
+
+        /**
+         * End the start-up and commit the event if it is enabled.
+         *
+         * @param outcome {@code true} if the server started.
+         * @param detail  Ignored.
+         */
+        @Override
+        public void end(final boolean outcome, final String detail) {
+            end();
+            if (shouldCommit()) {
+                success = outcome;
+                commit();
+            }
+        }
+    }
+
+    /**
+     * Records the shutdown of a server from the call to {@link Server#stop(Logger)} until the server was found to
+     * have stopped.
+     */
+    @Name("com.btmatthews.monitor.ServerStop")
+    @Label("Server Stop")
+    @Category("Monitor")
+    @Description("The shutdown of a server controlled by a monitor")
+    static final class ServerStopEvent extends Event implements JfrSupport.Span {
+
+        /**
+         * The monitor key.
+         */
+        @Label("Monitor Key")
+        String monitorKey;
+        /**
+         * {@code true} if the server stopped.
+         */
+        @Label("Success")
+        boolean success;
+
+        /**
+         * End the shutdown and commit the event if it is enabled.
+         *
+         * @param outcome {@code true} if the server stopped.
+         * @param detail  Ignored.
+         */
+        @Override
+        public void end(final boolean outcome, final String detail) {
+            end();
+            if (shouldCommit()) {
+                success = outcome;
+                commit();
+            }
+        }
+    }
+
+    /**
+     * Records a client connection to a monitor from when it was accepted until it was closed.
+     */
+    @Name("com.btmatthews.monitor.MonitorConnection")
+    @Label("Monitor Connection")
+    @Category("Monitor")
+    @Description("A client connection accepted by a monitor")
+    static final class MonitorConnectionEvent extends Event implements JfrSupport.Span {
+
+        /**
+         * The monitor key.
+         */
+        @Label("Monitor Key")
+        String monitorKey;
+        /**
+         * The type of request received on the connection.
+         */
+        @Label("Outcome")
+        String outcome;
+        /**
+         * {@code true} if a valid request was received.
+         */
+        @Label("Success")
+        boolean success;
+
+        /**
+         * End the connection and commit the event if it is enabled.
+         *
+         * @param valid  {@code true} if a valid request was received.
+         * @param detail The type of request received on the connection.
+         */
+        @Override
+        public void end(final boolean valid, final String detail) {
+            end();
+            if (shouldCommit()) {
+                success = valid;
+                outcome = detail;
+                commit();
+            }
+        }
+    }
+
+    /**
+     * Records a phase of a server start-up.
+     */
+    @Name("com.btmatthews.monitor.StartupPhase")
+    @Label("Server Startup Phase")
+    @Category({"Monitor", "Startup"})
+    @Description("A phase of a server start-up captured by a monitor with start-up profiling enabled")
+    static final class StartupPhaseEvent extends Event {
+
+        /**
+         * The monitor key.
+         */
+        @Label("Monitor Key")
+        String monitorKey;
+        /**
+         * The phase name.
+         */
+        @Label("Phase")
+        String phase;
+        /**
+         * The time at which the phase started relative to the start of the timeline.
+         */
+        @Label("Offset")
+        @Timespan(Timespan.NANOSECONDS)
+        long offset;
+        /**
+         * The duration of the phase.
+         */
+        @Label("Phase Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long phaseDuration;
+    }
+}
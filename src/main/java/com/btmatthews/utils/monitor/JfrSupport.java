@@ -0,0 +1,191 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+/**
+ * Guards the emission of Java Flight Recorder events. The event classes extend {@code jdk.jfr.Event} which is not
+ * available on all the Java runtimes supported by the monitor so they are only loaded, by name, if the JFR API is
+ * present. They are also missing when the monitor was built on a Java version earlier than 11, in which case no
+ * events are emitted.
+ * <p/>
+ * Timed events are represented by a {@link Span} which is the event itself when JFR is available and a shared no-op
+ * object otherwise. When JFR is available but the event is not enabled in the active recording the cost is the
+ * allocation of the event and a single {@code shouldCommit()} check.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+final class JfrSupport {
+
+    /**
+     * The name of the class that implements {@link Events} using the JFR API.
+     */
+    private static final String EVENTS_CLASS = "com.btmatthews.utils.monitor.JfrEvents";
+    /**
+     * Emits the JFR events or {@code null} if the JFR API is not available.
+     */
+    private static final Events EVENTS = loadEvents();
+    /**
+     * The span returned when the JFR API is not available.
+     */
+    private static final Span NOOP = (success, detail) -> {
+    };
+
+    /**
+     * The constructor is private because this class only provides static helper methods.
+     */
+    private JfrSupport() {
+    }
+
+    /**
+     * Check whether the JFR API is available.
+     *
+     * @return {@code true} if JFR events can be emitted.
+     */
+    static boolean isAvailable() {
+        return EVENTS != null;
+    }
+
+    /**
+     * Emit an event for each phase of a start-up timeline.
+     *
+     * @param timeline The start-up timeline.
+     */
+    static void commitStartup(final StartupTimeline timeline) {
+        if (EVENTS != null) {
+            EVENTS.commitStartup(timeline);
+        }
+    }
+
+    /**
+     * Begin timing the execution of a monitor command.
+     *
+     * @param monitorKey The monitor key.
+     * @param verb       The command verb.
+     * @return The span which must be ended when the command completes.
+     */
+    static Span beginCommand(final String monitorKey, final String verb) {
+        return EVENTS == null ? NOOP : EVENTS.beginCommand(monitorKey, verb);
+    }
+
+    /**
+     * Begin timing a server start-up.
+     *
+     * @param monitorKey The monitor key.
+     * @return The span which must be ended when the server has started or failed to start.
+     */
+    static Span beginServerStart(final String monitorKey) {
+        return EVENTS == null ? NOOP : EVENTS.beginServerStart(monitorKey);
+    }
+
+    /**
+     * Begin timing a server shutdown.
+     *
+     * @param monitorKey The monitor key.
+     * @return The span which must be ended when the server has stopped or failed to stop.
+     */
+    static Span beginServerStop(final String monitorKey) {
+        return EVENTS == null ? NOOP : EVENTS.beginServerStop(monitorKey);
+    }
+
+    /**
+     * Begin timing a client connection to the monitor.
+     *
+     * @param monitorKey The monitor key.
+     * @return The span which must be ended when the connection is closed.
+     */
+    static Span beginConnection(final String monitorKey) {
+        return EVENTS == null ? NOOP : EVENTS.beginConnection(monitorKey);
+    }
+
+    /**
+     * Load the JFR events if the JFR API and the event classes are available.
+     *
+     * @return The JFR events or {@code null} if they are not available.
+     */
+    private static Events loadEvents() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrSupport.class.getClassLoader());
+            return Class.forName(EVENTS_CLASS, true, JfrSupport.class.getClassLoader()).asSubclass(Events.class)
+                    .getDeclaredConstructor().newInstance();
+        } catch (final ReflectiveOperationException | LinkageError | ClassCastException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Emits the JFR events. This is implemented by a class that is loaded by name so that the rest of the monitor
+     * can be compiled and run without the JFR API.
+     */
+    interface Events {
+
+        /**
+         * Emit an event for each phase of a start-up timeline.
+         *
+         * @param timeline The start-up timeline.
+         */
+        void commitStartup(StartupTimeline timeline);
+
+        /**
+         * Begin timing the execution of a monitor command.
+         *
+         * @param monitorKey The monitor key.
+         * @param verb       The command verb.
+         * @return The event.
+         */
+        Span beginCommand(String monitorKey, String verb);
+
+        /**
+         * Begin timing a server start-up.
+         *
+         * @param monitorKey The monitor key.
+         * @return The event.
+         */
+        Span beginServerStart(String monitorKey);
+
+        /**
+         * Begin timing a server shutdown.
+         *
+         * @param monitorKey The monitor key.
+         * @return The event.
+         */
+        Span beginServerStop(String monitorKey);
+
+        /**
+         * Begin timing a client connection to the monitor.
+         *
+         * @param monitorKey The monitor key.
+         * @return The event.
+         */
+        Span beginConnection(String monitorKey);
+    }
+
+    /**
+     * A timed operation that is reported as a JFR event when it ends.
+     */
+    @FunctionalInterface
+    interface Span {
+
+        /**
+         * End the operation and commit the event if it is enabled.
+         *
+         * @param success {@code true} if the operation succeeded.
+         * @param detail  The outcome of the operation or {@code null}.
+         */
+        void end(boolean success, String detail);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Splits the bytes read from a non-blocking channel into lines. Line terminators are either a line feed or a carriage
+ * return followed by a line feed and are not included in the lines.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+final class LineBuffer {
+
+    /**
+     * The character set used to decode the lines.
+     */
+    static final Charset CHARSET = Charset.defaultCharset();
+    /**
+     * The maximum length of a line.
+     */
+    private final int maxLength;
+    /**
+     * If {@code true} lines that exceed the maximum length are split instead of rejected.
+     */
+    private final boolean split;
+    /**
+     * Accumulates the bytes of a partially received line.
+     */
+    private final ByteArrayOutputStream partial = new ByteArrayOutputStream();
+    /**
+     * The complete lines that have not yet been consumed.
+     */
+    private final Queue<String> lines = new ArrayDeque<>();
+
+    /**
+     * Initialise the line buffer.
+     *
+     * @param maxLength The maximum length of a line.
+     */
+    LineBuffer(final int maxLength) {
+        this(maxLength, false);
+    }
+
+    /**
+     * Initialise the line buffer.
+     *
+     * @param maxLength The maximum length of a line.
+     * @param split     If {@code true} lines that exceed the maximum length are split instead of rejected.
+     * @since 3.1.0
+     */
+    LineBuffer(final int maxLength, final boolean split) {
+        this.maxLength = maxLength;
+        this.split = split;
+    }
+
+    /**
+     * Append the remaining bytes in {@code buffer} splitting them into lines.
+     *
+     * @param buffer The buffer that was read from the channel.
+     * @return {@code false} if a line exceeded the maximum line length and long lines are not being split.
+     */
+    boolean append(final ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            final byte b = buffer.get();
+            if (b == '\n') {
+                final String line = new String(partial.toByteArray(), CHARSET);
+                lines.add(line.endsWith("\r") ? line.substring(0, line.length() - 1) : line);
+                partial.reset();
+            } else if (partial.size() < maxLength) {
+                partial.write(b);
+            } else if (split) {
+                lines.add(takePartial());
+                partial.write(b);
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of complete lines that have not yet been consumed.
+     *
+     * @return The number of lines.
+     */
+    int size() {
+        return lines.size();
+    }
+
+    /**
+     * Look at the next complete line without consuming it.
+     *
+     * @return The next line or {@code null} if there are no complete lines.
+     */
+    String peek() {
+        return lines.peek();
+    }
+
+    /**
+     * Consume the next complete line.
+     *
+     * @return The next line or {@code null} if there are no complete lines.
+     */
+    String poll() {
+        return lines.poll();
+    }
+
+    /**
+     * Complete the partially received line, if there is one, when the end of the stream is reached so that a last
+     * line sent without a line terminator is not lost.
+     *
+     * @since 3.1.0
+     */
+    void endOfStream() {
+        if (partial.size() > 0) {
+            lines.add(takePartial());
+        }
+    }
+
+    /**
+     * Consume the bytes of a partially received line. This is used to flush the last line when the end of the
+     * stream is reached.
+     *
+     * @return The partial line which is empty if there is none.
+     * @since 3.1.0
+     */
+    String takePartial() {
+        final String line = new String(partial.toByteArray(), CHARSET);
+        partial.reset();
+        return line;
+    }
+}
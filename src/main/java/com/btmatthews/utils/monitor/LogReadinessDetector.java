@@ -0,0 +1,161 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Detects that a server has started, or failed to start, by scanning its log output for marker strings. The output is
+ * scanned incrementally as it is produced using a {@link MultiPatternMatcher} so the result is known as soon as a
+ * marker has been written, even before the end of the line, and the log is never buffered.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public final class LogReadinessDetector {
+
+    /**
+     * The ready markers followed by the failure markers.
+     */
+    private final List<String> markers = new ArrayList<>();
+    /**
+     * The number of ready markers.
+     */
+    private final int readyCount;
+    /**
+     * The compiled markers.
+     */
+    private final MultiPatternMatcher automaton;
+    /**
+     * Scans the output when there is only a single stream.
+     */
+    private final Scanner scanner;
+    /**
+     * Completed with {@code true} when a ready marker is found or {@code false} when a failure marker is found.
+     */
+    private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+    /**
+     * The marker that was found.
+     */
+    private volatile String matchedMarker;
+
+    /**
+     * Initialise the detector.
+     *
+     * @param readyMarkers   The markers that indicate the server has started.
+     * @param failureMarkers The markers that indicate the server has failed to start.
+     * @param charset        The character set of the output.
+     */
+    public LogReadinessDetector(final Collection<String> readyMarkers, final Collection<String> failureMarkers,
+                                final Charset charset) {
+        markers.addAll(readyMarkers);
+        markers.addAll(failureMarkers);
+        readyCount = readyMarkers.size();
+        final List<byte[]> patterns = new ArrayList<>(markers.size());
+        for (final String marker : markers) {
+            patterns.add(marker.getBytes(charset));
+        }
+        automaton = new MultiPatternMatcher(patterns);
+        scanner = new Scanner();
+    }
+
+    /**
+     * Scan a chunk of output. Chunks must be scanned in the order they were written.
+     *
+     * @param bytes  The buffer holding the output.
+     * @param offset The offset of the chunk.
+     * @param length The length of the chunk.
+     */
+    public void scan(final byte[] bytes, final int offset, final int length) {
+        scanner.scan(bytes, offset, length);
+    }
+
+    /**
+     * Create a scanner for an additional output stream, such as standard error, so that markers are not matched
+     * across interleaved chunks of different streams.
+     *
+     * @return The scanner.
+     */
+    public Scanner newScanner() {
+        return new Scanner();
+    }
+
+    /**
+     * Indicate that the output has ended. If no marker was found the server is deemed to have failed to start.
+     */
+    public void endOfOutput() {
+        result.complete(false);
+    }
+
+    /**
+     * Get the result of the detection.
+     *
+     * @return A future completed with {@code true} when a ready marker is found or {@code false} when a failure
+     * marker is found or the output ends.
+     */
+    public CompletableFuture<Boolean> getResult() {
+        return result;
+    }
+
+    /**
+     * Get the marker that was found.
+     *
+     * @return The marker or {@code null} if no marker has been found.
+     */
+    public String getMatchedMarker() {
+        return matchedMarker;
+    }
+
+    /**
+     * Scans one output stream for the markers.
+     */
+    public final class Scanner {
+
+        /**
+         * The matcher holding the scan state for the stream.
+         */
+        private final MultiPatternMatcher matcher = new MultiPatternMatcher(automaton);
+
+        /**
+         * The constructor is private because scanners are created by {@link #newScanner()}.
+         */
+        private Scanner() {
+        }
+
+        /**
+         * Scan a chunk of output. Chunks must be scanned in the order they were written.
+         *
+         * @param bytes  The buffer holding the output.
+         * @param offset The offset of the chunk.
+         * @param length The length of the chunk.
+         */
+        public synchronized void scan(final byte[] bytes, final int offset, final int length) {
+            if (result.isDone()) {
+                return;
+            }
+            final int index = matcher.feed(bytes, offset, length);
+            if (index >= 0) {
+                matchedMarker = markers.get(index);
+                result.complete(index < readyCount);
+            }
+        }
+    }
+}
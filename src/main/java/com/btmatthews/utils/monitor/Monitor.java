@@ -26,11 +26,28 @@ import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.net.BindException;
-import java.net.ConnectException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.channels.Channels;
+import java.nio.channels.NetworkChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntPredicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -45,7 +62,7 @@ public final class Monitor {
     /**
      * The regex for the configure command.
      */
-    private static final Pattern CONFIGURE_PATTERN = Pattern.compile("configure\\s+(\\w+)=(.*)");
+    static final Pattern CONFIGURE_PATTERN = Pattern.compile("configure\\s+(\\w+)=(.*)");
     /**
      * The default number of times to retry when checking for successful server start
      * or stop.
@@ -60,10 +77,87 @@ public final class Monitor {
      * @since 2.1.0
      */
     private static final int DEFAULT_RETRY_INTERVAL = 500;
+    /**
+     * The number of pending connections the listening socket queues while the monitor is handling a request. This
+     * must be large enough that clients connecting concurrently are not dropped and left to retransmit.
+     *
+     * @since 3.1.0
+     */
+    static final int LISTEN_BACKLOG = 128;
     /**
      * The stop command.
      */
-    private static final String STOP = "stop";
+    static final String STOP = "stop";
+    /**
+     * The command used to register a monitor with a {@link MonitorBroker}.
+     *
+     * @since 3.1.0
+     */
+    static final String REGISTER = "register";
+    /**
+     * The status command.
+     *
+     * @since 3.1.0
+     */
+    private static final String STATUS = "status";
+    /**
+     * The regex for the drain command.
+     *
+     * @since 3.1.0
+     */
+    static final Pattern DRAIN_PATTERN = Pattern.compile("drain(?:\\s+(\\d{1,9}))?");
+    /**
+     * The default deadline in milliseconds for a drain command that does not specify one.
+     *
+     * @since 3.1.0
+     */
+    public static final long DEFAULT_DRAIN_TIMEOUT = 30000L;
+    /**
+     * The interval in milliseconds at which drain progress is reported.
+     *
+     * @since 3.1.0
+     */
+    private static final long DRAIN_POLL_INTERVAL = 100L;
+    /**
+     * The path of the HTTP health endpoint.
+     *
+     * @since 3.1.0
+     */
+    private static final String HEALTH_PATH = "/health";
+    /**
+     * The source recorded in the command journal for commands relayed by a {@link MonitorBroker}.
+     */
+    private static final String BROKER_SOURCE = "broker";
+    /**
+     * The default back-off in milliseconds before the watchdog first restarts a crashed server.
+     *
+     * @since 3.1.0
+     */
+    public static final long DEFAULT_RESTART_BACKOFF = 1000L;
+    /**
+     * The default maximum back-off in milliseconds between restarts.
+     *
+     * @since 3.1.0
+     */
+    public static final long DEFAULT_MAX_RESTART_BACKOFF = 60000L;
+    /**
+     * The default maximum number of restarts allowed within the crash loop window.
+     *
+     * @since 3.1.0
+     */
+    public static final int DEFAULT_CRASH_LOOP_LIMIT = 5;
+    /**
+     * The default crash loop window in milliseconds.
+     *
+     * @since 3.1.0
+     */
+    public static final long DEFAULT_CRASH_LOOP_WINDOW = 600000L;
+    /**
+     * The default time in milliseconds to wait for a {@link ReadinessAwareServer} to signal that it has started.
+     *
+     * @since 3.1.0
+     */
+    public static final long DEFAULT_START_TIMEOUT = 60000L;
     /**
      * The monitor key that must prefix any commands.
      */
@@ -73,222 +167,1750 @@ public final class Monitor {
      */
     private final int monitorPort;
     /**
-     * The number of times to retry when checking for successful server start
-     * or stop.
+     * The path of the Unix domain socket on which the monitor is listening or {@code null} if the monitor is
+     * listening on a TCP port.
+     *
+     * @since 3.1.0
+     */
+    private final Path monitorSocketPath;
+    /**
+     * The number of times to retry when checking for successful server start
+     * or stop.
+     *
+     * @since 2.1.0
+     */
+    private final int retryCount;
+    /**
+     * The interval between retries when checking for successful server start
+     * or stop.
+     *
+     * @since 2.1.0
+     */
+    private final int retryInterval;
+    /**
+     * Used to resolve the addresses used to bind and connect to the monitor when listening on a TCP port.
+     *
+     * @since 3.1.0
+     */
+    private MonitorAddressResolver addressResolver = MonitorAddressResolver.getDefault();
+    /**
+     * The file to which the monitor key and bound port are published or {@code null} if they are not published.
+     *
+     * @since 3.1.0
+     */
+    private Path handoffFile;
+    /**
+     * If {@code true} the monitor registers with a {@link MonitorBroker} instead of listening for commands itself.
+     *
+     * @since 3.1.0
+     */
+    private boolean brokered;
+    /**
+     * The secret presented when registering with a {@link MonitorBroker} or {@code null} if no secret is presented.
+     *
+     * @since 3.1.0
+     */
+    private String registrationSecret;
+    /**
+     * If {@code true} the monitor also answers HTTP {@code GET /health} requests on its listener.
+     *
+     * @since 3.1.0
+     */
+    private boolean healthEndpoint;
+    /**
+     * The interval in milliseconds at which the cached server status is refreshed in the background or zero if the
+     * status is only updated as the server is started and stopped.
+     *
+     * @since 3.1.0
+     */
+    private long statusRefreshInterval;
+    /**
+     * The cached lifecycle state of the server.
+     *
+     * @since 3.1.0
+     */
+    private final AtomicReference<ServerStatus> status = new AtomicReference<>(ServerStatus.INITIAL);
+    /**
+     * The schema used to validate configuration changes sent to a {@link ReconfigurableServer}.
+     *
+     * @since 3.1.0
+     */
+    private ConfigurationSchema configurationSchema = ConfigurationSchema.ANY;
+    /**
+     * The configuration the server was started with.
+     *
+     * @since 3.1.0
+     */
+    private ServerConfiguration initialConfiguration = ServerConfiguration.EMPTY;
+    /**
+     * The window in milliseconds within which configuration changes sent to a {@link ReconfigurableServer} are
+     * coalesced.
+     *
+     * @since 3.1.0
+     */
+    private long reconfigurationWindow;
+    /**
+     * Tracks the effective configuration of a {@link ReconfigurableServer} while it is running.
+     *
+     * @since 3.1.0
+     */
+    private Reconfigurer reconfigurer;
+    /**
+     * The TCP port the monitor is bound to. This differs from {@link #monitorPort} if the monitor was bound to an
+     * ephemeral port.
+     *
+     * @since 3.1.0
+     */
+    private volatile int boundPort;
+    /**
+     * Delivers lifecycle events to the registered listeners.
+     *
+     * @since 3.1.0
+     */
+    private final MonitorEventBus eventBus = new MonitorEventBus(MonitorEventBus.DEFAULT_CAPACITY);
+    /**
+     * If {@code true} the monitor captures a timeline of the server start-up.
+     *
+     * @since 3.1.0
+     */
+    private boolean startupProfiling;
+    /**
+     * The file to which the start-up timeline is written as JSON or {@code null}.
+     *
+     * @since 3.1.0
+     */
+    private Path startupProfileFile;
+    /**
+     * The timeline of the most recent server start-up or {@code null} if start-up profiling is disabled.
+     *
+     * @since 3.1.0
+     */
+    private volatile StartupTimeline startupTimeline;
+    /**
+     * Times the shutdown of the server for Java Flight Recorder once a stop has been requested.
+     *
+     * @since 3.1.0
+     */
+    private JfrSupport.Span stopSpan;
+    /**
+     * The interval in milliseconds at which the watchdog checks the server is still running or zero if the watchdog
+     * is disabled.
+     *
+     * @since 3.1.0
+     */
+    private long watchdogInterval;
+    /**
+     * The back-off in milliseconds before the watchdog first restarts a crashed server.
+     *
+     * @since 3.1.0
+     */
+    private long restartBackoff = DEFAULT_RESTART_BACKOFF;
+    /**
+     * The maximum back-off in milliseconds between restarts.
+     *
+     * @since 3.1.0
+     */
+    private long maxRestartBackoff = DEFAULT_MAX_RESTART_BACKOFF;
+    /**
+     * The maximum number of restarts allowed within the crash loop window.
+     *
+     * @since 3.1.0
+     */
+    private int crashLoopLimit = DEFAULT_CRASH_LOOP_LIMIT;
+    /**
+     * The crash loop window in milliseconds.
+     *
+     * @since 3.1.0
+     */
+    private long crashLoopWindow = DEFAULT_CRASH_LOOP_WINDOW;
+    /**
+     * Supervises the server while the monitor is running or {@code null} if the watchdog is disabled.
+     *
+     * @since 3.1.0
+     */
+    private volatile Watchdog watchdog;
+    /**
+     * The addresses bound on behalf of a {@link SocketActivatedServer} or an empty list if socket activation is
+     * disabled.
+     *
+     * @since 3.1.0
+     */
+    private List<InetSocketAddress> activationAddresses = Collections.emptyList();
+    /**
+     * Waits for the first connection to a socket activated server or {@code null}.
+     *
+     * @since 3.1.0
+     */
+    private volatile SocketActivator activator;
+    /**
+     * The period in milliseconds without activity after which the server is stopped or zero to disable the idle
+     * timeout.
+     *
+     * @since 3.1.0
+     */
+    private long idleTimeout;
+    /**
+     * The file in which received commands are journalled or {@code null} if the journal is disabled.
+     *
+     * @since 3.1.0
+     */
+    private Path journalFile;
+    /**
+     * The number of entries in the command journal ring.
+     *
+     * @since 3.1.0
+     */
+    private int journalCapacity = CommandJournal.DEFAULT_CAPACITY;
+    /**
+     * Records the commands received while the monitor is running or {@code null}.
+     *
+     * @since 3.1.0
+     */
+    private volatile CommandJournal journal;
+    /**
+     * Determines how pending {@code configure} commands are handled when a {@code stop} or {@code drain} command is
+     * received.
+     *
+     * @since 3.1.0
+     */
+    private CommandPolicy commandPolicy = CommandPolicy.COALESCE;
+    /**
+     * The selector used by the command loop so that it can be woken up by background tasks or {@code null} if
+     * commands are received from a {@link MonitorBroker}.
+     *
+     * @since 3.1.0
+     */
+    private volatile Selector commandSelector;
+    /**
+     * The server drain in progress or {@code null}. This is only accessed by the command loop.
+     *
+     * @since 3.1.0
+     */
+    private DrainTask drainTask;
+    /**
+     * The value of {@link System#nanoTime()} when the monitor last saw any activity.
+     *
+     * @since 3.1.0
+     */
+    private volatile long lastActivity = System.nanoTime();
+    /**
+     * Set when the idle timeout has expired so that the command loop stops the server.
+     *
+     * @since 3.1.0
+     */
+    private volatile boolean idleExpired;
+    /**
+     * The time in milliseconds to wait for a {@link ReadinessAwareServer} to signal that it has started.
+     *
+     * @since 3.1.0
+     */
+    private long startTimeout = DEFAULT_START_TIMEOUT;
+    /**
+     * Completed when a server started by {@link #startAsync(Server, Logger, MonitorObserver)} has started or failed
+     * to start.
+     *
+     * @since 3.1.0
+     */
+    private volatile CompletableFuture<Boolean> startResult;
+    /**
+     * Completed when a server started by {@link #startAsync(Server, Logger, MonitorObserver)} has stopped.
+     *
+     * @since 3.1.0
+     */
+    private volatile CompletableFuture<Boolean> stopResult;
+
+    /**
+     * The constructor that initialises the monitor key and port.
+     *
+     * @param key  The monitor key that must prefix any commands.
+     * @param port The port on which the monitor is listening.
+     */
+    public Monitor(final String key, final int port) {
+        this(key, port, DEFAULT_RETRY_COUNT, DEFAULT_RETRY_INTERVAL);
+    }
+
+    /**
+     * The constructor that initialises the monitor key and port.
+     *
+     * @param key      The monitor key that must prefix any commands.
+     * @param port     The port on which the monitor is listening.
+     * @param count    The number of retry counts.
+     * @param interval The intervals between retries.
+     */
+    public Monitor(final String key, final int port, final int count, final int interval) {
+        this(key, port, null, count, interval);
+    }
+
+    /**
+     * The constructor that initialises the monitor key and Unix domain socket path. Unix domain sockets are only
+     * supported on Java 16 or later.
+     *
+     * @param key        The monitor key that must prefix any commands.
+     * @param socketPath The path of the Unix domain socket on which the monitor is listening.
+     * @since 3.1.0
+     */
+    public Monitor(final String key, final Path socketPath) {
+        this(key, socketPath, DEFAULT_RETRY_COUNT, DEFAULT_RETRY_INTERVAL);
+    }
+
+    /**
+     * The constructor that initialises the monitor key and Unix domain socket path. Unix domain sockets are only
+     * supported on Java 16 or later.
+     *
+     * @param key        The monitor key that must prefix any commands.
+     * @param socketPath The path of the Unix domain socket on which the monitor is listening.
+     * @param count      The number of retry counts.
+     * @param interval   The intervals between retries.
+     * @since 3.1.0
+     */
+    public Monitor(final String key, final Path socketPath, final int count, final int interval) {
+        this(key, 0, socketPath, count, interval);
+    }
+
+    /**
+     * The constructor that initialises all the monitor properties.
+     *
+     * @param key        The monitor key that must prefix any commands.
+     * @param port       The port on which the monitor is listening.
+     * @param socketPath The path of the Unix domain socket on which the monitor is listening or {@code null}.
+     * @param count      The number of retry counts.
+     * @param interval   The intervals between retries.
+     */
+    private Monitor(final String key, final int port, final Path socketPath, final int count, final int interval) {
+        monitorKey = key;
+        monitorPort = port;
+        monitorSocketPath = socketPath;
+        retryCount = count;
+        retryInterval = interval;
+    }
+
+    /**
+     * Set the resolver used to obtain the addresses used to bind and connect to the monitor when listening on a TCP
+     * port.
+     *
+     * @param resolver The address resolver.
+     * @since 3.1.0
+     */
+    public void setAddressResolver(final MonitorAddressResolver resolver) {
+        addressResolver = resolver;
+    }
+
+    /**
+     * Set the file to which the monitor key and the port that the monitor is bound to are published. This allows
+     * the monitor to listen on an ephemeral port by specifying a port of {@code 0}. The file is deleted when the
+     * monitor exits.
+     *
+     * @param file The handoff file.
+     * @since 3.1.0
+     */
+    public void setHandoffFile(final Path file) {
+        handoffFile = file;
+    }
+
+    /**
+     * Set whether the monitor registers with a {@link MonitorBroker} listening on the monitor port or Unix domain
+     * socket instead of listening for commands itself. The broker routes commands with the monitor key to this
+     * monitor over a persistent connection.
+     *
+     * @param flag If {@code true} the monitor registers with a broker.
+     * @since 3.1.0
+     */
+    public void setBrokered(final boolean flag) {
+        brokered = flag;
+    }
+
+    /**
+     * Set the secret presented when registering with a {@link MonitorBroker}. It must match the secret configured on
+     * the broker with {@link MonitorBroker#setRegistrationSecret(String)}.
+     *
+     * @param secret The registration secret or {@code null} if no secret is presented.
+     * @since 3.1.0
+     */
+    public void setRegistrationSecret(final String secret) {
+        registrationSecret = secret;
+    }
+
+    /**
+     * Set whether the monitor also answers minimal HTTP {@code GET /health} requests on its listener. The response
+     * is the cached server status rendered as JSON with a {@code 200} status code if the server is healthy or
+     * {@code 503} if it is not.
+     *
+     * @param flag If {@code true} the health endpoint is enabled.
+     * @since 3.1.0
+     */
+    public void setHealthEndpoint(final boolean flag) {
+        healthEndpoint = flag;
+    }
+
+    /**
+     * Set the interval at which the cached server status is refreshed in the background by checking that the
+     * server is still started.
+     *
+     * @param interval The interval in milliseconds or zero to disable the background refresh.
+     * @since 3.1.0
+     */
+    public void setStatusRefreshInterval(final long interval) {
+        statusRefreshInterval = interval;
+    }
+
+    /**
+     * Set the configuration the server was started with and the schema used to validate subsequent changes. These
+     * are only used if the server implements {@link ReconfigurableServer}.
+     *
+     * @param schema        The configuration schema.
+     * @param configuration The initial configuration.
+     * @since 3.1.0
+     */
+    public void setConfiguration(final ConfigurationSchema schema, final ServerConfiguration configuration) {
+        configurationSchema = schema;
+        initialConfiguration = configuration;
+    }
+
+    /**
+     * Set the window within which {@code configure} commands sent to a {@link ReconfigurableServer} are coalesced
+     * into a single change.
+     *
+     * @param window The window in milliseconds or zero to deliver each change immediately.
+     * @since 3.1.0
+     */
+    public void setReconfigurationWindow(final long window) {
+        reconfigurationWindow = window;
+    }
+
+    /**
+     * Enable or disable start-up profiling. When enabled the monitor captures a timeline of the server start-up
+     * which is available from {@link #getStartupTimeline()} and emitted as Java Flight Recorder events if JFR is
+     * available. The logger passed to {@link Server#start(Logger)} also implements {@link PhaseRecorder} so the
+     * server can report its own sub-phases.
+     *
+     * @param flag If {@code true} start-up profiling is enabled.
+     * @since 3.1.0
+     */
+    public void setStartupProfiling(final boolean flag) {
+        startupProfiling = flag;
+    }
+
+    /**
+     * Set the file to which the start-up timeline is written as JSON once the server has started. Setting the file
+     * enables start-up profiling.
+     *
+     * @param file The file or {@code null}.
+     * @since 3.1.0
+     */
+    public void setStartupProfileFile(final Path file) {
+        startupProfileFile = file;
+        if (file != null) {
+            startupProfiling = true;
+        }
+    }
+
+    /**
+     * Get the timeline of the most recent server start-up.
+     *
+     * @return The start-up timeline or {@code null} if start-up profiling is disabled.
+     * @since 3.1.0
+     */
+    public StartupTimeline getStartupTimeline() {
+        return startupTimeline;
+    }
+
+    /**
+     * Set the time to wait for a {@link ReadinessAwareServer} to signal that it has started. Other servers are
+     * polled using the retry count and interval.
+     *
+     * @param timeout The timeout in milliseconds.
+     * @since 3.1.0
+     */
+    public void setStartTimeout(final long timeout) {
+        startTimeout = timeout;
+    }
+
+    /**
+     * Enable socket activation. The monitor binds the addresses itself and only starts the server when the first
+     * connection arrives on one of them, handing the bound listeners to the server. Socket activation only applies
+     * to servers that implement {@link SocketActivatedServer}; other servers are started immediately.
+     *
+     * @param addresses The addresses to bind or an empty list to disable socket activation.
+     * @since 3.1.0
+     */
+    public void setSocketActivation(final List<InetSocketAddress> addresses) {
+        activationAddresses = new ArrayList<>(addresses);
+    }
+
+    /**
+     * Get the addresses bound for socket activation. Once bound these are the actual local addresses so an
+     * ephemeral port can be discovered.
+     *
+     * @return The addresses.
+     * @since 3.1.0
+     */
+    public List<InetSocketAddress> getActivationAddresses() {
+        final SocketActivator current = activator;
+        return current == null ? Collections.unmodifiableList(activationAddresses) : current.getLocalAddresses();
+    }
+
+    /**
+     * Record every command received by the monitor in a memory-mapped journal file that can be read with
+     * {@link CommandJournalReader}.
+     *
+     * @param file     The journal file or {@code null} to disable the journal.
+     * @param capacity The number of entries kept in the journal.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     * @since 3.1.0
+     */
+    public void setCommandJournal(final Path file, final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Command journal capacity must be positive");
+        }
+        journalFile = file;
+        journalCapacity = capacity;
+    }
+
+    /**
+     * Set the policy that determines how pending {@code configure} commands are handled when a {@code stop} or
+     * {@code drain} command is received. The {@code stop} or {@code drain} command always preempts the pending
+     * commands so that shutdown is not delayed by a flood of {@code configure} commands. By default the pending
+     * {@code configure} commands are coalesced and applied first.
+     *
+     * @param policy The command policy.
+     * @since 3.1.0
+     */
+    public void setCommandPolicy(final CommandPolicy policy) {
+        commandPolicy = policy;
+    }
+
+    /**
+     * Set the idle timeout. If the monitor receives no commands or health checks, {@link #touch()} is not called and
+     * a {@link DrainableServer} reports no in-flight work within the idle timeout then the server is stopped. This
+     * reclaims the resources held by a server that was abandoned because the build that started it crashed. Requests
+     * that clients send directly to a server that does not report its in-flight work are not seen by the monitor so
+     * for such servers the idle timeout is measured from the last command, health check or call to {@link #touch()}.
+     *
+     * @param timeout The idle timeout in milliseconds or zero to disable the idle timeout.
+     * @since 3.1.0
+     */
+    public void setIdleTimeout(final long timeout) {
+        idleTimeout = timeout;
+    }
+
+    /**
+     * Record activity that should prevent the idle timeout from stopping the server.
+     *
+     * @since 3.1.0
+     */
+    public void touch() {
+        lastActivity = System.nanoTime();
+    }
+
+    /**
+     * Set the interval at which the watchdog checks that the server is still running after it has started. If the
+     * server has crashed it is restarted and the observer is notified.
+     *
+     * @param interval The interval in milliseconds or zero to disable the watchdog.
+     * @since 3.1.0
+     */
+    public void setWatchdogInterval(final long interval) {
+        watchdogInterval = interval;
+    }
+
+    /**
+     * Set the back-off before the watchdog restarts a crashed server. The back-off doubles with each consecutive
+     * crash up to the maximum.
+     *
+     * @param initial The back-off in milliseconds before the first restart.
+     * @param maximum The maximum back-off in milliseconds.
+     * @since 3.1.0
+     */
+    public void setRestartBackoff(final long initial, final long maximum) {
+        restartBackoff = initial;
+        maxRestartBackoff = maximum;
+    }
+
+    /**
+     * Set the crash loop limit. If the watchdog restarts the server {@code limit} times within {@code window}
+     * milliseconds and it crashes again then the watchdog gives up.
+     *
+     * @param limit  The maximum number of restarts.
+     * @param window The window in milliseconds.
+     * @since 3.1.0
+     */
+    public void setCrashLoopLimit(final int limit, final long window) {
+        crashLoopLimit = limit;
+        crashLoopWindow = window;
+    }
+
+    /**
+     * Register a listener that will receive the lifecycle events raised by this monitor. Events are delivered
+     * asynchronously on a background thread.
+     *
+     * @param listener The listener.
+     * @since 3.1.0
+     */
+    public void addListener(final MonitorListener listener) {
+        eventBus.addListener(listener);
+    }
+
+    /**
+     * Remove a listener that was registered with {@link #addListener(MonitorListener)}.
+     *
+     * @param listener The listener.
+     * @since 3.1.0
+     */
+    public void removeListener(final MonitorListener listener) {
+        eventBus.removeListener(listener);
+    }
+
+    /**
+     * Get the number of lifecycle events that were dropped because the listeners could not keep up.
+     *
+     * @return The number of dropped events.
+     * @since 3.1.0
+     */
+    public long getDroppedEvents() {
+        return eventBus.getDropped();
+    }
+
+    /**
+     * Get the cached lifecycle state of the server controlled by this monitor.
+     *
+     * @return The server status.
+     * @since 3.1.0
+     */
+    public ServerStatus getStatus() {
+        return status.get();
+    }
+
+    /**
+     * Static method used to send a command to a server via a monitor.
+     *
+     * @param key     The monitor key.
+     * @param port    The monitor port.
+     * @param command The command to be sent to the server.
+     * @param logger  Used to log information and error messages.
+     */
+    public static void sendCommand(final String key, final int port, final String command, final Logger logger) {
+        new Monitor(key, port).sendCommand(command, logger);
+    }
+
+    /**
+     * Static method used to send a command to a server via a monitor listening on a Unix domain socket.
+     *
+     * @param key        The monitor key.
+     * @param socketPath The path of the monitor's Unix domain socket.
+     * @param command    The command to be sent to the server.
+     * @param logger     Used to log information and error messages.
+     * @since 3.1.0
+     */
+    public static void sendCommand(final String key, final Path socketPath, final String command, final Logger logger) {
+        new Monitor(key, socketPath).sendCommand(command, logger);
+    }
+
+    /**
+     * Run the monitor listening for commands and sending them to the server.
+     *
+     * @param server   The server being monitored.
+     * @param logger   Used to log error messages.
+     * @param observer Used to handle notifications for server start and stop.
+     */
+    public void runMonitor(final Server server, final Logger logger, final MonitorObserver observer) {
+        startupTimeline = startupProfiling ? new StartupTimeline(monitorKey) : null;
+        journal = openJournal(logger);
+        try {
+            if (brokered) {
+                runBrokeredMonitor(server, logger, observer);
+            } else {
+                runListeningMonitor(server, logger, observer);
+            }
+        } finally {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+        }
+    }
+
+    /**
+     * Run the monitor listening for commands on its own socket and sending them to the server.
+     *
+     * @param server   The server being monitored.
+     * @param logger   Used to log error messages.
+     * @param observer Used to handle notifications for server start and stop.
+     * @since 3.1.0
+     */
+    private void runListeningMonitor(final Server server, final Logger logger, final MonitorObserver observer) {
+        final long bindNanos = System.nanoTime();
+        try (final ServerSocketChannel serverChannel = bindMonitor()) {
+            recordPhase("bind", bindNanos);
+            try {
+                publishHandoff(serverChannel);
+                runServer(server, logger, observer, () -> runMonitorInternal(server, logger, serverChannel));
+            } finally {
+                if (monitorSocketPath != null) {
+                    Files.deleteIfExists(monitorSocketPath);
+                }
+                if (handoffFile != null) {
+                    Files.deleteIfExists(handoffFile);
+                }
+            }
+        } catch (final IOException exception) {
+            logger.logError("Error starting or stopping the monitor", exception);
+            failResults(exception);
+        }
+    }
+
+    /**
+     * Open the command journal if a journal file was specified.
+     *
+     * @param logger Used to log error messages.
+     * @return The command journal or {@code null}.
+     * @since 3.1.0
+     */
+    private CommandJournal openJournal(final Logger logger) {
+        if (journalFile == null) {
+            return null;
+        }
+        try {
+            return CommandJournal.open(journalFile, journalCapacity);
+        } catch (final IOException exception) {
+            logger.logError("Error opening the command journal", exception);
+            return null;
+        }
+    }
+
+    /**
+     * Run the monitor registered with a {@link MonitorBroker} receiving commands from the broker and sending them to
+     * the server.
+     *
+     * @param server   The server being monitored.
+     * @param logger   Used to log error messages.
+     * @param observer Used to handle notifications for server start and stop.
+     * @since 3.1.0
+     */
+    private void runBrokeredMonitor(final Server server, final Logger logger, final MonitorObserver observer) {
+        final long connectNanos = System.nanoTime();
+        try (final SocketChannel brokerChannel = connectMonitor()) {
+            recordPhase("connect", connectNanos);
+            final PrintWriter printWriter = new PrintWriter(new OutputStreamWriter(Channels.newOutputStream(brokerChannel)));
+            printWriter.println(monitorKey);
+            if (registrationSecret == null || registrationSecret.isEmpty()) {
+                printWriter.println(REGISTER);
+            } else {
+                printWriter.println(REGISTER + " " + registrationSecret);
+            }
+            printWriter.flush();
+            runServer(server, logger, observer, () -> runBrokeredMonitorInternal(server, logger, brokerChannel));
+        } catch (final IOException exception) {
+            logger.logError("Error starting or stopping the monitor", exception);
+            failResults(exception);
+        }
+    }
+
+    /**
+     * Start the server and wait for it to start. If the server starts then the observer is notified and the monitor
+     * processes commands until it is told to stop the server.
+     *
+     * @param server      The server being monitored.
+     * @param logger      Used to log error messages.
+     * @param observer    Used to handle notifications for server start and stop.
+     * @param commandLoop Processes commands until the server is stopped.
+     * @since 3.1.0
+     */
+    private void runServer(final Server server, final Logger logger, final MonitorObserver observer,
+                           final Runnable commandLoop) {
+        eventBus.setLogger(logger);
+        final boolean socketActivated = isSocketActivated(server);
+        final boolean started = socketActivated
+                ? bindActivation(server, logger, observer)
+                : startServer(server, logger, observer);
+        if (!started) {
+            completeResult(stopResult, false);
+            return;
+        }
+        if (server instanceof ReconfigurableServer) {
+            reconfigurer = new Reconfigurer((ReconfigurableServer) server, configurationSchema,
+                    initialConfiguration, reconfigurationWindow, logger);
+        }
+        final ScheduledFuture<?> refresher = scheduleStatusRefresh(server, logger);
+        final ScheduledFuture<?> idleTimer = scheduleIdleTimeout(server, logger);
+        if (!socketActivated) {
+            startWatchdog(server, logger, observer);
+        }
+        try {
+            commandLoop.run();
+        } finally {
+            if (refresher != null) {
+                refresher.cancel(false);
+            }
+            if (idleTimer != null) {
+                idleTimer.cancel(false);
+            }
+            deactivate();
+            cancelWatchdog();
+            if (reconfigurer != null) {
+                reconfigurer.cancel();
+                reconfigurer = null;
+            }
+        }
+        final boolean stopped = waitForStop(server, logger);
+        if (stopSpan != null) {
+            stopSpan.end(stopped, null);
+            stopSpan = null;
+        }
+        if (stopped) {
+            status.updateAndGet(current -> current.stopped(System.currentTimeMillis()));
+            fireEvent(MonitorEvent.Type.STOPPED, null);
+            observer.stopped(server, logger);
+        } else {
+            status.updateAndGet(current -> current.failed(System.currentTimeMillis()));
+            fireEvent(MonitorEvent.Type.FAILED, "stop");
+        }
+        completeResult(stopResult, stopped);
+    }
+
+    /**
+     * Start the server and wait for it to start. If the server starts then the observer is notified.
+     *
+     * @param server   The server being monitored.
+     * @param logger   Used to log error messages.
+     * @param observer Used to handle notifications for server start and stop.
+     * @return {@code true} if the server started.
+     * @since 3.1.0
+     */
+    private boolean startServer(final Server server, final Logger logger, final MonitorObserver observer) {
+        status.updateAndGet(current -> current.starting(System.currentTimeMillis()));
+        fireEvent(MonitorEvent.Type.STARTING, null);
+        final StartupTimeline timeline = startupTimeline;
+        final long startNanos = System.nanoTime();
+        final JfrSupport.Span startSpan = JfrSupport.beginServerStart(monitorKey);
+        server.start(timeline == null ? logger : new ProfilingLogger(logger, timeline));
+        recordPhase("start", startNanos);
+        final boolean started = waitForStart(server, logger, timeline);
+        startSpan.end(started, null);
+        if (started) {
+            status.updateAndGet(current -> current.started(System.currentTimeMillis()));
+            completeResult(startResult, true);
+            fireEvent(MonitorEvent.Type.STARTED, null);
+            final long observerNanos = System.nanoTime();
+            observer.started(server, logger);
+            recordPhase("observer", observerNanos);
+            publishStartupTimeline(timeline, logger);
+        } else {
+            status.updateAndGet(current -> current.failed(System.currentTimeMillis()));
+            completeResult(startResult, false);
+            fireEvent(MonitorEvent.Type.FAILED, "start");
+        }
+        return started;
+    }
+
+    /**
+     * Check whether the server should be socket activated.
+     *
+     * @param server The server being monitored.
+     * @return {@code true} if socket activation addresses were specified and the server supports it.
+     * @since 3.1.0
+     */
+    private boolean isSocketActivated(final Server server) {
+        return !activationAddresses.isEmpty() && server instanceof SocketActivatedServer;
+    }
+
+    /**
+     * Bind the service ports of a socket activated server and wait in the background for the first connection.
+     *
+     * @param server   The server being monitored.
+     * @param logger   Used to log error messages.
+     * @param observer Used to handle notifications for server start and stop.
+     * @return {@code true} if the service ports were bound.
+     * @since 3.1.0
+     */
+    private boolean bindActivation(final Server server, final Logger logger, final MonitorObserver observer) {
+        final SocketActivator newActivator = new SocketActivator(activationAddresses,
+                listeners -> activate((SocketActivatedServer) server, logger, observer, listeners), logger);
+        try {
+            newActivator.bind();
+        } catch (final IOException exception) {
+            logger.logError("Error binding the socket activation addresses", exception);
+            status.updateAndGet(current -> current.failed(System.currentTimeMillis()));
+            fireEvent(MonitorEvent.Type.FAILED, "start");
+            completeResult(startResult, false);
+            return false;
+        }
+        activator = newActivator;
+        status.updateAndGet(ServerStatus::waiting);
+        completeResult(startResult, true);
+        newActivator.start(monitorKey);
+        return true;
+    }
+
+    /**
+     * Hand the listeners to a socket activated server and start it. This is called on the activator thread when the
+     * first connection arrives. The monitor may be stopped while the server is being activated so the server is not
+     * started and the watchdog is not left running if that happens.
+     *
+     * @param server    The server being monitored.
+     * @param logger    Used to log error messages.
+     * @param observer  Used to handle notifications for server start and stop.
+     * @param listeners The bound listeners.
+     * @since 3.1.0
+     */
+    private void activate(final SocketActivatedServer server, final Logger logger, final MonitorObserver observer,
+                          final List<ServerSocketChannel> listeners) {
+        if (activator == null) {
+            return;
+        }
+        logger.logInfo("Starting server on first connection");
+        server.activate(listeners, logger);
+        if (startServer(server, logger, observer) && activator != null) {
+            startWatchdog(server, logger, observer);
+            if (activator == null) {
+                cancelWatchdog();
+            }
+        }
+    }
+
+    /**
+     * Stop waiting for the first connection to a socket activated server.
+     *
+     * @return {@code true} if the server was not socket activated or has already been activated.
+     * @since 3.1.0
+     */
+    private boolean deactivate() {
+        final SocketActivator current = activator;
+        if (current == null) {
+            return true;
+        }
+        activator = null;
+        return current.deactivate();
+    }
+
+    /**
+     * Start the watchdog if a watchdog interval was specified.
+     *
+     * @param server   The server being monitored.
+     * @param logger   Used to log error messages.
+     * @param observer Used to handle notifications for server start and stop.
+     * @since 3.1.0
+     */
+    private void startWatchdog(final Server server, final Logger logger, final MonitorObserver observer) {
+        if (watchdogInterval > 0) {
+            final Watchdog newWatchdog = new Watchdog(server, logger, observer, watchdogInterval,
+                    (long) retryCount * retryInterval, restartBackoff, maxRestartBackoff, crashLoopLimit,
+                    crashLoopWindow, status, this::fireEvent);
+            watchdog = newWatchdog;
+            newWatchdog.start();
+        }
+    }
+
+    /**
+     * Complete a future returned by {@link #startAsync(Server, Logger, MonitorObserver)} or
+     * {@link #stopAsync(Logger)} if there is one.
+     *
+     * @param result The future or {@code null}.
+     * @param value  The result.
+     * @since 3.1.0
+     */
+    private static void completeResult(final CompletableFuture<Boolean> result, final boolean value) {
+        if (result != null) {
+            result.complete(value);
+        }
+    }
+
+    /**
+     * Fail the futures returned by {@link #startAsync(Server, Logger, MonitorObserver)} and
+     * {@link #stopAsync(Logger)} if the monitor could not be run.
+     *
+     * @param exception The reason the monitor could not be run.
+     * @since 3.1.0
+     */
+    private void failResults(final IOException exception) {
+        final CompletableFuture<Boolean> start = startResult;
+        if (start != null) {
+            start.completeExceptionally(exception);
+        }
+        final CompletableFuture<Boolean> stop = stopResult;
+        if (stop != null) {
+            stop.completeExceptionally(exception);
+        }
+    }
+
+    /**
+     * Record a phase of the server start-up if start-up profiling is enabled.
+     *
+     * @param name       The phase name.
+     * @param startNanos The value of {@link System#nanoTime()} when the phase started.
+     * @since 3.1.0
+     */
+    private void recordPhase(final String name, final long startNanos) {
+        final StartupTimeline timeline = startupTimeline;
+        if (timeline != null) {
+            timeline.recordPhase(name, startNanos, System.nanoTime());
+        }
+    }
+
+    /**
+     * Emit the start-up timeline as JFR events and write it to the start-up profile file if one was specified.
+     *
+     * @param timeline The start-up timeline or {@code null} if start-up profiling is disabled.
+     * @param logger   Used to log error messages.
+     * @since 3.1.0
+     */
+    private void publishStartupTimeline(final StartupTimeline timeline, final Logger logger) {
+        if (timeline == null) {
+            return;
+        }
+        JfrSupport.commitStartup(timeline);
+        if (startupProfileFile != null) {
+            try {
+                final Path parent = startupProfileFile.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                Files.write(startupProfileFile, timeline.toJson().getBytes(StandardCharsets.UTF_8));
+            } catch (final IOException exception) {
+                logger.logError("Error writing start-up profile", exception);
+            }
+        }
+    }
+
+    /**
+     * Publish a lifecycle event to the registered listeners if there are any.
+     *
+     * @param type   The event type.
+     * @param detail Additional detail or {@code null}.
+     * @since 3.1.0
+     */
+    private void fireEvent(final MonitorEvent.Type type, final String detail) {
+        if (eventBus.hasListeners()) {
+            eventBus.publish(new MonitorEvent(type, monitorKey, detail));
+        }
+    }
+
+    /**
+     * Schedule the background refresh of the cached server status if a refresh interval was specified.
+     *
+     * @param server The server being monitored.
+     * @param logger Used to log error messages.
+     * @return The scheduled refresh task or {@code null} if the background refresh is disabled.
+     * @since 3.1.0
+     */
+    private ScheduledFuture<?> scheduleStatusRefresh(final Server server, final Logger logger) {
+        if (statusRefreshInterval <= 0) {
+            return null;
+        }
+        return MonitorScheduler.getExecutor().scheduleWithFixedDelay(() -> {
+            boolean started;
+            try {
+                started = server.isStarted(logger);
+            } catch (final RuntimeException e) {
+                started = false;
+            }
+            final boolean result = started;
+            final long now = System.currentTimeMillis();
+            status.updateAndGet(current ->
+                    current.getState() == ServerStatus.State.STARTED ? current.checked(now, result) : current);
+        }, statusRefreshInterval, statusRefreshInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedule the checks for the idle timeout if one was specified. In-flight work reported by a
+     * {@link DrainableServer} counts as activity but a failure to get the in-flight count does not, so a server whose
+     * probe keeps failing is still stopped once it has been idle. When the idle timeout expires the command loop is
+     * woken up to stop the server through the normal shutdown path. If commands are received from a
+     * {@link MonitorBroker} a {@code stop} command is sent to the monitor instead and the check is repeated if it
+     * could not be sent.
+     *
+     * @param server The server being monitored.
+     * @param logger Used to log information and error messages.
+     * @return The scheduled check or {@code null} if the idle timeout is disabled.
+     * @since 3.1.0
+     */
+    private ScheduledFuture<?> scheduleIdleTimeout(final Server server, final Logger logger) {
+        if (idleTimeout <= 0) {
+            return null;
+        }
+        touch();
+        idleExpired = false;
+        final long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+        final long interval = Math.max(1L, Math.min(idleTimeout / 4, 1000L));
+        return MonitorScheduler.getExecutor().scheduleWithFixedDelay(() -> {
+            if (idleExpired) {
+                return;
+            }
+            int inFlight = 0;
+            if (server instanceof DrainableServer) {
+                try {
+                    inFlight = ((DrainableServer) server).getInFlightCount(logger);
+                } catch (final RuntimeException e) {
+                    logger.logError("Error getting the in-flight count", e);
+                }
+            }
+            if (inFlight > 0) {
+                touch();
+            } else if (System.nanoTime() - lastActivity >= timeoutNanos) {
+                logger.logInfo("No activity for " + idleTimeout + "ms, stopping idle server");
+                idleExpired = true;
+                final Selector selector = commandSelector;
+                if (selector != null) {
+                    selector.wakeup();
+                } else {
+                    try (final SocketChannel channel = connectMonitor()) {
+                        writeCommand(channel, STOP);
+                    } catch (final IOException exception) {
+                        logger.logError("Error sending command to monitor", exception);
+                        idleExpired = false;
+                    }
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Spawn a thread used to run the monitor as daemon processes. This waits for the server to start or, if the
+     * server is socket activated, for its service ports to be bound.
+     *
+     * @param server   The server.
+     * @param logger   Used to log information and error messages.
+     * @param observer Used to handle notifications for server start and stop.
+     * @return The thread that was spawned to run the monitor.
+     */
+    public Thread runMonitorDaemon(final Server server, final Logger logger, final MonitorObserver observer) {
+        final CompletableFuture<Boolean> bound = isSocketActivated(server) ? new CompletableFuture<>() : null;
+        if (bound != null) {
+            startResult = bound;
+        }
+        final Thread monitorThread = new Thread(() -> Monitor.this.runMonitor(server, logger, observer));
+        monitorThread.setDaemon(true);
+        monitorThread.start();
+        if (bound == null) {
+            waitForStart(server, logger, null);
+        } else {
+            try {
+                bound.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final ExecutionException e) {
+                // The error has been logged by the monitor
+            }
+        }
+        return monitorThread;
+    }
+
+    /**
+     * Run the monitor on a daemon thread without waiting for the server to start. The returned future is completed
+     * from the monitor's timers once the server has started or has failed to start, so the caller does not need to
+     * park a thread for each server it is orchestrating.
      *
-     * @since 2.1.0
+     * @param server   The server.
+     * @param logger   Used to log information and error messages.
+     * @param observer Used to handle notifications for server start and stop.
+     * @return A future completed with {@code true} if the server started, or its service ports were bound if it is
+     * socket activated, or {@code false} if it did not. The future is completed exceptionally if the monitor could
+     * not be run.
+     * @since 3.1.0
      */
-    private final int retryCount;
+    public CompletableFuture<Boolean> startAsync(final Server server, final Logger logger,
+                                                 final MonitorObserver observer) {
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        startResult = result;
+        stopResult = new CompletableFuture<>();
+        final Thread monitorThread = new Thread(() -> Monitor.this.runMonitor(server, logger, observer));
+        monitorThread.setDaemon(true);
+        monitorThread.start();
+        return result;
+    }
+
     /**
-     * The interval between retries when checking for successful server start
-     * or stop.
+     * Send the stop command to the monitor without waiting for the server to stop. If the server was started by
+     * {@link #startAsync(Server, Logger, MonitorObserver)} on this monitor then the returned future is completed
+     * once the server has stopped. Otherwise it is completed once the command has been sent.
      *
-     * @since 2.1.0
+     * @param logger Used to log information and error messages.
+     * @return A future completed with {@code true} if the server stopped or {@code false} if it did not.
+     * @since 3.1.0
      */
-    private final int retryInterval;
+    public CompletableFuture<Boolean> stopAsync(final Logger logger) {
+        final CompletableFuture<Boolean> result = stopResult;
+        return CompletableFuture.runAsync(() -> sendCommand(STOP, logger), MonitorScheduler.getExecutor())
+                .thenCompose(ignored -> result == null ? CompletableFuture.completedFuture(true) : result);
+    }
 
     /**
-     * The constructor that initialises the monitor key and port.
+     * Run the monitor listening for commands at {@code serverChannel} and sending them to the server.
      *
-     * @param key  The monitor key that must prefix any commands.
-     * @param port The port on which the monitor is listening.
+     * @param server        The server being monitored.
+     * @param logger        Used to log error messages.
+     * @param serverChannel The server socket channel on which the monitor is listening.
      */
-    public Monitor(final String key, final int port) {
-        this(key, port, DEFAULT_RETRY_COUNT, DEFAULT_RETRY_INTERVAL);
+    private void runMonitorInternal(final Server server, final Logger logger, final ServerSocketChannel serverChannel) {
+        try (final Selector selector = Selector.open()) {
+            commandSelector = selector;
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+            logger.logInfo("Waiting for command from client");
+            final CommandQueue queue = new CommandQueue(commandPolicy, monitorKey, healthEndpoint);
+            boolean running = true;
+            while (running) {
+                selector.select();
+                final List<ClientConnection> ready = new ArrayList<>();
+                for (final SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        acceptClient(serverChannel, selector, logger);
+                    } else if (key.isReadable()) {
+                        readClient((ClientConnection) key.attachment(), ready, logger);
+                    }
+                }
+                selector.selectedKeys().clear();
+                if (!ready.isEmpty()) {
+                    for (final ClientConnection connection : ready) {
+                        connection.deregister();
+                    }
+                    selector.selectNow();
+                    selector.selectedKeys().clear();
+                    queue.addAll(ready, logger);
+                    for (ClientConnection connection = queue.poll(); connection != null; connection = queue.poll()) {
+                        if (running) {
+                            running = handleRequest(server, connection, logger);
+                            if (running) {
+                                logger.logInfo("Waiting for command from client");
+                            }
+                        } else {
+                            connection.close();
+                        }
+                    }
+                }
+                if (running && idleExpired) {
+                    stopImmediately(server, logger);
+                    running = false;
+                } else if (running && drainTask != null && drainTask.isDone()) {
+                    stopServer(server, logger);
+                    running = false;
+                }
+            }
+            for (final SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof ClientConnection) {
+                    ((ClientConnection) key.attachment()).close();
+                }
+            }
+        } catch (final IOException exception) {
+            logger.logError("Error in the monitor", exception);
+        } finally {
+            commandSelector = null;
+            if (drainTask != null) {
+                drainTask.cancel();
+                drainTask.close();
+                drainTask = null;
+            }
+        }
     }
 
     /**
-     * The constructor that initialises the monitor key and port.
+     * Accept the pending connections from clients and register them with the selector. Accepting all of them at once
+     * means that requests sent at the same time are received together so that the {@link CommandPolicy} can order
+     * them.
      *
-     * @param key      The monitor key that must prefix any commands.
-     * @param port     The port on which the monitor is listening.
-     * @param count    The number of retry counts.
-     * @param interval The intervals between retries.
+     * @param serverChannel The server socket channel on which the monitor is listening.
+     * @param selector      The selector.
+     * @param logger        Used to log error messages.
+     * @since 3.1.0
      */
-    public Monitor(final String key, final int port, final int count, final int interval) {
-        monitorKey = key;
-        monitorPort = port;
-        retryCount = count;
-        retryInterval = interval;
+    private void acceptClient(final ServerSocketChannel serverChannel, final Selector selector, final Logger logger) {
+        try {
+            for (int i = 0; i < LISTEN_BACKLOG; ++i) {
+                final SocketChannel clientChannel = serverChannel.accept();
+                if (clientChannel == null) {
+                    break;
+                }
+                logger.logInfo("Receiving command from client");
+                disableLinger(clientChannel);
+                new ClientConnection(clientChannel, selector, JfrSupport.beginConnection(monitorKey));
+            }
+        } catch (final IOException exception) {
+            logger.logError("Error in the monitor", exception);
+        }
     }
 
     /**
-     * Static method used to send a command to a server via a monitor.
+     * Read the data available from a client adding the connection to {@code ready} if a complete request has been
+     * received.
      *
-     * @param key     The monitor key.
-     * @param port    The monitor port.
-     * @param command The command to be sent to the server.
-     * @param logger  Used to log information and error messages.
+     * @param connection The client connection.
+     * @param ready      The connections with complete requests.
+     * @param logger     Used to log error messages.
+     * @since 3.1.0
      */
-    public static void sendCommand(final String key, final int port, final String command, final Logger logger) {
-        new Monitor(key, port).sendCommand(command, logger);
+    private void readClient(final ClientConnection connection, final List<ClientConnection> ready,
+                            final Logger logger) {
+        try {
+            if (!connection.read()) {
+                logger.logError("Invalid command from client");
+                connection.close();
+            } else if (connection.getRequest(monitorKey, healthEndpoint) != null) {
+                ready.add(connection);
+            }
+        } catch (final IOException exception) {
+            logger.logError("Error in the monitor", exception);
+            connection.close();
+        }
     }
 
     /**
-     * Run the monitor listening for commands and sending them to the server.
+     * Handle a complete request from a client and close the connection.
      *
-     * @param server   The server being monitored.
-     * @param logger   Used to log error messages.
-     * @param observer Used to handle notifications for server start and stop.
+     * @param server     The server being monitored.
+     * @param connection The client connection.
+     * @param logger     Used to log error messages.
+     * @return {@code true} if the monitor should continue running.
+     * @since 3.1.0
      */
-    public void runMonitor(final Server server, final Logger logger, final MonitorObserver observer) {
-        try (final ServerSocket serverSocket = bindMonitor()) {
-            server.start(logger);
-            if (waitForStart(server, logger)) {
-                observer.started(server, logger);
-                runMonitorInternal(server, logger, serverSocket);
-                if (waitForStop(server, logger)) {
-                    observer.stopped(server, logger);
-                }
+    private boolean handleRequest(final Server server, final ClientConnection connection, final Logger logger) {
+        try {
+            final ClientConnection.Request request = connection.getRequest(monitorKey, healthEndpoint);
+            switch (request.getType()) {
+                case INVALID_KEY:
+                    logger.logError("Invalid monitor key");
+                    return true;
+                case HTTP:
+                    touch();
+                    writeHttpResponse(connection.getResponse(), request.getValue());
+                    return true;
+                default:
+                    if (request.getValue() == null) {
+                        return true;
+                    }
+                    final boolean running = executeCommand(server, request.getValue(), describeSource(connection),
+                            logger, connection.getResponse());
+                    if (drainTask != null && !drainTask.isAttached()) {
+                        drainTask.attach(connection);
+                    }
+                    return running;
             }
         } catch (final IOException exception) {
-            logger.logError("Error starting or stopping the monitor", exception);
+            logger.logError("Error in the monitor", exception);
+            return true;
+        } finally {
+            if (drainTask == null || !drainTask.isAttached(connection)) {
+                connection.close();
+            }
         }
     }
 
     /**
-     * Spawn a thread used to run the monitor as daemon processes.
+     * Describe the address of the client that sent a command for the command journal.
      *
-     * @param server   The server.
-     * @param logger   Used to log information and error messages.
-     * @param observer Used to handle notifications for server start and stop.
-     * @return The thread that was spawned to run the monitor.
+     * @param connection The client connection.
+     * @return The client address or {@code null} if the command journal is disabled.
+     * @since 3.1.0
      */
-    public Thread runMonitorDaemon(final Server server, final Logger logger, final MonitorObserver observer) {
-        final Thread monitorThread = new Thread(() -> Monitor.this.runMonitor(server, logger, observer));
-        monitorThread.setDaemon(true);
-        monitorThread.start();
-        waitForStart(server, logger);
-        return monitorThread;
+    private String describeSource(final ClientConnection connection) {
+        if (journal == null) {
+            return null;
+        }
+        try {
+            final Object address = connection.getChannel().getRemoteAddress();
+            final String description = address == null ? "" : address.toString();
+            return description.isEmpty() ? "local" : description;
+        } catch (final IOException e) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * Write the response to a HTTP request. Only the health endpoint is supported which returns the cached server
+     * status.
+     *
+     * @param response The response writer.
+     * @param target   The HTTP request target.
+     * @since 3.1.0
+     */
+    private void writeHttpResponse(final PrintWriter response, final String target) {
+        final String statusLine;
+        final String body;
+        if (HEALTH_PATH.equals(target)) {
+            final ServerStatus currentStatus = status.get();
+            statusLine = currentStatus.isHealthy() ? "200 OK" : "503 Service Unavailable";
+            body = currentStatus.toJson();
+        } else {
+            statusLine = "404 Not Found";
+            body = "{}";
+        }
+        response.print("HTTP/1.1 " + statusLine + "\r\n");
+        response.print("Content-Type: application/json\r\n");
+        response.print("Content-Length: " + body.getBytes(LineBuffer.CHARSET).length + "\r\n");
+        response.print("Connection: close\r\n\r\n");
+        response.print(body);
+        response.flush();
     }
 
     /**
-     * Run the monitor listening for commands at {@code serverSocket} and sending them to the server.
+     * Run the monitor receiving commands from the broker over {@code brokerChannel} and sending them to the server.
+     * If the connection to the broker is lost the server is stopped because it can no longer be controlled.
      *
-     * @param server       The server being monitored.
-     * @param logger       Used to log error messages.
-     * @param serverSocket The server socket on which the monitor is listening.
+     * @param server        The server being monitored.
+     * @param logger        Used to log error messages.
+     * @param brokerChannel The persistent connection to the broker.
+     * @since 3.1.0
      */
-    private void runMonitorInternal(final Server server, final Logger logger, final ServerSocket serverSocket) {
+    private void runBrokeredMonitorInternal(final Server server, final Logger logger, final SocketChannel brokerChannel) {
+        final LineNumberReader lineReader = new LineNumberReader(new InputStreamReader(Channels.newInputStream(brokerChannel)));
+        final PrintWriter response = new PrintWriter(new OutputStreamWriter(Channels.newOutputStream(brokerChannel)));
         boolean running = true;
         while (running) {
-            Socket clientSocket = null;
             try {
-                try {
-                    logger.logInfo("Waiting for command from client");
-                    clientSocket = serverSocket.accept();
-                    logger.logInfo("Receiving command from client");
-                    clientSocket.setSoLinger(false, 0);
-                    final String command = getCommand(clientSocket, logger);
-                    if (command != null) {
-                        running = executeCommand(server, command, logger);
-                    }
-                } finally {
-                    if (clientSocket != null) {
-                        clientSocket.close();
-                    }
+                logger.logInfo("Waiting for command from broker");
+                final String command = lineReader.readLine();
+                if (command == null) {
+                    logger.logError("Lost connection to the monitor broker");
+                    stopServer(server, logger);
+                    running = false;
+                } else {
+                    logger.logInfo("Receiving command from broker");
+                    running = executeCommand(server, command, BROKER_SOURCE, logger, response);
+                    response.println();
+                    response.flush();
                 }
             } catch (final IOException exception) {
-                logger.logError("Error in the monitor", exception);
+                logger.logError("Lost connection to the monitor broker", exception);
+                stopServer(server, logger);
+                running = false;
             }
         }
     }
 
     /**
-     * Read the key and command combination from the client socket connection.
+     * Send a command to the monitor.
      *
-     * @param clientSocket The client socket connection.
-     * @param logger       Used to log error messages.
-     * @return The command that was read from the client socket connection or {@code null} if the key did not match.
-     * @throws IOException If there was an error reading from the client socket connection.
+     * @param command The command.
+     * @param logger  Used to log error messages.
      */
-    private String getCommand(final Socket clientSocket, final Logger logger) throws IOException {
-        final InputStream inputStream = clientSocket.getInputStream();
-        final Reader reader = new InputStreamReader(inputStream);
-        final LineNumberReader lineReader = new LineNumberReader(reader);
-        final String key = lineReader.readLine();
-        if (monitorKey.equals(key)) {
-            return lineReader.readLine();
-        } else {
-            logger.logError("Invalid monitor key");
-            return null;
+    public void sendCommand(final String command, final Logger logger) {
+        logger.logInfo("Sending command \"" + command + "\" to monitor");
+        try (final SocketChannel channel = connectMonitor()) {
+            writeCommand(channel, command);
+        } catch (final IOException exception) {
+            logger.logError("Error sending command to monitor", exception);
         }
     }
 
     /**
-     * Send a command to the monitor.
+     * Send a command to the monitor and wait for the response. Commands such as {@code status} return a response
+     * while other commands return an empty response once they have been executed.
      *
      * @param command The command.
      * @param logger  Used to log error messages.
+     * @return The response or {@code null} if there was an error sending the command.
+     * @since 3.1.0
      */
-    public void sendCommand(final String command, final Logger logger) {
+    public String sendRequest(final String command, final Logger logger) {
         logger.logInfo("Sending command \"" + command + "\" to monitor");
-        try (final Socket socket = connectMonitor()) {
-            socket.setSoLinger(false, 0);
-            final OutputStream outputStream = socket.getOutputStream();
-            final Writer writer = new OutputStreamWriter(outputStream);
-            final PrintWriter printWriter = new PrintWriter(writer);
-            printWriter.println(monitorKey);
-            printWriter.println(command);
-            printWriter.flush();
+        try {
+            return exchange(command);
         } catch (final IOException exception) {
             logger.logError("Error sending command to monitor", exception);
+            return null;
+        }
+    }
+
+    /**
+     * Send a command to the monitor and read the response until the monitor closes the connection. The connection is
+     * closed if the calling thread is interrupted.
+     *
+     * @param command The command.
+     * @return The response.
+     * @throws IOException If there was a problem sending the command or reading the response.
+     * @since 3.1.0
+     */
+    String exchange(final String command) throws IOException {
+        try (final SocketChannel channel = connectMonitor()) {
+            writeCommand(channel, command);
+            final InputStream inputStream = Channels.newInputStream(channel);
+            final Reader reader = new InputStreamReader(inputStream);
+            final LineNumberReader lineReader = new LineNumberReader(reader);
+            final StringBuilder response = new StringBuilder();
+            for (String line = lineReader.readLine(); line != null; line = lineReader.readLine()) {
+                if (response.length() > 0) {
+                    response.append('\n');
+                }
+                response.append(line);
+            }
+            return response.toString();
         }
     }
 
+    /**
+     * Write the monitor key and a command to the connection to the monitor.
+     *
+     * @param channel The connection to the monitor.
+     * @param command The command.
+     * @throws IOException If there was a problem writing the command.
+     * @since 3.1.0
+     */
+    private void writeCommand(final SocketChannel channel, final String command) throws IOException {
+        disableLinger(channel);
+        final OutputStream outputStream = Channels.newOutputStream(channel);
+        final Writer writer = new OutputStreamWriter(outputStream);
+        final PrintWriter printWriter = new PrintWriter(writer);
+        printWriter.println(monitorKey);
+        printWriter.println(command);
+        printWriter.flush();
+    }
+
     /**
      * Execute a command that was sent to the monitor.
      * <p/>
      * The following commands are supported:
      * <ul>
-     * <li>configure name=value - Set the server property {@code name} to {@code value}</li>
+     * <li>configure name=value - Set the server property {@code name} to {@code value}. If the server implements
+     * {@link ReconfigurableServer} the change is coalesced with other changes and only delivered if it changes the
+     * effective configuration</li>
+     * <li>status - Return the cached server status as JSON</li>
+     * <li>drain [timeout] - Drain the server, reporting progress, and then stop it</li>
      * <li>stop - Stop the server</li>
      * </ul>
      *
-     * @param server  The server.
-     * @param command The command.
-     * @param logger  Used to log error messages.
+     * @param server   The server.
+     * @param command  The command.
+     * @param source   Describes where the command came from for the command journal.
+     * @param logger   Used to log error messages.
+     * @param response Used to write the response to the client.
      * @return Indicates whether or not the monitor is should continue running.
      * <ul>
      * <li>{@code true} if the monitor should continue running</li>
      * <li>{@code false} if the monitor should stop</li>
      * </ul>
      */
-    private boolean executeCommand(final Server server, final String command,
-                                   final Logger logger) {
-        final Matcher matcher = CONFIGURE_PATTERN.matcher(command);
-        if (matcher.matches()) {
-            server.configure(matcher.group(1), matcher.group(2), logger);
-        } else if (STOP.equals(command)) {
+    private boolean executeCommand(final Server server, final String command, final String source,
+                                   final Logger logger, final PrintWriter response) {
+        final long receivedAt = System.currentTimeMillis();
+        final long receivedNanos = System.nanoTime();
+        touch();
+        fireEvent(MonitorEvent.Type.COMMAND_RECEIVED, command);
+        final int space = command.indexOf(' ');
+        final String verb = space < 0 ? command : command.substring(0, space);
+        final JfrSupport.Span span = JfrSupport.beginCommand(monitorKey, verb);
+        boolean recognised = true;
+        boolean completed = false;
+        boolean running = true;
+        try {
+            final Matcher matcher = CONFIGURE_PATTERN.matcher(command);
+            final Matcher drainMatcher = DRAIN_PATTERN.matcher(command);
+            if (matcher.matches()) {
+                fireEvent(MonitorEvent.Type.CONFIGURING, matcher.group(1));
+                if (reconfigurer == null) {
+                    server.configure(matcher.group(1), matcher.group(2), logger);
+                } else {
+                    reconfigurer.offer(matcher.group(1), matcher.group(2));
+                }
+            } else if (STATUS.equals(command)) {
+                response.println(status.get().toJson());
+            } else if (STOP.equals(command)) {
+                stopImmediately(server, logger);
+                running = false;
+            } else if (drainMatcher.matches()) {
+                if (drainTask != null) {
+                    response.println("drain already in progress");
+                } else {
+                    if (reconfigurer != null) {
+                        reconfigurer.flush();
+                    }
+                    cancelWatchdog();
+                    final String timeout = drainMatcher.group(1);
+                    final DrainTask task = startDrain(server, logger, response,
+                            timeout == null ? DEFAULT_DRAIN_TIMEOUT : Long.parseLong(timeout));
+                    if (task != null && commandSelector != null) {
+                        drainTask = task;
+                    } else {
+                        awaitDrain(task);
+                        stopServer(server, logger);
+                        running = false;
+                    }
+                }
+            } else {
+                recognised = false;
+            }
+            completed = true;
+            return running;
+        } finally {
+            span.end(recognised, null);
+            final CommandJournal current = journal;
+            if (current != null) {
+                final CommandJournal.Outcome outcome;
+                if (!completed) {
+                    outcome = CommandJournal.Outcome.FAILED;
+                } else if (recognised) {
+                    outcome = CommandJournal.Outcome.OK;
+                } else {
+                    outcome = CommandJournal.Outcome.UNRECOGNISED;
+                }
+                current.record(receivedAt, source, verb, outcome, System.nanoTime() - receivedNanos);
+            }
+        }
+    }
+
+    /**
+     * Start draining a {@link DrainableServer} by asking it to stop accepting new work. The in-flight work is then
+     * polled on the shared scheduler until it has completed or the deadline has passed, writing progress to the
+     * client, so that the monitor can continue to serve requests while the server drains.
+     *
+     * @param server   The server.
+     * @param logger   Used to log error messages.
+     * @param response Used to report progress to the client.
+     * @param timeout  The deadline in milliseconds.
+     * @return The drain task or {@code null} if the server cannot be drained.
+     * @since 3.1.0
+     */
+    private DrainTask startDrain(final Server server, final Logger logger, final PrintWriter response,
+                                 final long timeout) {
+        if (!(server instanceof DrainableServer)) {
+            response.println("drain not supported");
+            response.flush();
+            return null;
+        }
+        final DrainableServer drainableServer = (DrainableServer) server;
+        status.updateAndGet(ServerStatus::draining);
+        fireEvent(MonitorEvent.Type.STOPPING, "drain");
+        drainableServer.beginDrain(logger);
+        final DrainTask task = new DrainTask(drainableServer, logger, response, timeout, () -> {
+            final Selector selector = commandSelector;
+            if (selector != null) {
+                selector.wakeup();
+            }
+        });
+        task.start(DRAIN_POLL_INTERVAL);
+        return task;
+    }
+
+    /**
+     * Wait for a drain task to finish. This is used when commands are received from a {@link MonitorBroker} because
+     * it relays them one at a time so there are no other requests to serve while the server drains.
+     *
+     * @param task The drain task or {@code null} if the server cannot be drained.
+     * @since 3.1.0
+     */
+    private static void awaitDrain(final DrainTask task) {
+        if (task == null) {
+            return;
+        }
+        try {
+            task.await();
+        } catch (final InterruptedException e) {
+            task.cancel();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Apply any pending configuration changes, abandon any drain in progress and ask the server to stop.
+     *
+     * @param server The server.
+     * @param logger Used to log error messages.
+     * @since 3.1.0
+     */
+    private void stopImmediately(final Server server, final Logger logger) {
+        if (reconfigurer != null) {
+            reconfigurer.flush();
+        }
+        if (drainTask != null) {
+            drainTask.cancel();
+        }
+        stopServer(server, logger);
+    }
+
+    /**
+     * Ask the server to stop.
+     *
+     * @param server The server.
+     * @param logger Used to log error messages.
+     * @since 3.1.0
+     */
+    private void stopServer(final Server server, final Logger logger) {
+        final boolean activated = deactivate();
+        cancelWatchdog();
+        status.updateAndGet(ServerStatus::stopping);
+        fireEvent(MonitorEvent.Type.STOPPING, null);
+        stopSpan = JfrSupport.beginServerStop(monitorKey);
+        if (activated) {
             server.stop(logger);
-            return false;
         }
-        return true;
+    }
+
+    /**
+     * Stop the watchdog so that it does not restart a server that is being stopped.
+     *
+     * @since 3.1.0
+     */
+    private void cancelWatchdog() {
+        final Watchdog current = watchdog;
+        if (current != null) {
+            current.cancel();
+            watchdog = null;
+        }
     }
 
     /**
      * Wait for the server to start.
      *
-     * @param server The server being monitored.
-     * @param logger Used to log error messages.
+     * @param server   The server being monitored.
+     * @param logger   Used to log error messages.
+     * @param timeline Used to record the latency of each probe or {@code null}.
      * @return {@code true} if the server has started.
      * @since 2.1.0
      */
-    private boolean waitForStart(final Server server, final Logger logger) {
-        if (server.isStarted(logger)) {
-            return true;
+    private boolean waitForStart(final Server server, final Logger logger, final StartupTimeline timeline) {
+        if (server instanceof ReadinessAwareServer) {
+            final CompletableFuture<Boolean> readiness = ((ReadinessAwareServer) server).getReadiness(logger);
+            if (readiness != null) {
+                return awaitReadiness(readiness, timeline);
+            }
         }
+        return await(poll(probe -> probeStarted(server, logger, timeline, probe)));
+    }
+
+    /**
+     * Wait for a {@link ReadinessAwareServer} to signal that it has started recording the wait in the start-up
+     * timeline.
+     *
+     * @param readiness The future returned by {@link ReadinessAwareServer#getReadiness(Logger)}.
+     * @param timeline  Used to record the wait or {@code null}.
+     * @return {@code true} if the server signalled that it has started within the start timeout.
+     * @since 3.1.0
+     */
+    private boolean awaitReadiness(final CompletableFuture<Boolean> readiness, final StartupTimeline timeline) {
+        final long readyNanos = System.nanoTime();
+        boolean started;
         try {
-            Thread.sleep(retryInterval);
+            started = readiness.get(startTimeout, TimeUnit.MILLISECONDS);
         } catch (final InterruptedException e) {
-            return false;
+            Thread.currentThread().interrupt();
+            started = false;
+        } catch (final ExecutionException | TimeoutException e) {
+            started = false;
         }
-        for (int i = 1; i < retryCount; ++i) {
-            if (server.isStarted(logger)) {
-                return true;
-            }
+        if (timeline != null) {
+            timeline.recordPhase("ready", readyNanos, System.nanoTime());
+        }
+        return started;
+    }
+
+    /**
+     * Check whether the server has started recording the latency of the check in the start-up timeline.
+     *
+     * @param server   The server being monitored.
+     * @param logger   Used to log error messages.
+     * @param timeline Used to record the latency of the probe or {@code null}.
+     * @param probe    The probe number.
+     * @return {@code true} if the server has started.
+     * @since 3.1.0
+     */
+    private boolean probeStarted(final Server server, final Logger logger, final StartupTimeline timeline,
+                                 final int probe) {
+        final long probeNanos = System.nanoTime();
+        final boolean started = server.isStarted(logger);
+        if (timeline != null) {
+            timeline.recordPhase("probe-" + probe, probeNanos, System.nanoTime());
         }
-        return false;
+        return started;
     }
 
     /**
@@ -300,54 +1922,163 @@ public final class Monitor {
      * @since 2.1.0
      */
     private boolean waitForStop(final Server server, final Logger logger) {
-        if (server.isStopped(logger)) {
-            return true;
+        return await(poll(probe -> server.isStopped(logger)));
+    }
+
+    /**
+     * Poll a condition up to the retry count times. The first probe is made on the calling thread and the retries
+     * are scheduled on the shared scheduler at the retry interval, so no thread is parked between probes.
+     *
+     * @param condition Called with the probe number to check the condition.
+     * @return A future completed with {@code true} as soon as the condition is satisfied or {@code false} once the
+     * retries are exhausted.
+     * @since 3.1.0
+     */
+    private CompletableFuture<Boolean> poll(final IntPredicate condition) {
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        poll(condition, 1, result);
+        return result;
+    }
+
+    /**
+     * Make a single probe of a condition and schedule the next one if it was not satisfied.
+     *
+     * @param condition Called with the probe number to check the condition.
+     * @param probe     The probe number.
+     * @param result    Completed when the condition is satisfied or the retries are exhausted.
+     * @since 3.1.0
+     */
+    private void poll(final IntPredicate condition, final int probe, final CompletableFuture<Boolean> result) {
+        if (result.isDone()) {
+            return;
         }
-        for (int i = 1; i < retryCount; ++i) {
-            try {
-                Thread.sleep(retryInterval);
-            } catch (final InterruptedException e) {
-                return false;
+        try {
+            if (condition.test(probe)) {
+                result.complete(true);
+            } else if (probe >= retryCount) {
+                result.complete(false);
+            } else {
+                MonitorScheduler.getExecutor().schedule(() -> poll(condition, probe + 1, result),
+                        retryInterval, TimeUnit.MILLISECONDS);
+            }
+        } catch (final RuntimeException exception) {
+            result.completeExceptionally(exception);
+        }
+    }
+
+    /**
+     * Wait for the result of polling a condition.
+     *
+     * @param result The future returned by {@link #poll(IntPredicate)}.
+     * @return The result or {@code false} if the calling thread was interrupted.
+     * @since 3.1.0
+     */
+    private static boolean await(final CompletableFuture<Boolean> result) {
+        try {
+            return result.get();
+        } catch (final InterruptedException e) {
+            result.cancel(false);
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
             }
-            if (server.isStopped(logger)) {
-                return true;
+            if (cause instanceof Error) {
+                throw (Error) cause;
             }
+            throw new IllegalStateException(cause);
         }
-        return false;
     }
 
     /**
-     * Bind to the monitor first attempting to use {@link java.net.InetAddress#getLocalHost()} then falling
-     * back to using the loopback address if there is a security exception.
+     * Bind to the monitor. If a Unix domain socket path was specified then bind to that. Otherwise, attempt each of
+     * the candidate addresses obtained from the {@link MonitorAddressResolver} in turn. These are the cached
+     * {@link java.net.InetAddress#getLocalHost()} address followed by the loopback address.
      *
-     * @return The bound server socket.
+     * @return The bound server socket channel.
      * @throws IOException If there was a problem binding to the server socket.
      * @since 2.1.2
      */
-    private ServerSocket bindMonitor() throws IOException {
-        final ServerSocket serverSocket = new ServerSocket();
-        serverSocket.setReuseAddress(true);
+    private ServerSocketChannel bindMonitor() throws IOException {
+        if (monitorSocketPath != null) {
+            return UnixDomainSockets.bind(monitorSocketPath);
+        }
+        BindException failure = null;
+        for (final InetAddress address : addressResolver.resolve()) {
+            try {
+                return bindMonitor(new InetSocketAddress(address, monitorPort));
+            } catch (final BindException e) {
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Record the port that the monitor is bound to and publish it with the monitor key if a handoff file was
+     * specified.
+     *
+     * @param serverChannel The bound server socket channel.
+     * @throws IOException If there was a problem writing the handoff file.
+     * @since 3.1.0
+     */
+    private void publishHandoff(final ServerSocketChannel serverChannel) throws IOException {
+        if (serverChannel.getLocalAddress() instanceof InetSocketAddress) {
+            final InetSocketAddress address = (InetSocketAddress) serverChannel.getLocalAddress();
+            boundPort = address.getPort();
+            if (handoffFile != null) {
+                new MonitorHandoff(monitorKey, boundPort).write(handoffFile);
+            }
+        }
+    }
+
+    /**
+     * Bind a server socket channel to a TCP address.
+     *
+     * @param address The address and port.
+     * @return The bound server socket channel.
+     * @throws IOException If there was a problem binding to the server socket.
+     * @since 3.1.0
+     */
+    private ServerSocketChannel bindMonitor(final InetSocketAddress address) throws IOException {
+        final ServerSocketChannel serverChannel = ServerSocketChannel.open();
         try {
-            serverSocket.bind(new InetSocketAddress(InetAddress.getLocalHost(), monitorPort), 1);
-        } catch (final BindException e) {
-            serverSocket.bind(new InetSocketAddress("localhost", monitorPort), 1);
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            serverChannel.bind(address, LISTEN_BACKLOG);
+        } catch (final IOException e) {
+            serverChannel.close();
+            throw e;
         }
-        return serverSocket;
+        return serverChannel;
     }
 
     /**
-     * Connect to the monitor first attempting to use {@link java.net.InetAddress#getLocalHost()} then falling
-     * back to using the loopback address if there is a security exception.
+     * Connect to the monitor. If a Unix domain socket path was specified then connect to that. Otherwise, the
+     * {@link MonitorAddressResolver} attempts to connect to the candidate addresses in parallel.
      *
-     * @return The connected  socket.
+     * @return The connected socket channel.
      * @throws IOException If there was a problem connecting to the socket.
      * @since 2.1.2
      */
-    private Socket connectMonitor() throws IOException {
-        try {
-            return new Socket(InetAddress.getLocalHost(), monitorPort);
-        } catch (final ConnectException e) {
-            return new Socket("localhost", monitorPort);
+    private SocketChannel connectMonitor() throws IOException {
+        if (monitorSocketPath != null) {
+            return UnixDomainSockets.connect(monitorSocketPath);
+        }
+        return addressResolver.connect(monitorPort == 0 ? boundPort : monitorPort);
+    }
+
+    /**
+     * Disable {@code SO_LINGER} on a channel if the option is supported by the transport.
+     *
+     * @param channel The socket channel.
+     * @throws IOException If there was a problem setting the socket option.
+     * @since 3.1.0
+     */
+    private static void disableLinger(final NetworkChannel channel) throws IOException {
+        if (channel.supportedOptions().contains(StandardSocketOptions.SO_LINGER)) {
+            channel.setOption(StandardSocketOptions.SO_LINGER, -1);
         }
     }
 }
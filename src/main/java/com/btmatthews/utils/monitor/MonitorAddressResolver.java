@@ -0,0 +1,263 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the addresses used to bind and connect to a monitor listening on a TCP port. The result of
+ * {@link InetAddress#getLocalHost()} can take several seconds to obtain on hosts with broken reverse DNS so it is
+ * cached and shared by all resolvers in the JVM. The resolver can also be pinned to the loopback address, in which case
+ * no lookup is performed at all.
+ * <p/>
+ * When connecting, the candidate addresses are tried in parallel in the style of the happy eyeballs algorithm: each
+ * candidate is given a short head start before the next is attempted and the first to connect is used.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public final class MonitorAddressResolver {
+
+    /**
+     * The default time in milliseconds for which the local host address is cached.
+     */
+    public static final long DEFAULT_TTL = 60000L;
+    /**
+     * The head start in milliseconds given to a connection attempt before the next candidate is attempted.
+     */
+    private static final long ATTEMPT_DELAY = 250L;
+    /**
+     * The time in milliseconds allowed for a connection to be established.
+     */
+    private static final long CONNECT_TIMEOUT = 10000L;
+    /**
+     * The resolver used by monitors that have not been explicitly configured.
+     */
+    private static final MonitorAddressResolver DEFAULT_RESOLVER = new MonitorAddressResolver(DEFAULT_TTL, false);
+    /**
+     * The candidate addresses when only the loopback address is used.
+     */
+    private static final List<InetAddress> LOOPBACK_CANDIDATES =
+            Collections.singletonList(InetAddress.getLoopbackAddress());
+    /**
+     * The candidate addresses derived from the most recent lookup of the local host address shared by all resolvers.
+     */
+    private static volatile CachedCandidates localHost;
+    /**
+     * The time in milliseconds for which the local host address is cached.
+     */
+    private final long ttl;
+    /**
+     * If {@code true} only the loopback address is used.
+     */
+    private final boolean loopback;
+
+    /**
+     * The constructor that initialises the cache time to live and whether the resolver is pinned to the loopback
+     * address.
+     *
+     * @param ttl      The time in milliseconds for which the local host address is cached. A value of zero or less
+     *                 disables caching.
+     * @param loopback If {@code true} only the loopback address is used.
+     */
+    public MonitorAddressResolver(final long ttl, final boolean loopback) {
+        this.ttl = ttl;
+        this.loopback = loopback;
+    }
+
+    /**
+     * Get the resolver used by monitors that have not been explicitly configured.
+     *
+     * @return The default resolver.
+     */
+    public static MonitorAddressResolver getDefault() {
+        return DEFAULT_RESOLVER;
+    }
+
+    /**
+     * Get the candidate addresses for the monitor in order of preference. This is the local host address, if it could
+     * be resolved and the resolver is not pinned to the loopback address, followed by the loopback address. The
+     * same unmodifiable list is returned until the cached local host address expires.
+     *
+     * @return The candidate addresses.
+     */
+    public List<InetAddress> resolve() {
+        if (loopback) {
+            return LOOPBACK_CANDIDATES;
+        }
+        final long now = System.nanoTime();
+        final CachedCandidates cached = localHost;
+        if (cached != null && now - cached.getResolvedAt() < TimeUnit.MILLISECONDS.toNanos(ttl)) {
+            return cached.getCandidates();
+        }
+        final List<InetAddress> candidates = lookupCandidates();
+        localHost = new CachedCandidates(candidates, now);
+        return candidates;
+    }
+
+    /**
+     * Connect to a monitor listening on {@code port}. The candidate addresses are attempted in parallel with the
+     * preferred addresses given a head start. The attempts are abandoned if no connection is established within
+     * ten seconds.
+     *
+     * @param port The monitor port.
+     * @return The connected socket channel in blocking mode.
+     * @throws IOException If a connection could not be established to any of the candidate addresses.
+     */
+    public SocketChannel connect(final int port) throws IOException {
+        final List<InetAddress> candidates = resolve();
+        final List<SocketChannel> pending = new ArrayList<>(candidates.size());
+        try (final Selector selector = Selector.open()) {
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CONNECT_TIMEOUT);
+            IOException failure = null;
+            long nextAttempt = 0L;
+            int next = 0;
+            while (true) {
+                final long now = System.nanoTime();
+                if (next < candidates.size() && (pending.isEmpty() || now - nextAttempt >= 0)) {
+                    final SocketChannel channel = SocketChannel.open();
+                    try {
+                        channel.configureBlocking(false);
+                        if (channel.connect(new InetSocketAddress(candidates.get(next), port))) {
+                            channel.configureBlocking(true);
+                            return channel;
+                        }
+                        channel.register(selector, SelectionKey.OP_CONNECT);
+                        pending.add(channel);
+                    } catch (final IOException e) {
+                        failure = e;
+                        channel.close();
+                    }
+                    nextAttempt = now + TimeUnit.MILLISECONDS.toNanos(ATTEMPT_DELAY);
+                    ++next;
+                    continue;
+                }
+                if (pending.isEmpty()) {
+                    throw failure == null ? new ConnectException("Unable to connect to monitor") : failure;
+                }
+                if (now - deadline >= 0) {
+                    throw new SocketTimeoutException("Timed out connecting to monitor");
+                }
+                final long wait = next < candidates.size()
+                        ? Math.min(nextAttempt - now, deadline - now)
+                        : deadline - now;
+                selector.select(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(wait)));
+                for (final SelectionKey key : selector.selectedKeys()) {
+                    final SocketChannel channel = (SocketChannel) key.channel();
+                    try {
+                        if (channel.finishConnect()) {
+                            key.cancel();
+                            selector.selectNow();
+                            pending.remove(channel);
+                            channel.configureBlocking(true);
+                            return channel;
+                        }
+                    } catch (final IOException e) {
+                        failure = e;
+                        key.cancel();
+                        pending.remove(channel);
+                        channel.close();
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } finally {
+            for (final SocketChannel channel : pending) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Look up the local host address and derive the candidate addresses from it. A failed lookup leaves only the
+     * loopback address and is cached like a successful one so that it is not repeated on every call.
+     *
+     * @return The candidate addresses.
+     */
+    private static List<InetAddress> lookupCandidates() {
+        final InetAddress localHostAddress;
+        try {
+            localHostAddress = InetAddress.getLocalHost();
+        } catch (final UnknownHostException e) {
+            return LOOPBACK_CANDIDATES;
+        }
+        final InetAddress loopbackAddress = InetAddress.getLoopbackAddress();
+        if (localHostAddress.equals(loopbackAddress)) {
+            return LOOPBACK_CANDIDATES;
+        }
+        final List<InetAddress> candidates = new ArrayList<>(2);
+        candidates.add(localHostAddress);
+        candidates.add(loopbackAddress);
+        return Collections.unmodifiableList(candidates);
+    }
+
+    /**
+     * Holds the candidate addresses and the time at which the local host address was looked up.
+     */
+    private static final class CachedCandidates {
+
+        /**
+         * The candidate addresses.
+         */
+        private final List<InetAddress> candidates;
+        /**
+         * The value of {@link System#nanoTime()} when the local host address was looked up.
+         */
+        private final long resolvedAt;
+
+        /**
+         * Initialise the cache entry.
+         *
+         * @param candidates The candidate addresses.
+         * @param resolvedAt The value of {@link System#nanoTime()} when the local host address was looked up.
+         */
+        CachedCandidates(final List<InetAddress> candidates, final long resolvedAt) {
+            this.candidates = candidates;
+            this.resolvedAt = resolvedAt;
+        }
+
+        /**
+         * Get the candidate addresses.
+         *
+         * @return The candidate addresses.
+         */
+        List<InetAddress> getCandidates() {
+            return candidates;
+        }
+
+        /**
+         * Get the time at which the local host address was looked up.
+         *
+         * @return The value of {@link System#nanoTime()}.
+         */
+        long getResolvedAt() {
+            return resolvedAt;
+        }
+    }
+}
@@ -0,0 +1,597 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * A lightweight broker that listens for monitor commands on behalf of many monitors. Each {@link Monitor} that has
+ * been configured to use the broker registers itself with its monitor key over a persistent connection. Clients send
+ * commands to the broker exactly as they would to a monitor and the broker routes each command to the monitor
+ * registered with the matching key. The response written by the monitor, terminated by an empty line, is relayed back
+ * to the client before the client connection is closed.
+ * <p/>
+ * The broker runs on a single thread using non-blocking I/O so the sockets and threads used on a host no longer grow
+ * with the number of servers being monitored.
+ * <p/>
+ * Commands are not authenticated. Any client that can connect to the broker can send commands to the registered
+ * monitors, just as it could to a monitor listening for commands itself, so the broker must only be reachable by
+ * trusted clients. Unless a registration secret has been set with {@link #setRegistrationSecret(String)} any such
+ * client can also register a monitor for a key that is not yet registered. When a secret has been set a monitor must
+ * present the same secret, using {@link Monitor#setRegistrationSecret(String)}, before it is registered.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public final class MonitorBroker {
+
+    /**
+     * The maximum length of a command line accepted from a client.
+     */
+    private static final int MAX_LINE_LENGTH = 8192;
+    /**
+     * The environment variable from which the registration secret is read when the broker is run from the command
+     * line.
+     */
+    private static final String SECRET_VARIABLE = "MONITOR_BROKER_SECRET";
+    /**
+     * The port on which the broker is listening.
+     */
+    private final int brokerPort;
+    /**
+     * The path of the Unix domain socket on which the broker is listening or {@code null}.
+     */
+    private final Path brokerSocketPath;
+    /**
+     * The connections from registered monitors keyed by monitor key.
+     */
+    private final Map<String, Connection> registrations = new HashMap<>();
+    /**
+     * The server socket channel on which the broker is listening.
+     */
+    private ServerSocketChannel serverChannel;
+    /**
+     * The selector used to multiplex the connections.
+     */
+    private Selector selector;
+    /**
+     * Cleared to indicate that the broker should stop.
+     */
+    private volatile boolean running = true;
+    /**
+     * The secret that monitors must present to register or {@code null} if registration is not authenticated.
+     */
+    private byte[] registrationSecret;
+
+    /**
+     * The constructor that initialises the broker port.
+     *
+     * @param port The port on which the broker is listening.
+     */
+    public MonitorBroker(final int port) {
+        brokerPort = port;
+        brokerSocketPath = null;
+    }
+
+    /**
+     * The constructor that initialises the path of the broker's Unix domain socket. Unix domain sockets are only
+     * supported on Java 16 or later.
+     *
+     * @param socketPath The path of the Unix domain socket on which the broker is listening.
+     */
+    public MonitorBroker(final Path socketPath) {
+        brokerPort = 0;
+        brokerSocketPath = socketPath;
+    }
+
+    /**
+     * Run a broker from the command line. The only argument is either the port number or the path of a Unix domain
+     * socket. The registration secret is read from the {@code MONITOR_BROKER_SECRET} environment variable if it is
+     * set.
+     *
+     * @param args The command line arguments.
+     */
+    public static void main(final String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: MonitorBroker <port>|<socketPath>");
+            return;
+        }
+        final MonitorBroker broker;
+        if (args[0].matches("\\d+")) {
+            broker = new MonitorBroker(Integer.parseInt(args[0]));
+        } else {
+            broker = new MonitorBroker(Paths.get(args[0]));
+        }
+        broker.setRegistrationSecret(System.getenv(SECRET_VARIABLE));
+        broker.run(new ConsoleLogger());
+    }
+
+    /**
+     * Set the secret that monitors must present when they register. This must be set before the broker is run.
+     *
+     * @param secret The registration secret or {@code null} if registration is not authenticated.
+     */
+    public void setRegistrationSecret(final String secret) {
+        if (secret == null || secret.isEmpty()) {
+            registrationSecret = null;
+        } else {
+            registrationSecret = secret.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Bind the broker and route commands until the broker is stopped.
+     *
+     * @param logger Used to log information and error messages.
+     */
+    public void run(final Logger logger) {
+        try {
+            if (serverChannel == null) {
+                bind();
+            }
+            runInternal(logger);
+        } catch (final IOException exception) {
+            logger.logError("Error in the monitor broker", exception);
+        } finally {
+            close(logger);
+        }
+    }
+
+    /**
+     * Bind the broker and then spawn a thread used to route commands as a daemon.
+     *
+     * @param logger Used to log information and error messages.
+     * @return The thread that was spawned to run the broker.
+     * @throws IOException If there was a problem binding the broker.
+     */
+    public Thread runDaemon(final Logger logger) throws IOException {
+        bind();
+        final Thread brokerThread = new Thread(() -> MonitorBroker.this.run(logger));
+        brokerThread.setDaemon(true);
+        brokerThread.start();
+        return brokerThread;
+    }
+
+    /**
+     * Signal the broker to stop. The connections to registered monitors are closed which causes them to stop their
+     * servers.
+     */
+    public void stop() {
+        running = false;
+        final Selector currentSelector = selector;
+        if (currentSelector != null) {
+            currentSelector.wakeup();
+        }
+    }
+
+    /**
+     * Get the port on which the broker is listening. This is useful when the broker was bound to an ephemeral port.
+     *
+     * @return The bound port or {@code 0} if the broker is not listening on a TCP port.
+     * @throws IOException If there was a problem getting the bound port.
+     */
+    public int getLocalPort() throws IOException {
+        if (serverChannel != null && serverChannel.getLocalAddress() instanceof InetSocketAddress) {
+            return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+        }
+        return 0;
+    }
+
+    /**
+     * Bind the server socket channel and open the selector.
+     *
+     * @throws IOException If there was a problem binding the broker.
+     */
+    private void bind() throws IOException {
+        if (brokerSocketPath != null) {
+            serverChannel = UnixDomainSockets.bind(brokerSocketPath);
+        } else {
+            serverChannel = bindTcp();
+        }
+        serverChannel.configureBlocking(false);
+        selector = Selector.open();
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Bind to the candidate addresses obtained from the default {@link MonitorAddressResolver} in turn.
+     *
+     * @return The bound server socket channel.
+     * @throws IOException If there was a problem binding the broker.
+     */
+    private ServerSocketChannel bindTcp() throws IOException {
+        BindException failure = null;
+        for (final InetAddress address : MonitorAddressResolver.getDefault().resolve()) {
+            final ServerSocketChannel channel = ServerSocketChannel.open();
+            try {
+                channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+                channel.bind(new InetSocketAddress(address, brokerPort));
+                return channel;
+            } catch (final BindException e) {
+                failure = e;
+                channel.close();
+            } catch (final IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Accept connections and route commands until the broker is stopped.
+     *
+     * @param logger Used to log information and error messages.
+     * @throws IOException If there was a problem with the selector.
+     */
+    private void runInternal(final Logger logger) throws IOException {
+        logger.logInfo("Monitor broker waiting for commands");
+        while (running) {
+            selector.select();
+            for (final SelectionKey key : selector.selectedKeys()) {
+                if (!key.isValid()) {
+                    continue;
+                }
+                if (key.isAcceptable()) {
+                    accept();
+                } else {
+                    final Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            connection.read(logger);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush(logger);
+                        }
+                    } catch (final IOException exception) {
+                        logger.logError("Error in the monitor broker", exception);
+                        connection.close(logger);
+                    }
+                }
+            }
+            selector.selectedKeys().clear();
+        }
+    }
+
+    /**
+     * Accept a pending connection.
+     *
+     * @throws IOException If there was a problem accepting the connection.
+     */
+    private void accept() throws IOException {
+        final SocketChannel channel = serverChannel.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            final SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(channel, key));
+        }
+    }
+
+    /**
+     * Close the selector, server socket channel and all open connections.
+     *
+     * @param logger Used to log error messages.
+     */
+    private void close(final Logger logger) {
+        try {
+            if (selector != null) {
+                for (final SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+                selector.close();
+            }
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+            if (brokerSocketPath != null) {
+                Files.deleteIfExists(brokerSocketPath);
+            }
+        } catch (final IOException exception) {
+            logger.logError("Error closing the monitor broker", exception);
+        }
+        registrations.clear();
+    }
+
+    /**
+     * Holds the state of a connection from a client or registered monitor.
+     */
+    private final class Connection {
+
+        /**
+         * The socket channel.
+         */
+        private final SocketChannel channel;
+        /**
+         * The selection key for the socket channel.
+         */
+        private final SelectionKey key;
+        /**
+         * Buffer used to read from the socket channel.
+         */
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(1024);
+        /**
+         * The complete lines that have been received.
+         */
+        private final LineBuffer lines = new LineBuffer(MAX_LINE_LENGTH);
+        /**
+         * The buffers waiting to be written to the socket channel.
+         */
+        private final Queue<ByteBuffer> writeQueue = new ArrayDeque<>();
+        /**
+         * The clients waiting for a response from the registered monitor in the order their commands were routed.
+         */
+        private final Queue<Connection> waiting = new ArrayDeque<>();
+        /**
+         * Accumulates the response currently being received from the registered monitor.
+         */
+        private final StringBuilder response = new StringBuilder();
+        /**
+         * The key the monitor registered with or {@code null} if this is not a registered monitor.
+         */
+        private String registeredKey;
+        /**
+         * Set when the connection should be closed once the queued data has been written.
+         */
+        private boolean closeAfterFlush;
+
+        /**
+         * Initialise the connection state.
+         *
+         * @param channel The socket channel.
+         * @param key     The selection key for the socket channel.
+         */
+        Connection(final SocketChannel channel, final SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        /**
+         * Read the available data from the socket channel and process any complete lines.
+         *
+         * @param logger Used to log information and error messages.
+         * @throws IOException If there was a problem reading from the socket channel.
+         */
+        void read(final Logger logger) throws IOException {
+            readBuffer.clear();
+            final int count = channel.read(readBuffer);
+            readBuffer.flip();
+            if (!lines.append(readBuffer)) {
+                logger.logError("Command too long");
+                close(logger);
+                return;
+            }
+            if (registeredKey != null) {
+                relay(logger);
+            } else if (lines.size() >= 2) {
+                route(logger);
+            }
+            if (count < 0 && channel.isOpen()) {
+                close(logger);
+            }
+        }
+
+        /**
+         * Route the command received from a client to the registered monitor or register the monitor if this is a
+         * registration request. A registration that does not present the registration secret, if one has been set,
+         * or for a key that is already held by a live connection is rejected by closing the new connection.
+         *
+         * @param logger Used to log information and error messages.
+         */
+        private void route(final Logger logger) {
+            final String monitorKey = lines.poll();
+            final String command = lines.poll();
+            if (Monitor.REGISTER.equals(command) || command.startsWith(Monitor.REGISTER + " ")) {
+                if (!isAuthorised(command.substring(Monitor.REGISTER.length()).trim())) {
+                    logger.logError("Invalid registration secret");
+                    close(logger);
+                    return;
+                }
+                final Connection previous = registrations.get(monitorKey);
+                if (previous != null) {
+                    if (previous.channel.isOpen()) {
+                        logger.logError("Monitor key already registered");
+                        close(logger);
+                        return;
+                    }
+                    logger.logError("Replacing closed registration for monitor");
+                    previous.close(logger);
+                }
+                registrations.put(monitorKey, this);
+                registeredKey = monitorKey;
+                logger.logInfo("Registered monitor");
+            } else {
+                final Connection target = registrations.get(monitorKey);
+                if (target == null) {
+                    logger.logError("Invalid monitor key");
+                    close(logger);
+                } else {
+                    try {
+                        target.waiting.add(this);
+                        target.send(command + "\n", logger);
+                    } catch (final IOException exception) {
+                        logger.logError("Error routing command to monitor", exception);
+                        target.close(logger);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Check the secret presented by a monitor that is registering. The comparison takes the same time wherever
+         * the secrets differ.
+         *
+         * @param secret The secret presented by the monitor.
+         * @return {@code true} if no registration secret has been set or the secret matches.
+         */
+        private boolean isAuthorised(final String secret) {
+            return registrationSecret == null
+                    || MessageDigest.isEqual(registrationSecret, secret.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Relay each complete response received from the registered monitor to the client that is waiting for it.
+         *
+         * @param logger Used to log error messages.
+         */
+        private void relay(final Logger logger) {
+            for (String text = lines.poll(); text != null; text = lines.poll()) {
+                if (text.isEmpty()) {
+                    final Connection client = waiting.poll();
+                    if (client != null) {
+                        client.sendAndClose(response.toString(), logger);
+                    }
+                    response.setLength(0);
+                } else {
+                    response.append(text).append('\n');
+                }
+            }
+        }
+
+        /**
+         * Queue a response to be written to a client and close the connection once it has been written.
+         *
+         * @param message The response.
+         * @param logger  Used to log error messages.
+         */
+        private void sendAndClose(final String message, final Logger logger) {
+            if (!channel.isOpen()) {
+                return;
+            }
+            closeAfterFlush = true;
+            try {
+                send(message, logger);
+            } catch (final IOException exception) {
+                close(logger);
+            }
+        }
+
+        /**
+         * Queue a message to be written to the socket channel.
+         *
+         * @param message The message.
+         * @param logger  Used to log error messages.
+         * @throws IOException If there was a problem writing to the socket channel.
+         */
+        void send(final String message, final Logger logger) throws IOException {
+            writeQueue.add(ByteBuffer.wrap(message.getBytes(LineBuffer.CHARSET)));
+            flush(logger);
+        }
+
+        /**
+         * Write as much of the queued data as the socket channel will accept, registering interest in write readiness
+         * if there is data remaining. The connection is closed once all the data has been written if requested.
+         *
+         * @param logger Used to log error messages.
+         * @throws IOException If there was a problem writing to the socket channel.
+         */
+        void flush(final Logger logger) throws IOException {
+            while (!writeQueue.isEmpty()) {
+                final ByteBuffer buffer = writeQueue.peek();
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                writeQueue.remove();
+            }
+            if (closeAfterFlush) {
+                close(logger);
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        /**
+         * Close the connection, removing the registration and closing any clients waiting for a response if this is a
+         * registered monitor.
+         *
+         * @param logger Used to log information and error messages.
+         */
+        void close(final Logger logger) {
+            if (registeredKey != null && registrations.get(registeredKey) == this) {
+                registrations.remove(registeredKey);
+                logger.logInfo("Unregistered monitor");
+            }
+            registeredKey = null;
+            for (Connection client = waiting.poll(); client != null; client = waiting.poll()) {
+                client.close(logger);
+            }
+            key.cancel();
+            try {
+                channel.close();
+            } catch (final IOException exception) {
+                logger.logError("Error closing connection", exception);
+            }
+        }
+    }
+
+    /**
+     * Logger used when the broker is run from the command line.
+     */
+    private static final class ConsoleLogger implements Logger {
+
+        /**
+         * Write an information message to standard output.
+         *
+         * @param message The information message.
+         */
+        @Override
+        public void logInfo(final String message) {
+            System.out.println(message);
+        }
+
+        /**
+         * Write an error message to standard error.
+         *
+         * @param message The error message.
+         */
+        @Override
+        public void logError(final String message) {
+            System.err.println(message);
+        }
+
+        /**
+         * Write an error message and stack trace to standard error.
+         *
+         * @param message The error message.
+         * @param cause   The exception that is associated with the error message.
+         */
+        @Override
+        public void logError(final String message, final Throwable cause) {
+            System.err.println(message);
+            cause.printStackTrace();
+        }
+    }
+}
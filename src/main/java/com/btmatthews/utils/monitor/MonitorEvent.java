@@ -0,0 +1,154 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+/**
+ * An event in the lifecycle of a server controlled by a monitor. Events are delivered asynchronously to the
+ * {@link MonitorListener}s registered with the monitor.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public final class MonitorEvent {
+
+    /**
+     * The event type.
+     */
+    private final Type type;
+    /**
+     * The key of the monitor that raised the event.
+     */
+    private final String monitorKey;
+    /**
+     * The time at which the event occurred in milliseconds since the epoch.
+     */
+    private final long timestamp;
+    /**
+     * The time at which the event occurred as a value of {@link System#nanoTime()}.
+     */
+    private final long nanoTime;
+    /**
+     * Additional detail such as the command that was received or {@code null}.
+     */
+    private final String detail;
+
+    /**
+     * Initialise the event.
+     *
+     * @param type       The event type.
+     * @param monitorKey The key of the monitor that raised the event.
+     * @param detail     Additional detail such as the command that was received or {@code null}.
+     */
+    public MonitorEvent(final Type type, final String monitorKey, final String detail) {
+        this.type = type;
+        this.monitorKey = monitorKey;
+        this.detail = detail;
+        this.timestamp = System.currentTimeMillis();
+        this.nanoTime = System.nanoTime();
+    }
+
+    /**
+     * Get the event type.
+     *
+     * @return The event type.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Get the key of the monitor that raised the event.
+     *
+     * @return The monitor key.
+     */
+    public String getMonitorKey() {
+        return monitorKey;
+    }
+
+    /**
+     * Get the time at which the event occurred.
+     *
+     * @return The time in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Get the time at which the event occurred as a value of {@link System#nanoTime()}. This should be used to
+     * calculate the elapsed time between events.
+     *
+     * @return The monotonic time in nanoseconds.
+     */
+    public long getNanoTime() {
+        return nanoTime;
+    }
+
+    /**
+     * Get additional detail about the event. This is the command for {@link Type#COMMAND_RECEIVED} and the property
+     * name for {@link Type#CONFIGURING}.
+     *
+     * @return The detail or {@code null}.
+     */
+    public String getDetail() {
+        return detail;
+    }
+
+    /**
+     * Render the event for logging.
+     *
+     * @return The event rendered as a string.
+     */
+    @Override
+    public String toString() {
+        return type + "[" + monitorKey + (detail == null ? "" : ", " + detail) + "]@" + timestamp;
+    }
+
+    /**
+     * The types of lifecycle event.
+     */
+    public enum Type {
+        /**
+         * The server is being started.
+         */
+        STARTING,
+        /**
+         * The server has started.
+         */
+        STARTED,
+        /**
+         * A server property is being configured.
+         */
+        CONFIGURING,
+        /**
+         * A command was received by the monitor.
+         */
+        COMMAND_RECEIVED,
+        /**
+         * The server is being stopped.
+         */
+        STOPPING,
+        /**
+         * The server has stopped.
+         */
+        STOPPED,
+        /**
+         * The server failed to start or stop.
+         */
+        FAILED
+    }
+}
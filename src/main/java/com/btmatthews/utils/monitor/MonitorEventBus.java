@@ -0,0 +1,167 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers the lifecycle events raised by a monitor to its listeners. Events are placed on a bounded queue and
+ * drained by a task on the dedicated event thread of the {@link MonitorScheduler} so publishing never blocks the
+ * monitor thread and slow listeners do not delay the monitor timers. If the queue is full because the listeners cannot
+ * keep up the event is dropped and counted.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+final class MonitorEventBus {
+
+    /**
+     * The default capacity of the event queue.
+     */
+    static final int DEFAULT_CAPACITY = 1024;
+    /**
+     * The registered listeners.
+     */
+    private final List<MonitorListener> listeners = new CopyOnWriteArrayList<>();
+    /**
+     * The events waiting to be delivered.
+     */
+    private final BlockingQueue<MonitorEvent> queue;
+    /**
+     * Set while a task to drain the queue has been scheduled.
+     */
+    private final AtomicBoolean draining = new AtomicBoolean();
+    /**
+     * The number of events that were dropped because the queue was full.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+    /**
+     * The listeners that have thrown an exception. Only the first exception thrown by each listener is logged.
+     */
+    private final Set<MonitorListener> failedListeners = ConcurrentHashMap.newKeySet();
+    /**
+     * Used to log errors thrown by listeners or {@code null}.
+     */
+    private volatile Logger logger;
+
+    /**
+     * Initialise the event bus.
+     *
+     * @param capacity The capacity of the event queue.
+     */
+    MonitorEventBus(final int capacity) {
+        queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Register a listener.
+     *
+     * @param listener The listener.
+     */
+    void addListener(final MonitorListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove a listener.
+     *
+     * @param listener The listener.
+     */
+    void removeListener(final MonitorListener listener) {
+        listeners.remove(listener);
+        failedListeners.remove(listener);
+    }
+
+    /**
+     * Set the logger used to log errors thrown by listeners.
+     *
+     * @param logger Used to log error messages.
+     */
+    void setLogger(final Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Check whether there are any listeners registered.
+     *
+     * @return {@code true} if there are listeners.
+     */
+    boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Get the number of events that were dropped because the queue was full.
+     *
+     * @return The number of dropped events.
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Queue an event for delivery to the listeners. This method does not block.
+     *
+     * @param event The event.
+     */
+    void publish(final MonitorEvent event) {
+        if (!queue.offer(event)) {
+            dropped.incrementAndGet();
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * Schedule a task to drain the queue unless one is already scheduled.
+     */
+    private void scheduleDrain() {
+        if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+            MonitorScheduler.getEventExecutor().execute(this::drain);
+        }
+    }
+
+    /**
+     * Deliver the queued events to the listeners. Exceptions thrown by listeners are logged the first time each
+     * listener fails and are otherwise ignored so that one listener cannot prevent delivery to the others.
+     */
+    private void drain() {
+        try {
+            for (MonitorEvent event = queue.poll(); event != null; event = queue.poll()) {
+                for (final MonitorListener listener : listeners) {
+                    try {
+                        listener.onEvent(event);
+                    } catch (final RuntimeException exception) {
+                        final Logger current = logger;
+                        if (current != null && failedListeners.add(listener)) {
+                            current.logError("Error delivering event to listener", exception);
+                        }
+                    }
+                }
+            }
+        } finally {
+            draining.set(false);
+        }
+        scheduleDrain();
+    }
+}
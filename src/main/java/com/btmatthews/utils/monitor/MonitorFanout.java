@@ -0,0 +1,309 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends a command to many monitors concurrently and collects the results. This is used to tear down environments
+ * that run a monitor for each server so that the time taken is that of the slowest monitor rather than the sum of
+ * them all. Each request waits until the monitor has executed the command and closed the connection, so a
+ * {@code stop} command only completes once the server has stopped. A request that has not completed within the
+ * endpoint's timeout is abandoned and its connection closed.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public final class MonitorFanout {
+
+    /**
+     * The default time in milliseconds to wait for each monitor.
+     */
+    public static final long DEFAULT_TIMEOUT = 30000L;
+    /**
+     * Used to number the threads that send the requests.
+     */
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+    /**
+     * The monitors to which commands are sent.
+     */
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    /**
+     * The time in milliseconds to wait for monitors that were added without a timeout.
+     */
+    private long timeout = DEFAULT_TIMEOUT;
+
+    /**
+     * Set the time to wait for monitors that were added without their own timeout.
+     *
+     * @param timeout The timeout in milliseconds.
+     */
+    public void setTimeout(final long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Add a monitor listening on the local host.
+     *
+     * @param key  The monitor key.
+     * @param port The monitor port.
+     */
+    public void addEndpoint(final String key, final int port) {
+        addEndpoint(key, port, 0L);
+    }
+
+    /**
+     * Add a monitor listening on the local host with its own timeout.
+     *
+     * @param key     The monitor key.
+     * @param port    The monitor port.
+     * @param timeout The timeout in milliseconds or zero to use the default timeout.
+     */
+    public void addEndpoint(final String key, final int port, final long timeout) {
+        endpoints.add(new Endpoint(key, port, timeout));
+    }
+
+    /**
+     * Send a command to all the monitors concurrently and wait for them to respond or time out.
+     *
+     * @param command The command.
+     * @param logger  Used to log information messages.
+     * @return The results in the order the monitors were added.
+     */
+    public List<Result> send(final String command, final Logger logger) {
+        if (endpoints.isEmpty()) {
+            return Collections.emptyList();
+        }
+        logger.logInfo("Sending command \"" + command + "\" to " + endpoints.size() + " monitors");
+        final ExecutorService executor = Executors.newFixedThreadPool(endpoints.size(), runnable -> {
+            final Thread thread = new Thread(runnable, "monitor-fanout-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final long startTime = System.nanoTime();
+            final List<Future<String>> futures = new ArrayList<>(endpoints.size());
+            for (final Endpoint endpoint : endpoints) {
+                final Monitor monitor = new Monitor(endpoint.key, endpoint.port);
+                futures.add(executor.submit(() -> monitor.exchange(command)));
+            }
+            final List<Result> results = new ArrayList<>(endpoints.size());
+            for (int i = 0; i < endpoints.size(); ++i) {
+                results.add(await(endpoints.get(i), futures.get(i), startTime));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Wait for the request sent to a monitor to complete. All the requests were sent at the same time so the
+     * deadline is measured from when they were sent.
+     *
+     * @param endpoint  The monitor.
+     * @param future    The pending request.
+     * @param startTime The time in nanoseconds at which the requests were sent.
+     * @return The result.
+     */
+    private Result await(final Endpoint endpoint, final Future<String> future, final long startTime) {
+        final long limit = TimeUnit.MILLISECONDS.toNanos(endpoint.timeout > 0L ? endpoint.timeout : timeout);
+        try {
+            final String response = future.get(Math.max(0L, startTime + limit - System.nanoTime()),
+                    TimeUnit.NANOSECONDS);
+            return new Result(endpoint, Status.OK, response, null, System.nanoTime() - startTime);
+        } catch (final ExecutionException e) {
+            return new Result(endpoint, Status.FAILED, null, e.getCause(), System.nanoTime() - startTime);
+        } catch (final TimeoutException e) {
+            future.cancel(true);
+            return new Result(endpoint, Status.TIMED_OUT, null, null, System.nanoTime() - startTime);
+        } catch (final InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return new Result(endpoint, Status.FAILED, null, e, System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * The outcome of sending a command to a monitor.
+     */
+    public enum Status {
+        /**
+         * The monitor executed the command.
+         */
+        OK,
+        /**
+         * The command could not be sent or the response could not be read.
+         */
+        FAILED,
+        /**
+         * The monitor did not respond within the timeout.
+         */
+        TIMED_OUT
+    }
+
+    /**
+     * A monitor to which commands are sent.
+     */
+    private static final class Endpoint {
+
+        /**
+         * The monitor key.
+         */
+        private final String key;
+        /**
+         * The monitor port.
+         */
+        private final int port;
+        /**
+         * The timeout in milliseconds or zero to use the default timeout.
+         */
+        private final long timeout;
+
+        /**
+         * Initialise the endpoint.
+         *
+         * @param key     The monitor key.
+         * @param port    The monitor port.
+         * @param timeout The timeout in milliseconds or zero to use the default timeout.
+         */
+        Endpoint(final String key, final int port, final long timeout) {
+            this.key = key;
+            this.port = port;
+            this.timeout = timeout;
+        }
+    }
+
+    /**
+     * The result of sending a command to a monitor.
+     */
+    public static final class Result {
+
+        /**
+         * The monitor.
+         */
+        private final Endpoint endpoint;
+        /**
+         * The outcome.
+         */
+        private final Status status;
+        /**
+         * The response or {@code null} if the command failed or timed out.
+         */
+        private final String response;
+        /**
+         * The reason the command failed or {@code null}.
+         */
+        private final Throwable cause;
+        /**
+         * The time in nanoseconds from sending the command to the outcome being known.
+         */
+        private final long elapsed;
+
+        /**
+         * Initialise the result.
+         *
+         * @param endpoint The monitor.
+         * @param status   The outcome.
+         * @param response The response or {@code null} if the command failed or timed out.
+         * @param cause    The reason the command failed or {@code null}.
+         * @param elapsed  The time in nanoseconds from sending the command to the outcome being known.
+         */
+        Result(final Endpoint endpoint, final Status status, final String response, final Throwable cause,
+               final long elapsed) {
+            this.endpoint = endpoint;
+            this.status = status;
+            this.response = response;
+            this.cause = cause;
+            this.elapsed = elapsed;
+        }
+
+        /**
+         * Get the monitor key.
+         *
+         * @return The monitor key.
+         */
+        public String getKey() {
+            return endpoint.key;
+        }
+
+        /**
+         * Get the monitor port.
+         *
+         * @return The monitor port.
+         */
+        public int getPort() {
+            return endpoint.port;
+        }
+
+        /**
+         * Get the outcome.
+         *
+         * @return The outcome.
+         */
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * Get the response.
+         *
+         * @return The response or {@code null} if the command failed or timed out.
+         */
+        public String getResponse() {
+            return response;
+        }
+
+        /**
+         * Get the reason the command failed.
+         *
+         * @return The exception or {@code null}.
+         */
+        public Throwable getCause() {
+            return cause;
+        }
+
+        /**
+         * Get the time from sending the command to the outcome being known.
+         *
+         * @return The time in milliseconds.
+         */
+        public long getElapsed() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsed);
+        }
+
+        /**
+         * Describe the result.
+         *
+         * @return The description.
+         */
+        @Override
+        public String toString() {
+            return "Monitor " + endpoint.key + " on port " + endpoint.port + " " + status + " in " + getElapsed()
+                    + "ms";
+        }
+    }
+}
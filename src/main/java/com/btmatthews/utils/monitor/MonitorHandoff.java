@@ -0,0 +1,135 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * The monitor key and port published by a monitor that is listening on an ephemeral port. The handoff file is
+ * written to a temporary file and then atomically moved into place so that readers never see a partially written
+ * file.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public final class MonitorHandoff {
+
+    /**
+     * The property that holds the monitor key.
+     */
+    private static final String KEY_PROPERTY = "monitor.key";
+    /**
+     * The property that holds the monitor port.
+     */
+    private static final String PORT_PROPERTY = "monitor.port";
+    /**
+     * The monitor key.
+     */
+    private final String key;
+    /**
+     * The port on which the monitor is listening.
+     */
+    private final int port;
+
+    /**
+     * The constructor that initialises the monitor key and port.
+     *
+     * @param key  The monitor key.
+     * @param port The port on which the monitor is listening.
+     */
+    public MonitorHandoff(final String key, final int port) {
+        this.key = key;
+        this.port = port;
+    }
+
+    /**
+     * Read the monitor key and port from a handoff file.
+     *
+     * @param file The handoff file.
+     * @return The monitor key and port.
+     * @throws IOException If the handoff file could not be read or is incomplete.
+     */
+    public static MonitorHandoff read(final Path file) throws IOException {
+        final Properties properties = new Properties();
+        try (final InputStream inputStream = Files.newInputStream(file)) {
+            properties.load(inputStream);
+        }
+        final String key = properties.getProperty(KEY_PROPERTY);
+        final String port = properties.getProperty(PORT_PROPERTY);
+        if (key == null || port == null) {
+            throw new IOException("Incomplete monitor handoff file: " + file);
+        }
+        try {
+            return new MonitorHandoff(key, Integer.parseInt(port));
+        } catch (final NumberFormatException e) {
+            throw new IOException("Invalid port in monitor handoff file: " + file, e);
+        }
+    }
+
+    /**
+     * Write the monitor key and port to a handoff file. The file is first written to a temporary file in the same
+     * directory and then atomically moved into place.
+     *
+     * @param file The handoff file.
+     * @throws IOException If the handoff file could not be written.
+     */
+    public void write(final Path file) throws IOException {
+        final Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        final Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            final Properties properties = new Properties();
+            properties.setProperty(KEY_PROPERTY, key);
+            properties.setProperty(PORT_PROPERTY, Integer.toString(port));
+            try (final OutputStream outputStream = Files.newOutputStream(tempFile)) {
+                properties.store(outputStream, null);
+            }
+            try {
+                Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Get the monitor key.
+     *
+     * @return The monitor key.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Get the port on which the monitor is listening.
+     *
+     * @return The monitor port.
+     */
+    public int getPort() {
+        return port;
+    }
+}
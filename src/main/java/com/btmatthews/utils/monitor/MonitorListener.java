@@ -0,0 +1,36 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+/**
+ * Implemented by objects that want to receive every lifecycle event raised by a monitor. Unlike a
+ * {@link MonitorObserver}, any number of listeners can be registered and events are delivered on a background
+ * thread so a slow listener does not delay the server lifecycle.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+@FunctionalInterface
+public interface MonitorListener {
+
+    /**
+     * This callback is called for each lifecycle event.
+     *
+     * @param event The lifecycle event.
+     */
+    void onEvent(MonitorEvent event);
+}
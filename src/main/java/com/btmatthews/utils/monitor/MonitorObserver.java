@@ -39,4 +39,27 @@ public interface MonitorObserver {
      * @param logger Used to log information and error messages.
      */
     void stopped(Server server, Logger logger);
+
+    /**
+     * This callback is called when the watchdog finds that a server it is supervising is no longer running. The
+     * default implementation does nothing.
+     *
+     * @param server   The server that crashed.
+     * @param failures The number of consecutive checks that have found the server not to be running.
+     * @param logger   Used to log information and error messages.
+     * @since 3.1.0
+     */
+    default void crashed(final Server server, final int failures, final Logger logger) {
+    }
+
+    /**
+     * This callback is called when the watchdog has restarted a server that crashed. The default implementation
+     * does nothing.
+     *
+     * @param server The server that was restarted.
+     * @param logger Used to log information and error messages.
+     * @since 3.1.0
+     */
+    default void restarted(final Server server, final Logger logger) {
+    }
 }
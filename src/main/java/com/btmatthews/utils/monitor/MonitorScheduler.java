@@ -0,0 +1,122 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the scheduled executor shared by all the monitors in the JVM for their timers and the executor on which their
+ * lifecycle events are delivered to listeners. The executors use daemon threads so that they do not prevent the JVM
+ * from exiting.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+final class MonitorScheduler {
+
+    /**
+     * The minimum number of threads used by the shared executor.
+     */
+    private static final int MIN_THREADS = 2;
+
+    /**
+     * The constructor is private because this class only provides static helper methods.
+     */
+    private MonitorScheduler() {
+    }
+
+    /**
+     * Get the shared scheduled executor creating it if necessary.
+     *
+     * @return The shared scheduled executor.
+     */
+    static ScheduledExecutorService getExecutor() {
+        return Holder.EXECUTOR;
+    }
+
+    /**
+     * Get the executor used to deliver lifecycle events to listeners creating it if necessary. Events are delivered on
+     * a single dedicated thread so that slow listeners do not delay the timers on the shared scheduled executor.
+     *
+     * @return The event executor.
+     */
+    static ExecutorService getEventExecutor() {
+        return EventHolder.EXECUTOR;
+    }
+
+    /**
+     * Lazily initialises the shared executor.
+     */
+    private static final class Holder {
+
+        /**
+         * Used to number the executor threads.
+         */
+        private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+        /**
+         * The shared scheduled executor.
+         */
+        private static final ScheduledExecutorService EXECUTOR = createExecutor();
+
+        /**
+         * The constructor is private because this class only holds the shared executor.
+         */
+        private Holder() {
+        }
+
+        /**
+         * Create the shared scheduled executor.
+         *
+         * @return The shared scheduled executor.
+         */
+        private static ScheduledExecutorService createExecutor() {
+            final int threads = Math.max(MIN_THREADS, Runtime.getRuntime().availableProcessors() / 2);
+            final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+                final Thread thread = new Thread(runnable, "monitor-scheduler-" + THREAD_NUMBER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
+
+    /**
+     * Lazily initialises the event executor.
+     */
+    private static final class EventHolder {
+
+        /**
+         * The event executor.
+         */
+        private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "monitor-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        /**
+         * The constructor is private because this class only holds the event executor.
+         */
+        private EventHolder() {
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * A streaming Aho-Corasick automaton that searches a byte stream for any of a set of patterns. The automaton is
+ * compiled into a complete transition table so each byte costs a single table lookup regardless of the number of
+ * patterns, and only the current state is kept between chunks so matches that span chunk boundaries are found
+ * without buffering the stream.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+final class MultiPatternMatcher {
+
+    /**
+     * The number of possible byte values.
+     */
+    private static final int ALPHABET_SIZE = 256;
+    /**
+     * The transition table indexed by state and then by byte value.
+     */
+    private final int[][] transitions;
+    /**
+     * The index of the pattern recognised on entering each state or {@code -1}.
+     */
+    private final int[] outputs;
+    /**
+     * The current state.
+     */
+    private int state;
+
+    /**
+     * Compile the automaton for a set of patterns. Empty patterns are ignored.
+     *
+     * @param patterns The patterns.
+     */
+    MultiPatternMatcher(final List<byte[]> patterns) {
+        final List<int[]> table = new ArrayList<>();
+        final List<Integer> matches = new ArrayList<>();
+        table.add(newState());
+        matches.add(-1);
+        for (int i = 0; i < patterns.size(); ++i) {
+            final byte[] pattern = patterns.get(i);
+            if (pattern.length == 0) {
+                continue;
+            }
+            int current = 0;
+            for (final byte b : pattern) {
+                final int c = b & 0xFF;
+                if (table.get(current)[c] < 0) {
+                    table.get(current)[c] = table.size();
+                    table.add(newState());
+                    matches.add(-1);
+                }
+                current = table.get(current)[c];
+            }
+            if (matches.get(current) < 0) {
+                matches.set(current, i);
+            }
+        }
+        transitions = table.toArray(new int[table.size()][]);
+        outputs = new int[matches.size()];
+        for (int i = 0; i < outputs.length; ++i) {
+            outputs[i] = matches.get(i);
+        }
+        compile();
+    }
+
+    /**
+     * Create a matcher that shares the compiled automaton of another matcher but scans a separate stream.
+     *
+     * @param other The other matcher.
+     */
+    MultiPatternMatcher(final MultiPatternMatcher other) {
+        transitions = other.transitions;
+        outputs = other.outputs;
+    }
+
+    /**
+     * Compute the failure links breadth first and fold them into the transition table and outputs.
+     */
+    private void compile() {
+        final int[] failures = new int[transitions.length];
+        final Queue<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET_SIZE; ++c) {
+            final int child = transitions[0][c];
+            if (child < 0) {
+                transitions[0][c] = 0;
+            } else {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            final int current = queue.remove();
+            for (int c = 0; c < ALPHABET_SIZE; ++c) {
+                final int child = transitions[current][c];
+                if (child < 0) {
+                    transitions[current][c] = transitions[failures[current]][c];
+                } else {
+                    failures[child] = transitions[failures[current]][c];
+                    if (outputs[child] < 0) {
+                        outputs[child] = outputs[failures[child]];
+                    }
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Feed bytes to the automaton.
+     *
+     * @param bytes  The buffer holding the bytes.
+     * @param offset The offset of the first byte.
+     * @param length The number of bytes.
+     * @return The index of the first pattern found or {@code -1} if none were found.
+     */
+    int feed(final byte[] bytes, final int offset, final int length) {
+        int current = state;
+        for (int i = offset; i < offset + length; ++i) {
+            current = transitions[current][bytes[i] & 0xFF];
+            if (outputs[current] >= 0) {
+                state = current;
+                return outputs[current];
+            }
+        }
+        state = current;
+        return -1;
+    }
+
+    /**
+     * Create a state with no transitions.
+     *
+     * @return The transitions for the new state.
+     */
+    private static int[] newState() {
+        final int[] state = new int[ALPHABET_SIZE];
+        Arrays.fill(state, -1);
+        return state;
+    }
+}
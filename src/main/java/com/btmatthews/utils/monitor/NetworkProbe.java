@@ -0,0 +1,155 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A readiness probe that checks whether a TCP port is accepting connections or whether a HTTP endpoint is answering
+ * with a successful status. Probes are non-blocking and are run by a single shared selector thread so many ports and
+ * endpoints can be checked concurrently, each with its own timeout. Servers typically use probes from their
+ * {@link Server#isStarted(Logger)} and {@link Server#isStopped(Logger)} implementations via the helpers provided by
+ * {@link AbstractServer}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public final class NetworkProbe {
+
+    /**
+     * The host name or address.
+     */
+    private final String host;
+    /**
+     * The port number.
+     */
+    private final int port;
+    /**
+     * The request path for HTTP probes or {@code null} for TCP probes.
+     */
+    private final String path;
+
+    /**
+     * Initialise the probe.
+     *
+     * @param host The host name or address.
+     * @param port The port number.
+     * @param path The request path for HTTP probes or {@code null} for TCP probes.
+     */
+    private NetworkProbe(final String host, final int port, final String path) {
+        this.host = host;
+        this.port = port;
+        this.path = path;
+    }
+
+    /**
+     * Create a probe that succeeds if a TCP connection can be established.
+     *
+     * @param host The host name or address.
+     * @param port The port number.
+     * @return The probe.
+     */
+    public static NetworkProbe tcp(final String host, final int port) {
+        return new NetworkProbe(host, port, null);
+    }
+
+    /**
+     * Create a probe that succeeds if a HTTP {@code GET} request returns a 2xx or 3xx status.
+     *
+     * @param host The host name or address.
+     * @param port The port number.
+     * @param path The request path.
+     * @return The probe.
+     */
+    public static NetworkProbe http(final String host, final int port, final String path) {
+        return new NetworkProbe(host, port, path.startsWith("/") ? path : "/" + path);
+    }
+
+    /**
+     * Run the probe.
+     *
+     * @param timeout The timeout in milliseconds.
+     * @return A future completed with {@code true} if the probe succeeded or {@code false} if it failed or timed out.
+     */
+    public CompletableFuture<Boolean> check(final long timeout) {
+        final InetSocketAddress address = new InetSocketAddress(host, port);
+        final byte[] request = path == null ? null : ("GET " + path + " HTTP/1.0\r\nHost: " + host + ":" + port
+                + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        return ProbeSelector.getInstance().submit(address, request, timeout);
+    }
+
+    /**
+     * Run probes concurrently.
+     *
+     * @param timeout The timeout in milliseconds for each probe.
+     * @param probes  The probes.
+     * @return A future completed with the number of probes that succeeded.
+     */
+    public static CompletableFuture<Integer> checkAll(final long timeout, final Collection<NetworkProbe> probes) {
+        final List<CompletableFuture<Boolean>> results = new ArrayList<>(probes.size());
+        for (final NetworkProbe probe : probes) {
+            results.add(probe.check(timeout));
+        }
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            int succeeded = 0;
+            for (final CompletableFuture<Boolean> result : results) {
+                if (result.join()) {
+                    ++succeeded;
+                }
+            }
+            return succeeded;
+        });
+    }
+
+    /**
+     * Run probes concurrently and wait for the results.
+     *
+     * @param timeout The timeout in milliseconds for each probe.
+     * @param probes  The probes.
+     * @return The number of probes that succeeded or {@code -1} if the probes could not be completed because they
+     * failed, did not complete in time or the calling thread was interrupted.
+     */
+    public static int awaitAll(final long timeout, final NetworkProbe... probes) {
+        try {
+            return checkAll(timeout, Arrays.asList(probes)).get(timeout * 2, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } catch (final ExecutionException | TimeoutException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Describe the probe.
+     *
+     * @return The description.
+     */
+    @Override
+    public String toString() {
+        return path == null ? "tcp://" + host + ":" + port : "http://" + host + ":" + port + path;
+    }
+}
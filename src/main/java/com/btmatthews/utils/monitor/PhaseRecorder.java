@@ -0,0 +1,92 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+/**
+ * Implemented by objects that record the timing of named start-up phases. When start-up profiling is enabled the
+ * {@link Logger} passed to {@link Server#start(Logger)} also implements this interface so servers can report their own
+ * sub-phases:
+ * <pre>
+ * if (logger instanceof PhaseRecorder) {
+ *     try (PhaseRecorder.Phase phase = ((PhaseRecorder) logger).beginPhase("load-schema")) {
+ *         loadSchema();
+ *     }
+ * }
+ * </pre>
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public interface PhaseRecorder {
+
+    /**
+     * Record a completed phase.
+     *
+     * @param name       The phase name.
+     * @param startNanos The value of {@link System#nanoTime()} when the phase started.
+     * @param endNanos   The value of {@link System#nanoTime()} when the phase ended.
+     */
+    void recordPhase(String name, long startNanos, long endNanos);
+
+    /**
+     * Begin a phase that is recorded when the returned object is closed.
+     *
+     * @param name The phase name.
+     * @return The phase which must be closed when it ends.
+     */
+    default Phase beginPhase(final String name) {
+        return new Phase(this, name);
+    }
+
+    /**
+     * A phase that is in progress.
+     */
+    final class Phase implements AutoCloseable {
+
+        /**
+         * The recorder to which the phase is reported.
+         */
+        private final PhaseRecorder recorder;
+        /**
+         * The phase name.
+         */
+        private final String name;
+        /**
+         * The value of {@link System#nanoTime()} when the phase started.
+         */
+        private final long startNanos = System.nanoTime();
+
+        /**
+         * Begin the phase.
+         *
+         * @param recorder The recorder to which the phase is reported.
+         * @param name     The phase name.
+         */
+        Phase(final PhaseRecorder recorder, final String name) {
+            this.recorder = recorder;
+            this.name = name;
+        }
+
+        /**
+         * End the phase and report it to the recorder.
+         */
+        @Override
+        public void close() {
+            recorder.recordPhase(name, startNanos, System.nanoTime());
+        }
+    }
+}
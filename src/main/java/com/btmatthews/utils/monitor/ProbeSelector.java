@@ -0,0 +1,345 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the {@link NetworkProbe}s for all the monitors in the JVM on a single daemon thread using a selector. Each probe
+ * is a non-blocking connect followed, for HTTP probes, by writing the request and reading the status line.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+final class ProbeSelector implements Runnable {
+
+    /**
+     * The maximum number of bytes read from a HTTP response while looking for the status line.
+     */
+    private static final int MAX_STATUS_LINE = 256;
+    /**
+     * The selector.
+     */
+    private final Selector selector;
+    /**
+     * The probes submitted since the selector last woke up.
+     */
+    private final Queue<Probe> pending = new ConcurrentLinkedQueue<>();
+    /**
+     * The probes in progress. Only accessed from the selector thread.
+     */
+    private final List<Probe> active = new ArrayList<>();
+
+    /**
+     * Open the selector.
+     *
+     * @throws IOException If the selector could not be opened.
+     */
+    private ProbeSelector() throws IOException {
+        selector = Selector.open();
+    }
+
+    /**
+     * Get the shared probe selector starting its thread if necessary.
+     *
+     * @return The shared probe selector.
+     */
+    static ProbeSelector getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Submit a probe.
+     *
+     * @param address The address to connect to.
+     * @param request The HTTP request to send or {@code null} for TCP probes.
+     * @param timeout The timeout in milliseconds.
+     * @return A future completed with the result of the probe.
+     */
+    CompletableFuture<Boolean> submit(final InetSocketAddress address, final byte[] request, final long timeout) {
+        final Probe probe = new Probe(address, request, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout));
+        if (address.isUnresolved()) {
+            probe.result.complete(false);
+        } else {
+            pending.add(probe);
+            selector.wakeup();
+        }
+        return probe.result;
+    }
+
+    /**
+     * Run the selector loop.
+     */
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                selector.select(nextTimeout());
+            } catch (final IOException e) {
+                continue;
+            }
+            for (Probe probe = pending.poll(); probe != null; probe = pending.poll()) {
+                probe.start();
+            }
+            final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                final SelectionKey key = keys.next();
+                keys.remove();
+                ((Probe) key.attachment()).handle(key);
+            }
+            final long now = System.nanoTime();
+            final Iterator<Probe> probes = active.iterator();
+            while (probes.hasNext()) {
+                final Probe probe = probes.next();
+                if (probe.result.isDone()) {
+                    probes.remove();
+                } else if (now - probe.deadline >= 0) {
+                    probe.complete(false);
+                    probes.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculate how long the selector can wait before the next probe times out.
+     *
+     * @return The time in milliseconds or zero to wait indefinitely.
+     */
+    private long nextTimeout() {
+        if (active.isEmpty()) {
+            return 0L;
+        }
+        final long now = System.nanoTime();
+        long earliest = Long.MAX_VALUE;
+        for (final Probe probe : active) {
+            earliest = Math.min(earliest, probe.deadline - now);
+        }
+        return Math.max(1L, TimeUnit.NANOSECONDS.toMillis(earliest) + 1L);
+    }
+
+    /**
+     * A probe in progress.
+     */
+    private final class Probe {
+
+        /**
+         * The address to connect to.
+         */
+        private final InetSocketAddress address;
+        /**
+         * The HTTP request or {@code null} for TCP probes.
+         */
+        private final ByteBuffer request;
+        /**
+         * The value of {@link System#nanoTime()} at which the probe times out.
+         */
+        private final long deadline;
+        /**
+         * Completed with the result of the probe.
+         */
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        /**
+         * Accumulates the HTTP status line.
+         */
+        private ByteBuffer response;
+        /**
+         * The socket channel.
+         */
+        private SocketChannel channel;
+
+        /**
+         * Initialise the probe.
+         *
+         * @param address  The address to connect to.
+         * @param request  The HTTP request or {@code null} for TCP probes.
+         * @param deadline The value of {@link System#nanoTime()} at which the probe times out.
+         */
+        Probe(final InetSocketAddress address, final byte[] request, final long deadline) {
+            this.address = address;
+            this.request = request == null ? null : ByteBuffer.wrap(request);
+            this.deadline = deadline;
+        }
+
+        /**
+         * Start connecting.
+         */
+        void start() {
+            active.add(this);
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                if (channel.connect(address)) {
+                    connected(channel.register(selector, 0, this));
+                } else {
+                    channel.register(selector, SelectionKey.OP_CONNECT, this);
+                }
+            } catch (final IOException | RuntimeException e) {
+                complete(false);
+            }
+        }
+
+        /**
+         * Handle a selected key. Any error, including a key that was cancelled while it was being handled, fails the
+         * probe so that the selector thread keeps running the other probes.
+         *
+         * @param key The selected key.
+         */
+        void handle(final SelectionKey key) {
+            try {
+                if (!key.isValid()) {
+                    complete(false);
+                } else if (key.isConnectable()) {
+                    if (channel.finishConnect()) {
+                        connected(key);
+                    }
+                } else if (key.isWritable()) {
+                    write(key);
+                } else if (key.isReadable()) {
+                    read();
+                }
+            } catch (final IOException | RuntimeException e) {
+                complete(false);
+            }
+        }
+
+        /**
+         * The connection has been established. TCP probes have succeeded while HTTP probes send the request.
+         *
+         * @param key The selection key.
+         * @throws IOException If there was a problem writing the request.
+         */
+        private void connected(final SelectionKey key) throws IOException {
+            if (request == null) {
+                complete(true);
+            } else {
+                key.interestOps(SelectionKey.OP_WRITE);
+                write(key);
+            }
+        }
+
+        /**
+         * Write the HTTP request and then wait for the response.
+         *
+         * @param key The selection key.
+         * @throws IOException If there was a problem writing the request.
+         */
+        private void write(final SelectionKey key) throws IOException {
+            channel.write(request);
+            if (!request.hasRemaining()) {
+                response = ByteBuffer.allocate(MAX_STATUS_LINE);
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        /**
+         * Read the HTTP response until the status line has been received.
+         *
+         * @throws IOException If there was a problem reading the response.
+         */
+        private void read() throws IOException {
+            final int count = channel.read(response);
+            final String received = new String(response.array(), 0, response.position(),
+                    StandardCharsets.US_ASCII);
+            final int end = received.indexOf('\r');
+            if (end >= 0) {
+                complete(isSuccess(received.substring(0, end)));
+            } else if (count < 0 || !response.hasRemaining()) {
+                complete(false);
+            }
+        }
+
+        /**
+         * Check whether a HTTP status line indicates success.
+         *
+         * @param statusLine The status line.
+         * @return {@code true} if the status is 2xx or 3xx.
+         */
+        private boolean isSuccess(final String statusLine) {
+            final String[] parts = statusLine.split(" ");
+            if (parts.length < 2 || !parts[0].startsWith("HTTP/") || parts[1].length() != 3) {
+                return false;
+            }
+            final char category = parts[1].charAt(0);
+            return category == '2' || category == '3';
+        }
+
+        /**
+         * Complete the probe closing the connection.
+         *
+         * @param success The result of the probe.
+         */
+        void complete(final boolean success) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (final IOException e) {
+                    // Ignore errors closing the connection
+                }
+            }
+            result.complete(success);
+        }
+    }
+
+    /**
+     * Lazily initialises the shared probe selector.
+     */
+    private static final class Holder {
+
+        /**
+         * The shared probe selector.
+         */
+        private static final ProbeSelector INSTANCE = createInstance();
+
+        /**
+         * The constructor is private because this class only holds the shared probe selector.
+         */
+        private Holder() {
+        }
+
+        /**
+         * Create the shared probe selector and start its thread.
+         *
+         * @return The shared probe selector.
+         */
+        private static ProbeSelector createInstance() {
+            try {
+                final ProbeSelector probeSelector = new ProbeSelector();
+                final Thread thread = new Thread(probeSelector, "monitor-probe-selector");
+                thread.setDaemon(true);
+                thread.start();
+                return probeSelector;
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+/**
+ * Wraps the logger passed to {@link Server#start(Logger)} when start-up profiling is enabled so that the server can
+ * report sub-phases through the {@link PhaseRecorder} interface.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+final class ProfilingLogger implements Logger, PhaseRecorder {
+
+    /**
+     * The wrapped logger.
+     */
+    private final Logger delegate;
+    /**
+     * The timeline to which phases are reported.
+     */
+    private final PhaseRecorder recorder;
+
+    /**
+     * Wrap a logger.
+     *
+     * @param delegate The wrapped logger.
+     * @param recorder The timeline to which phases are reported.
+     */
+    ProfilingLogger(final Logger delegate, final PhaseRecorder recorder) {
+        this.delegate = delegate;
+        this.recorder = recorder;
+    }
+
+    /**
+     * Log an information message.
+     *
+     * @param message The information message.
+     */
+    @Override
+    public void logInfo(final String message) {
+        delegate.logInfo(message);
+    }
+
+    /**
+     * Log an error message.
+     *
+     * @param message The error message.
+     */
+    @Override
+    public void logError(final String message) {
+        delegate.logError(message);
+    }
+
+    /**
+     * Log an error message and exception.
+     *
+     * @param message The error message.
+     * @param cause   The exception.
+     */
+    @Override
+    public void logError(final String message, final Throwable cause) {
+        delegate.logError(message, cause);
+    }
+
+    /**
+     * Record a phase reported by the server.
+     *
+     * @param name       The phase name.
+     * @param startNanos The value of {@link System#nanoTime()} when the phase started.
+     * @param endNanos   The value of {@link System#nanoTime()} when the phase ended.
+     */
+    @Override
+    public void recordPhase(final String name, final long startNanos, final long endNanos) {
+        recorder.recordPhase(name, startNanos, endNanos);
+    }
+}
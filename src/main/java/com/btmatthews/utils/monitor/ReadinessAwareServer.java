@@ -0,0 +1,39 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Implemented by servers that can signal when they have started instead of having the monitor poll
+ * {@link Server#isStarted(Logger)}, for example by scanning their log output with a {@link LogReadinessDetector}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public interface ReadinessAwareServer extends Server {
+
+    /**
+     * Get a future that will be completed when the server has started or failed to start. This may be called
+     * before {@link Server#start(Logger)}, in which case the future must be completed by the start that follows.
+     *
+     * @param logger Used to log error messages.
+     * @return A future completed with {@code true} if the server has started or {@code false} if it failed to start,
+     * or {@code null} if readiness is not signalled and the monitor should poll instead.
+     */
+    CompletableFuture<Boolean> getReadiness(Logger logger);
+}
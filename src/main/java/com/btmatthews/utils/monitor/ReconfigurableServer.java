@@ -0,0 +1,38 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+/**
+ * Implemented by servers that can apply configuration changes while they are running. When a server implements this
+ * interface the monitor keeps track of the effective configuration and, instead of forwarding each {@code configure}
+ * command to {@link Server#configure(String, Object, Logger)}, delivers a single {@link ConfigurationChange}
+ * containing only the properties whose values actually changed. Bursts of {@code configure} commands received within
+ * the monitor's reconfiguration window are coalesced into one change.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public interface ReconfigurableServer extends Server {
+
+    /**
+     * Apply a configuration change to the running server.
+     *
+     * @param change The configuration change.
+     * @param logger Used to log error messages.
+     */
+    void reconfigure(ConfigurationChange change, Logger logger);
+}
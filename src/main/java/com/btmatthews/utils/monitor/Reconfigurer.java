@@ -0,0 +1,144 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the effective configuration of a {@link ReconfigurableServer} and coalesces the {@code configure} commands
+ * received by a monitor into minimal {@link ConfigurationChange}s. Commands received within the reconfiguration
+ * window of the first pending command are merged and delivered together when the window expires.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+final class Reconfigurer {
+
+    /**
+     * The server being reconfigured.
+     */
+    private final ReconfigurableServer server;
+    /**
+     * The schema used to validate and convert the changes.
+     */
+    private final ConfigurationSchema schema;
+    /**
+     * The window in milliseconds within which changes are coalesced.
+     */
+    private final long window;
+    /**
+     * Used to log error messages.
+     */
+    private final Logger logger;
+    /**
+     * The changes that have not yet been delivered.
+     */
+    private final Map<String, Object> pending = new LinkedHashMap<>();
+    /**
+     * The effective configuration.
+     */
+    private ServerConfiguration configuration;
+    /**
+     * The scheduled delivery of the pending changes or {@code null}.
+     */
+    private ScheduledFuture<?> scheduled;
+
+    /**
+     * Initialise the reconfigurer.
+     *
+     * @param server        The server being reconfigured.
+     * @param schema        The schema used to validate and convert the changes.
+     * @param configuration The initial effective configuration.
+     * @param window        The window in milliseconds within which changes are coalesced.
+     * @param logger        Used to log error messages.
+     */
+    Reconfigurer(final ReconfigurableServer server, final ConfigurationSchema schema,
+                 final ServerConfiguration configuration, final long window, final Logger logger) {
+        this.server = server;
+        this.schema = schema;
+        this.configuration = configuration;
+        this.window = window;
+        this.logger = logger;
+    }
+
+    /**
+     * Queue a change to a property. The change is delivered immediately if there is no reconfiguration window.
+     *
+     * @param name  The property name.
+     * @param value The property value.
+     */
+    synchronized void offer(final String name, final Object value) {
+        pending.put(name, value);
+        if (window <= 0) {
+            flush();
+        } else if (scheduled == null) {
+            scheduled = MonitorScheduler.getExecutor().schedule(this::flush, window, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Deliver the pending changes to the server if they change the effective configuration.
+     */
+    synchronized void flush() {
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        final Map<String, Object> merged = new LinkedHashMap<>(configuration.asMap());
+        merged.putAll(pending);
+        pending.clear();
+        try {
+            final ServerConfiguration updated = schema.validate(merged);
+            final ConfigurationChange change = new ConfigurationChange(configuration, updated);
+            if (!change.isEmpty()) {
+                server.reconfigure(change, logger);
+                configuration = updated;
+            }
+        } catch (final InvalidConfigurationException exception) {
+            logger.logError("Invalid configuration change", exception);
+        } catch (final RuntimeException exception) {
+            logger.logError("Error reconfiguring the server", exception);
+        }
+    }
+
+    /**
+     * Cancel the scheduled delivery and discard the pending changes. This is used when the server is being stopped so
+     * that changes are not delivered to a server that is no longer running.
+     */
+    synchronized void cancel() {
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        pending.clear();
+    }
+
+    /**
+     * Get the effective configuration.
+     *
+     * @return The effective configuration.
+     */
+    synchronized ServerConfiguration getConfiguration() {
+        return configuration;
+    }
+}
@@ -16,6 +16,8 @@
 
 package com.btmatthews.utils.monitor;
 
+import java.util.Map;
+
 /**
  * This interface is implemented by server objects that can be controlled by a
  * monitor.
@@ -35,6 +37,22 @@ public interface Server {
      */
     void configure(String name, Object value, Logger logger);
 
+    /**
+     * Configure the server from a configuration snapshot that has already been validated against the schema
+     * declared by the server factory. The default implementation calls {@link #configure(String, Object, Logger)}
+     * for each property so existing servers continue to work. Servers should override this method to read the
+     * typed values directly.
+     *
+     * @param configuration The validated configuration.
+     * @param logger        Used to log error messages.
+     * @since 3.1.0
+     */
+    default void configure(final ServerConfiguration configuration, final Logger logger) {
+        for (final Map.Entry<String, Object> entry : configuration.asMap().entrySet()) {
+            configure(entry.getKey(), entry.getValue(), logger);
+        }
+    }
+
     /**
      * Start the server.
      *
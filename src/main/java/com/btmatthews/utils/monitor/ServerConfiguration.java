@@ -0,0 +1,190 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable snapshot of a server configuration that has been validated against the {@link ConfigurationSchema}
+ * declared by the server factory. The values have already been converted to their declared types so the typed
+ * accessors do not need to parse or cast them.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public final class ServerConfiguration {
+
+    /**
+     * An empty configuration.
+     */
+    public static final ServerConfiguration EMPTY = new ServerConfiguration(Collections.emptyMap());
+    /**
+     * The property values keyed by name.
+     */
+    private final Map<String, Object> values;
+
+    /**
+     * Initialise the configuration snapshot. Use {@link ConfigurationSchema#validate(Map)} to create a snapshot.
+     *
+     * @param values The property values keyed by name.
+     */
+    ServerConfiguration(final Map<String, Object> values) {
+        this.values = Collections.unmodifiableMap(new LinkedHashMap<>(values));
+    }
+
+    /**
+     * Get the names of the properties that have values.
+     *
+     * @return The property names.
+     */
+    public Set<String> getNames() {
+        return values.keySet();
+    }
+
+    /**
+     * Check whether a property has a value.
+     *
+     * @param name The property name.
+     * @return {@code true} if the property has a value.
+     */
+    public boolean contains(final String name) {
+        return values.containsKey(name);
+    }
+
+    /**
+     * Get the value of a property.
+     *
+     * @param name The property name.
+     * @return The property value or {@code null}.
+     */
+    public Object get(final String name) {
+        return values.get(name);
+    }
+
+    /**
+     * Get the value of a property as the specified type.
+     *
+     * @param name The property name.
+     * @param type The expected type.
+     * @param <T>  The expected type.
+     * @return The property value or {@code null}.
+     * @throws ClassCastException If the value is not of the expected type.
+     */
+    public <T> T get(final String name, final Class<T> type) {
+        return type.cast(values.get(name));
+    }
+
+    /**
+     * Get the value of a {@link String} property.
+     *
+     * @param name The property name.
+     * @return The property value or {@code null}.
+     */
+    public String getString(final String name) {
+        return get(name, String.class);
+    }
+
+    /**
+     * Get the value of a {@link Boolean} property.
+     *
+     * @param name         The property name.
+     * @param defaultValue The value returned if the property does not have a value.
+     * @return The property value.
+     */
+    public boolean getBoolean(final String name, final boolean defaultValue) {
+        final Boolean value = get(name, Boolean.class);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Get the value of an {@link Integer} property.
+     *
+     * @param name         The property name.
+     * @param defaultValue The value returned if the property does not have a value.
+     * @return The property value.
+     */
+    public int getInt(final String name, final int defaultValue) {
+        final Integer value = get(name, Integer.class);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Get the value of a {@link Long} property.
+     *
+     * @param name         The property name.
+     * @param defaultValue The value returned if the property does not have a value.
+     * @return The property value.
+     */
+    public long getLong(final String name, final long defaultValue) {
+        final Long value = get(name, Long.class);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Get the value of a {@link File} property.
+     *
+     * @param name The property name.
+     * @return The property value or {@code null}.
+     */
+    public File getFile(final String name) {
+        return get(name, File.class);
+    }
+
+    /**
+     * Get the property values.
+     *
+     * @return An unmodifiable map of the property values keyed by name.
+     */
+    public Map<String, Object> asMap() {
+        return values;
+    }
+
+    /**
+     * Compare with another configuration snapshot.
+     *
+     * @param obj The other object.
+     * @return {@code true} if the other object is a configuration snapshot with the same values.
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof ServerConfiguration && values.equals(((ServerConfiguration) obj).values);
+    }
+
+    /**
+     * Calculate the hash code from the property values.
+     *
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() {
+        return values.hashCode();
+    }
+
+    /**
+     * Render the property values.
+     *
+     * @return The property values.
+     */
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+}
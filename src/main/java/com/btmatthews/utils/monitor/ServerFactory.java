@@ -38,4 +38,15 @@ public interface ServerFactory {
      * @return The newly created server object.
      */
     Server createServer();
+
+    /**
+     * Get the schema used to validate the configuration of the servers created by this factory. The default
+     * implementation returns {@link ConfigurationSchema#ANY} which accepts any configuration.
+     *
+     * @return The configuration schema.
+     * @since 3.1.0
+     */
+    default ConfigurationSchema getConfigurationSchema() {
+        return ConfigurationSchema.ANY;
+    }
 }
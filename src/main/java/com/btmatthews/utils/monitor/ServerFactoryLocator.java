@@ -23,6 +23,8 @@ import java.util.ServiceLoader;
 /**
  * This locator object is a singleton that is used to obtain the factory that
  * will be used to create server objects that can be controlled by a monitor.
+ * The registered factories are not modified after the locator has been
+ * created so the locator can be shared by concurrent mojo executions.
  *
  * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
  * @since 1.0.0
@@ -32,7 +34,7 @@ public final class ServerFactoryLocator {
     /**
      * The singleton instance of the locator.
      */
-    private static ServerFactoryLocator instance;
+    private static volatile ServerFactoryLocator instance;
     /**
      * Registered factories keyed by their server name.
      */
@@ -65,17 +67,25 @@ public final class ServerFactoryLocator {
 
     /**
      * Get the singleton instance of the locator using the specified class loader. If the singleton has not
-     * already been created it will be created and initialised as a side-effect.
+     * already been created it will be created and initialised as a side-effect. This method is safe to call from
+     * concurrent mojo executions and the classpath is only scanned once.
      *
      * @param logger      Used to report status and error messages.
      * @param classLoader The class loader used to scan the classpath for ServerFactory configurations.
      * @return The singleton instance of the locator.
      */
     public static ServerFactoryLocator getInstance(final Logger logger, final ClassLoader classLoader) {
-        if (instance == null) {
-            instance = new ServerFactoryLocator(logger, classLoader);
+        ServerFactoryLocator result = instance;
+        if (result == null) {
+            synchronized (ServerFactoryLocator.class) {
+                result = instance;
+                if (result == null) {
+                    result = new ServerFactoryLocator(logger, classLoader);
+                    instance = result;
+                }
+            }
         }
-        return instance;
+        return result;
     }
 
     /**
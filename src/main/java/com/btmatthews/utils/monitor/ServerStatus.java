@@ -0,0 +1,296 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+/**
+ * An immutable snapshot of the lifecycle state of a server controlled by a monitor. The snapshot is maintained by the
+ * monitor as the server is started and stopped, and optionally refreshed in the background, so that status requests
+ * can be answered without calling into the server. All times are in milliseconds since the epoch and are zero if the
+ * corresponding event has not occurred.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public final class ServerStatus {
+
+    /**
+     * The status of a server that has not been started.
+     */
+    static final ServerStatus INITIAL = new ServerStatus(State.STOPPED, false, 0L, 0L, 0L, 0L);
+    /**
+     * The lifecycle state.
+     */
+    private final State state;
+    /**
+     * The result of the most recent check to see if the server is started.
+     */
+    private final boolean healthy;
+    /**
+     * The time at which the server was asked to start.
+     */
+    private final long startRequestedAt;
+    /**
+     * The time at which the server was found to have started.
+     */
+    private final long startedAt;
+    /**
+     * The time at which the server was found to have stopped.
+     */
+    private final long stoppedAt;
+    /**
+     * The time at which the server was last checked.
+     */
+    private final long lastCheckedAt;
+
+    /**
+     * Initialise the status snapshot.
+     *
+     * @param state            The lifecycle state.
+     * @param healthy          The result of the most recent check to see if the server is started.
+     * @param startRequestedAt The time at which the server was asked to start.
+     * @param startedAt        The time at which the server was found to have started.
+     * @param stoppedAt        The time at which the server was found to have stopped.
+     * @param lastCheckedAt    The time at which the server was last checked.
+     */
+    private ServerStatus(final State state, final boolean healthy, final long startRequestedAt, final long startedAt,
+                         final long stoppedAt, final long lastCheckedAt) {
+        this.state = state;
+        this.healthy = healthy;
+        this.startRequestedAt = startRequestedAt;
+        this.startedAt = startedAt;
+        this.stoppedAt = stoppedAt;
+        this.lastCheckedAt = lastCheckedAt;
+    }
+
+    /**
+     * Create the status of a socket activated server whose ports have been bound but which has not been started.
+     *
+     * @return The new status.
+     * @since 3.1.0
+     */
+    ServerStatus waiting() {
+        return new ServerStatus(State.WAITING, false, 0L, 0L, 0L, lastCheckedAt);
+    }
+
+    /**
+     * Create the status of a server that has been asked to start.
+     *
+     * @param now The current time.
+     * @return The new status.
+     */
+    ServerStatus starting(final long now) {
+        return new ServerStatus(State.STARTING, false, now, 0L, 0L, lastCheckedAt);
+    }
+
+    /**
+     * Create the status of a server that has been found to have started.
+     *
+     * @param now The current time.
+     * @return The new status.
+     */
+    ServerStatus started(final long now) {
+        return new ServerStatus(State.STARTED, true, startRequestedAt, now, 0L, now);
+    }
+
+    /**
+     * Create the status of a server that failed to start or stop.
+     *
+     * @param now The current time.
+     * @return The new status.
+     */
+    ServerStatus failed(final long now) {
+        return new ServerStatus(State.FAILED, false, startRequestedAt, startedAt, stoppedAt, now);
+    }
+
+    /**
+     * Create the status of a server that is being drained before it is stopped.
+     *
+     * @return The new status.
+     * @since 3.1.0
+     */
+    ServerStatus draining() {
+        return new ServerStatus(State.DRAINING, healthy, startRequestedAt, startedAt, 0L, lastCheckedAt);
+    }
+
+    /**
+     * Create the status of a server that has been asked to stop.
+     *
+     * @return The new status.
+     */
+    ServerStatus stopping() {
+        return new ServerStatus(State.STOPPING, healthy, startRequestedAt, startedAt, 0L, lastCheckedAt);
+    }
+
+    /**
+     * Create the status of a server that has been found to have stopped.
+     *
+     * @param now The current time.
+     * @return The new status.
+     */
+    ServerStatus stopped(final long now) {
+        return new ServerStatus(State.STOPPED, false, startRequestedAt, startedAt, now, now);
+    }
+
+    /**
+     * Create the status of a server following a background check.
+     *
+     * @param now     The current time.
+     * @param started The result of the check.
+     * @return The new status.
+     */
+    ServerStatus checked(final long now, final boolean started) {
+        return new ServerStatus(state, started, startRequestedAt, startedAt, stoppedAt, now);
+    }
+
+    /**
+     * Get the lifecycle state.
+     *
+     * @return The lifecycle state.
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Check whether the server is started and the most recent check found it to be healthy.
+     *
+     * @return {@code true} if the server is healthy.
+     */
+    public boolean isHealthy() {
+        return state == State.STARTED && healthy;
+    }
+
+    /**
+     * Get the time at which the server was asked to start.
+     *
+     * @return The time in milliseconds since the epoch or zero.
+     */
+    public long getStartRequestedAt() {
+        return startRequestedAt;
+    }
+
+    /**
+     * Get the time at which the server was found to have started.
+     *
+     * @return The time in milliseconds since the epoch or zero.
+     */
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Get the time at which the server was found to have stopped.
+     *
+     * @return The time in milliseconds since the epoch or zero.
+     */
+    public long getStoppedAt() {
+        return stoppedAt;
+    }
+
+    /**
+     * Get the time at which the server was last checked.
+     *
+     * @return The time in milliseconds since the epoch or zero.
+     */
+    public long getLastCheckedAt() {
+        return lastCheckedAt;
+    }
+
+    /**
+     * Get the time it took for the server to start.
+     *
+     * @return The time in milliseconds or zero if the server has not started.
+     */
+    public long getStartDuration() {
+        return startedAt == 0L ? 0L : startedAt - startRequestedAt;
+    }
+
+    /**
+     * Render the status as a JSON object.
+     *
+     * @return The JSON representation.
+     */
+    public String toJson() {
+        final StringBuilder builder = new StringBuilder("{\"state\":\"").append(state).append('"');
+        builder.append(",\"healthy\":").append(isHealthy());
+        appendTime(builder, "startRequestedAt", startRequestedAt);
+        appendTime(builder, "startedAt", startedAt);
+        appendTime(builder, "startDuration", getStartDuration());
+        appendTime(builder, "stoppedAt", stoppedAt);
+        appendTime(builder, "lastCheckedAt", lastCheckedAt);
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Render the status as a JSON object.
+     *
+     * @return The JSON representation.
+     */
+    @Override
+    public String toString() {
+        return toJson();
+    }
+
+    /**
+     * Append a time to the JSON representation if it is non-zero.
+     *
+     * @param builder The JSON representation.
+     * @param name    The property name.
+     * @param value   The time.
+     */
+    private static void appendTime(final StringBuilder builder, final String name, final long value) {
+        if (value != 0L) {
+            builder.append(",\"").append(name).append("\":").append(value);
+        }
+    }
+
+    /**
+     * The lifecycle states of a server.
+     */
+    public enum State {
+        /**
+         * The server's ports have been bound by the monitor and it will be started by the first connection.
+         *
+         * @since 3.1.0
+         */
+        WAITING,
+        /**
+         * The server has been asked to start.
+         */
+        STARTING,
+        /**
+         * The server has started.
+         */
+        STARTED,
+        /**
+         * The server is completing in-flight work before it is stopped.
+         */
+        DRAINING,
+        /**
+         * The server has been asked to stop.
+         */
+        STOPPING,
+        /**
+         * The server has stopped or has not been started.
+         */
+        STOPPED,
+        /**
+         * The server failed to start or stop.
+         */
+        FAILED
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.nio.channels.ServerSocketChannel;
+import java.util.List;
+
+/**
+ * Implemented by servers that can be socket activated. When socket activation is enabled the monitor binds the
+ * server's service ports itself and defers starting the server until the first connection arrives on one of them.
+ * The bound listeners are then handed to the server which must use them instead of binding its own.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public interface SocketActivatedServer extends Server {
+
+    /**
+     * Hand the listeners bound by the monitor to the server. This is called immediately before
+     * {@link Server#start(Logger)}. The listeners are in blocking mode and the connection that triggered the
+     * activation is waiting to be accepted.
+     *
+     * @param listeners The bound listeners in the order the addresses were specified.
+     * @param logger    Used to log error messages.
+     */
+    void activate(List<ServerSocketChannel> listeners, Logger logger);
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Binds the service ports of a {@link SocketActivatedServer} on behalf of the monitor and waits on a daemon thread for
+ * the first connection to arrive on any of them. The connection is not accepted. Instead, the listeners are switched
+ * back to blocking mode and handed over so the server can accept it once it has started.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+final class SocketActivator {
+
+    /**
+     * The addresses to bind.
+     */
+    private final List<InetSocketAddress> addresses;
+    /**
+     * Called with the listeners when the first connection arrives.
+     */
+    private final Consumer<List<ServerSocketChannel>> activation;
+    /**
+     * Used to log error messages.
+     */
+    private final Logger logger;
+    /**
+     * The bound listeners.
+     */
+    private final List<ServerSocketChannel> listeners = new ArrayList<>();
+    /**
+     * Used to wait for the first connection.
+     */
+    private Selector selector;
+    /**
+     * Set once the server has been activated.
+     */
+    private boolean activated;
+    /**
+     * Set if the activation was cancelled before the first connection arrived.
+     */
+    private boolean cancelled;
+
+    /**
+     * Initialise the activator.
+     *
+     * @param addresses  The addresses to bind.
+     * @param activation Called with the listeners when the first connection arrives.
+     * @param logger     Used to log error messages.
+     */
+    SocketActivator(final List<InetSocketAddress> addresses, final Consumer<List<ServerSocketChannel>> activation,
+                    final Logger logger) {
+        this.addresses = addresses;
+        this.activation = activation;
+        this.logger = logger;
+    }
+
+    /**
+     * Bind the listeners.
+     *
+     * @throws IOException If any of the addresses could not be bound.
+     */
+    synchronized void bind() throws IOException {
+        selector = Selector.open();
+        try {
+            for (final InetSocketAddress address : addresses) {
+                final ServerSocketChannel listener = ServerSocketChannel.open();
+                listeners.add(listener);
+                listener.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+                listener.bind(address);
+                listener.configureBlocking(false);
+                listener.register(selector, SelectionKey.OP_ACCEPT);
+            }
+        } catch (final IOException exception) {
+            close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Get the addresses the listeners are bound to.
+     *
+     * @return The bound addresses.
+     */
+    synchronized List<InetSocketAddress> getLocalAddresses() {
+        final List<InetSocketAddress> result = new ArrayList<>(listeners.size());
+        for (final ServerSocketChannel listener : listeners) {
+            try {
+                result.add((InetSocketAddress) listener.getLocalAddress());
+            } catch (final IOException e) {
+                // The listener has been closed
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Start the daemon thread that waits for the first connection.
+     *
+     * @param name Used to name the thread.
+     */
+    void start(final String name) {
+        final Thread thread = new Thread(this::awaitConnection, "monitor-activator-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop waiting for the first connection. If the server has not been activated the listeners are closed. If the
+     * activation is in progress this does not wait for it to complete so the caller must stop the server.
+     *
+     * @return {@code true} if the server has been or is being activated.
+     */
+    synchronized boolean deactivate() {
+        if (!activated) {
+            cancelled = true;
+            close();
+        }
+        return activated;
+    }
+
+    /**
+     * Wait for the first connection and then activate the server.
+     */
+    private void awaitConnection() {
+        try {
+            while (selector.select() == 0) {
+                if (!selector.isOpen()) {
+                    return;
+                }
+            }
+        } catch (final IOException | ClosedSelectorException e) {
+            return;
+        }
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            activated = true;
+            try {
+                selector.close();
+                for (final ServerSocketChannel listener : listeners) {
+                    listener.configureBlocking(true);
+                }
+            } catch (final IOException exception) {
+                logger.logError("Error activating the server", exception);
+                return;
+            }
+        }
+        try {
+            activation.accept(Collections.unmodifiableList(listeners));
+        } catch (final RuntimeException exception) {
+            logger.logError("Error activating the server", exception);
+        }
+    }
+
+    /**
+     * Close the selector and the listeners.
+     */
+    private void close() {
+        try {
+            if (selector != null) {
+                selector.close();
+            }
+        } catch (final IOException e) {
+            // Ignore errors closing the selector
+        }
+        for (final ServerSocketChannel listener : listeners) {
+            try {
+                listener.close();
+            } catch (final IOException e) {
+                // Ignore errors closing the listener
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The timeline of a server start-up captured by a monitor with start-up profiling enabled. The monitor records the
+ * time taken to bind its listener, the {@link Server#start(Logger)} call, each {@link Server#isStarted(Logger)} probe
+ * and the notification of the observer. Servers can add their own sub-phases through {@link PhaseRecorder}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public final class StartupTimeline implements PhaseRecorder {
+
+    /**
+     * The number of nanoseconds in a millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1000000.0;
+    /**
+     * The key of the monitor that captured the timeline.
+     */
+    private final String monitorKey;
+    /**
+     * The value of {@link System#nanoTime()} when the timeline started.
+     */
+    private final long originNanos;
+    /**
+     * The time at which the timeline started in milliseconds since the epoch.
+     */
+    private final long startedAt;
+    /**
+     * The recorded phases.
+     */
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Start a new timeline.
+     *
+     * @param monitorKey The key of the monitor that is capturing the timeline.
+     */
+    public StartupTimeline(final String monitorKey) {
+        this.monitorKey = monitorKey;
+        this.originNanos = System.nanoTime();
+        this.startedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Record a completed phase.
+     *
+     * @param name       The phase name.
+     * @param startNanos The value of {@link System#nanoTime()} when the phase started.
+     * @param endNanos   The value of {@link System#nanoTime()} when the phase ended.
+     */
+    @Override
+    public synchronized void recordPhase(final String name, final long startNanos, final long endNanos) {
+        entries.add(new Entry(name, startNanos - originNanos, endNanos - startNanos));
+    }
+
+    /**
+     * Get the key of the monitor that captured the timeline.
+     *
+     * @return The monitor key.
+     */
+    public String getMonitorKey() {
+        return monitorKey;
+    }
+
+    /**
+     * Get the time at which the timeline started.
+     *
+     * @return The time in milliseconds since the epoch.
+     */
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Get the recorded phases in the order they completed.
+     *
+     * @return The recorded phases.
+     */
+    public synchronized List<Entry> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    /**
+     * Render the timeline as a JSON object. Offsets and durations are in milliseconds.
+     *
+     * @return The JSON representation.
+     */
+    public String toJson() {
+        final StringBuilder builder = new StringBuilder("{\"monitorKey\":\"").append(escape(monitorKey))
+                .append("\",\"startedAt\":").append(startedAt).append(",\"phases\":[");
+        boolean first = true;
+        for (final Entry entry : getEntries()) {
+            if (!first) {
+                builder.append(',');
+            }
+            first = false;
+            builder.append("{\"name\":\"").append(escape(entry.getName()))
+                    .append("\",\"offset\":").append(millis(entry.getOffsetNanos()))
+                    .append(",\"duration\":").append(millis(entry.getDurationNanos())).append('}');
+        }
+        return builder.append("]}").toString();
+    }
+
+    /**
+     * Render the timeline as a JSON object.
+     *
+     * @return The JSON representation.
+     */
+    @Override
+    public String toString() {
+        return toJson();
+    }
+
+    /**
+     * Format a time in nanoseconds as milliseconds.
+     *
+     * @param nanos The time in nanoseconds.
+     * @return The time in milliseconds.
+     */
+    private static String millis(final long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / NANOS_PER_MILLI);
+    }
+
+    /**
+     * Escape a string for inclusion in a JSON string literal.
+     *
+     * @param value The string.
+     * @return The escaped string.
+     */
+    private static String escape(final String value) {
+        final StringBuilder builder = new StringBuilder(value.length());
+        for (final char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < ' ') {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * A phase in the timeline.
+     */
+    public static final class Entry {
+
+        /**
+         * The phase name.
+         */
+        private final String name;
+        /**
+         * The time at which the phase started relative to the start of the timeline.
+         */
+        private final long offsetNanos;
+        /**
+         * The duration of the phase.
+         */
+        private final long durationNanos;
+
+        /**
+         * Initialise the phase.
+         *
+         * @param name          The phase name.
+         * @param offsetNanos   The time at which the phase started relative to the start of the timeline.
+         * @param durationNanos The duration of the phase.
+         */
+        Entry(final String name, final long offsetNanos, final long durationNanos) {
+            this.name = name;
+            this.offsetNanos = offsetNanos;
+            this.durationNanos = durationNanos;
+        }
+
+        /**
+         * Get the phase name.
+         *
+         * @return The phase name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get the time at which the phase started relative to the start of the timeline.
+         *
+         * @return The offset in nanoseconds.
+         */
+        public long getOffsetNanos() {
+            return offsetNanos;
+        }
+
+        /**
+         * Get the duration of the phase.
+         *
+         * @return The duration in nanoseconds.
+         */
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+/**
+ * Helper methods used to open Unix domain socket channels. The Unix domain socket support was added in Java 16 so the
+ * relevant APIs are accessed reflectively allowing the monitor to continue to run on older Java versions as long as
+ * the Unix domain socket transport is not selected.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+final class UnixDomainSockets {
+
+    /**
+     * The {@code UNIX} protocol family or {@code null} if not supported by the JVM.
+     */
+    private static final ProtocolFamily UNIX = lookupProtocolFamily();
+    /**
+     * The {@code UnixDomainSocketAddress.of(Path)} method or {@code null} if not supported by the JVM.
+     */
+    private static final Method ADDRESS_OF = lookupMethod("java.net.UnixDomainSocketAddress", "of", Path.class);
+    /**
+     * The {@code ServerSocketChannel.open(ProtocolFamily)} method or {@code null} if not supported by the JVM.
+     */
+    private static final Method OPEN_SERVER = lookupMethod(ServerSocketChannel.class.getName(), "open", ProtocolFamily.class);
+    /**
+     * The {@code SocketChannel.open(ProtocolFamily)} method or {@code null} if not supported by the JVM.
+     */
+    private static final Method OPEN_CLIENT = lookupMethod(SocketChannel.class.getName(), "open", ProtocolFamily.class);
+
+    /**
+     * The constructor is private because this class only provides static helper methods.
+     */
+    private UnixDomainSockets() {
+    }
+
+    /**
+     * Check whether the JVM supports Unix domain sockets.
+     *
+     * @return {@code true} if Unix domain sockets are supported.
+     */
+    static boolean isSupported() {
+        return UNIX != null && ADDRESS_OF != null && OPEN_SERVER != null && OPEN_CLIENT != null;
+    }
+
+    /**
+     * Bind a server socket channel to a Unix domain socket. Any stale socket file left behind by a previous monitor is
+     * removed first and the new socket file is restricted to the owner where the file system supports it.
+     *
+     * @param path The path of the socket file.
+     * @return The bound server socket channel.
+     * @throws IOException If there was a problem binding the server socket channel.
+     */
+    static ServerSocketChannel bind(final Path path) throws IOException {
+        Files.deleteIfExists(path);
+        final ServerSocketChannel channel = (ServerSocketChannel) invoke(OPEN_SERVER, UNIX);
+        try {
+            channel.bind(address(path), Monitor.LISTEN_BACKLOG);
+        } catch (final IOException e) {
+            channel.close();
+            throw e;
+        }
+        try {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+        } catch (final UnsupportedOperationException e) {
+            // File system does not support POSIX permissions
+        }
+        return channel;
+    }
+
+    /**
+     * Connect a socket channel to a Unix domain socket.
+     *
+     * @param path The path of the socket file.
+     * @return The connected socket channel.
+     * @throws IOException If there was a problem connecting the socket channel.
+     */
+    static SocketChannel connect(final Path path) throws IOException {
+        final SocketChannel channel = (SocketChannel) invoke(OPEN_CLIENT, UNIX);
+        try {
+            channel.connect(address(path));
+        } catch (final IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * Create the Unix domain socket address for a socket file.
+     *
+     * @param path The path of the socket file.
+     * @return The socket address.
+     * @throws IOException If Unix domain sockets are not supported.
+     */
+    private static SocketAddress address(final Path path) throws IOException {
+        return (SocketAddress) invoke(ADDRESS_OF, path);
+    }
+
+    /**
+     * Invoke one of the static factory methods looked up when this class was initialised.
+     *
+     * @param method   The static method.
+     * @param argument The single argument passed to the method.
+     * @return The result of the method invocation.
+     * @throws IOException If Unix domain sockets are not supported or the method raised an {@link IOException}.
+     */
+    private static Object invoke(final Method method, final Object argument) throws IOException {
+        if (!isSupported()) {
+            throw new IOException("Unix domain sockets require Java 16 or later");
+        }
+        try {
+            return method.invoke(null, argument);
+        } catch (final InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to create Unix domain socket", e.getCause());
+        } catch (final IllegalAccessException e) {
+            throw new IOException("Unable to create Unix domain socket", e);
+        }
+    }
+
+    /**
+     * Lookup the {@code UNIX} protocol family.
+     *
+     * @return The protocol family or {@code null} if not supported.
+     */
+    private static ProtocolFamily lookupProtocolFamily() {
+        try {
+            return StandardProtocolFamily.valueOf("UNIX");
+        } catch (final IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Lookup a public static method.
+     *
+     * @param className     The name of the class that declares the method.
+     * @param methodName    The method name.
+     * @param parameterType The type of the single parameter.
+     * @return The method or {@code null} if not supported.
+     */
+    private static Method lookupMethod(final String className, final String methodName, final Class<?> parameterType) {
+        try {
+            return Class.forName(className).getMethod(methodName, parameterType);
+        } catch (final ClassNotFoundException | NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
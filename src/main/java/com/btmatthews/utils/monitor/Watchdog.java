@@ -0,0 +1,241 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Supervises a server after it has started. The server is polled on the shared scheduler and if it is found to have
+ * crashed it is restarted after an exponentially increasing back-off. If the server is restarted more than the crash
+ * loop limit within the crash loop window the watchdog gives up and leaves the server in the failed state.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+final class Watchdog {
+
+    /**
+     * The server being supervised.
+     */
+    private final Server server;
+    /**
+     * Used to log information and error messages.
+     */
+    private final Logger logger;
+    /**
+     * Notified when the server crashes or is restarted.
+     */
+    private final MonitorObserver observer;
+    /**
+     * The interval in milliseconds between checks.
+     */
+    private final long interval;
+    /**
+     * The time in milliseconds allowed for a restarted server to start before it is checked.
+     */
+    private final long startGrace;
+    /**
+     * The back-off in milliseconds before the first restart.
+     */
+    private final long initialBackoff;
+    /**
+     * The maximum back-off in milliseconds between restarts.
+     */
+    private final long maximumBackoff;
+    /**
+     * The maximum number of restarts allowed within the crash loop window.
+     */
+    private final int crashLoopLimit;
+    /**
+     * The crash loop window in milliseconds.
+     */
+    private final long crashLoopWindow;
+    /**
+     * The cached status of the server.
+     */
+    private final AtomicReference<ServerStatus> status;
+    /**
+     * Used to publish lifecycle events.
+     */
+    private final BiConsumer<MonitorEvent.Type, String> events;
+    /**
+     * The times at which the server was restarted within the crash loop window.
+     */
+    private final Deque<Long> restarts = new ArrayDeque<>();
+    /**
+     * The number of checks that have failed since the server was last found to be started.
+     */
+    private int consecutiveFailures;
+    /**
+     * Set when the server has been restarted but has not yet been found to be started.
+     */
+    private boolean restarting;
+    /**
+     * Set when the watchdog has been cancelled or has given up.
+     */
+    private boolean cancelled;
+    /**
+     * The next scheduled check or restart.
+     */
+    private ScheduledFuture<?> scheduled;
+
+    /**
+     * Initialise the watchdog.
+     *
+     * @param server          The server being supervised.
+     * @param logger          Used to log information and error messages.
+     * @param observer        Notified when the server crashes or is restarted.
+     * @param interval        The interval in milliseconds between checks.
+     * @param startGrace      The time in milliseconds allowed for a restarted server to start.
+     * @param initialBackoff  The back-off in milliseconds before the first restart.
+     * @param maximumBackoff  The maximum back-off in milliseconds between restarts.
+     * @param crashLoopLimit  The maximum number of restarts allowed within the crash loop window.
+     * @param crashLoopWindow The crash loop window in milliseconds.
+     * @param status          The cached status of the server.
+     * @param events          Used to publish lifecycle events.
+     */
+    Watchdog(final Server server, final Logger logger, final MonitorObserver observer, final long interval,
+             final long startGrace, final long initialBackoff, final long maximumBackoff, final int crashLoopLimit,
+             final long crashLoopWindow, final AtomicReference<ServerStatus> status,
+             final BiConsumer<MonitorEvent.Type, String> events) {
+        this.server = server;
+        this.logger = logger;
+        this.observer = observer;
+        this.interval = interval;
+        this.startGrace = startGrace;
+        this.initialBackoff = initialBackoff;
+        this.maximumBackoff = maximumBackoff;
+        this.crashLoopLimit = crashLoopLimit;
+        this.crashLoopWindow = crashLoopWindow;
+        this.status = status;
+        this.events = events;
+    }
+
+    /**
+     * Schedule the first check.
+     */
+    synchronized void start() {
+        schedule(this::check, interval);
+    }
+
+    /**
+     * Stop supervising the server. When this method returns no check or restart is in progress and none will be
+     * started.
+     */
+    synchronized void cancel() {
+        cancelled = true;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+    }
+
+    /**
+     * Check that the server is still started scheduling a restart if it is not.
+     */
+    private synchronized void check() {
+        if (cancelled) {
+            return;
+        }
+        boolean started;
+        try {
+            started = server.isStarted(logger);
+        } catch (final RuntimeException e) {
+            started = false;
+        }
+        final long now = System.currentTimeMillis();
+        if (started) {
+            consecutiveFailures = 0;
+            if (restarting) {
+                restarting = false;
+                status.updateAndGet(current -> current.started(now));
+                events.accept(MonitorEvent.Type.STARTED, "restart");
+                logger.logInfo("Server restarted by the watchdog");
+                observer.restarted(server, logger);
+            }
+            schedule(this::check, interval);
+            return;
+        }
+        ++consecutiveFailures;
+        restarting = false;
+        status.updateAndGet(current -> current.failed(now));
+        events.accept(MonitorEvent.Type.FAILED, "crashed");
+        logger.logError("Server is no longer running");
+        observer.crashed(server, consecutiveFailures, logger);
+        while (!restarts.isEmpty() && now - restarts.peekFirst() > crashLoopWindow) {
+            restarts.removeFirst();
+        }
+        if (restarts.size() >= crashLoopLimit) {
+            cancelled = true;
+            events.accept(MonitorEvent.Type.FAILED, "crash-loop");
+            logger.logError("Server restarted " + restarts.size() + " times within " + crashLoopWindow
+                    + "ms, giving up");
+            return;
+        }
+        schedule(this::restart, getBackoff(consecutiveFailures));
+    }
+
+    /**
+     * Restart the server and schedule a check once it has had time to start.
+     */
+    private synchronized void restart() {
+        if (cancelled) {
+            return;
+        }
+        restarts.addLast(System.currentTimeMillis());
+        restarting = true;
+        status.updateAndGet(current -> current.starting(System.currentTimeMillis()));
+        events.accept(MonitorEvent.Type.STARTING, "restart");
+        logger.logInfo("Restarting server");
+        try {
+            server.start(logger);
+        } catch (final RuntimeException exception) {
+            logger.logError("Error restarting the server", exception);
+        }
+        schedule(this::check, Math.max(interval, startGrace));
+    }
+
+    /**
+     * Calculate the back-off before a restart. The back-off doubles with each consecutive failure up to the
+     * maximum.
+     *
+     * @param failures The number of consecutive failures.
+     * @return The back-off in milliseconds.
+     */
+    long getBackoff(final int failures) {
+        long backoff = initialBackoff;
+        for (int i = 1; i < failures && backoff < maximumBackoff; ++i) {
+            backoff *= 2;
+        }
+        return Math.min(backoff, maximumBackoff);
+    }
+
+    /**
+     * Schedule a task on the shared scheduler.
+     *
+     * @param task  The task.
+     * @param delay The delay in milliseconds.
+     */
+    private void schedule(final Runnable task, final long delay) {
+        scheduled = MonitorScheduler.getExecutor().schedule(task, delay, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor.junit;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Declares that a test class needs a server controlled by a monitor. The server is created by the
+ * {@link com.btmatthews.utils.monitor.ServerFactory} registered for the server type and is started the first time any
+ * test class declares it. Test classes that declare the same type and configuration share the running server, which
+ * is stopped when the test run ends. For example:
+ * <pre>
+ * &#64;MonitoredServer(type = "ldap", config = {"ldapPort=10389", "rootDn=dc=btmatthews,dc=com"})
+ * class TestDirectoryLookup {
+ *     &#64;Test
+ *     void testLookup(final Server server) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ * The annotation can be repeated to declare several servers, which are started in parallel. Declarations on an
+ * enclosing class also apply to its {@code @Nested} test classes.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.ANNOTATION_TYPE})
+@Repeatable(MonitoredServers.class)
+@ExtendWith(MonitoredServerExtension.class)
+public @interface MonitoredServer {
+
+    /**
+     * The server type used to look up the {@link com.btmatthews.utils.monitor.ServerFactory}.
+     *
+     * @return The server type.
+     */
+    String type();
+
+    /**
+     * The server configuration as {@code name=value} pairs that are validated against the server factory's
+     * configuration schema.
+     *
+     * @return The server configuration.
+     */
+    String[] config() default {};
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor.junit;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+
+import com.btmatthews.utils.monitor.InvalidConfigurationException;
+import com.btmatthews.utils.monitor.Logger;
+import com.btmatthews.utils.monitor.Monitor;
+import com.btmatthews.utils.monitor.MonitorObserver;
+import com.btmatthews.utils.monitor.Server;
+import com.btmatthews.utils.monitor.ServerConfiguration;
+import com.btmatthews.utils.monitor.ServerFactory;
+import com.btmatthews.utils.monitor.ServerFactoryLocator;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionConfigurationException;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolutionException;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.junit.platform.commons.support.AnnotationSupport;
+
+/**
+ * Starts the servers declared by {@link MonitoredServer} annotations before the tests in a class are run. Each
+ * distinct combination of server type and configuration is started once per test run and kept in the root
+ * {@link ExtensionContext.Store} so that it is shared by all the test classes that declare it, including test classes
+ * run in parallel. The servers needed by a class are started in parallel and are stopped when the root store is
+ * closed at the end of the test run. Test methods can declare parameters of type {@link Server}, or a sub-type, and
+ * {@link Monitor} to receive the server and the monitor controlling it.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public final class MonitoredServerExtension implements BeforeAllCallback, ParameterResolver {
+
+    /**
+     * The namespace used for the values stored by the extension.
+     */
+    private static final ExtensionContext.Namespace NAMESPACE =
+            ExtensionContext.Namespace.create(MonitoredServerExtension.class);
+    /**
+     * The key used to store the servers needed by a test class in its store.
+     */
+    private static final String CLASS_SERVERS = "servers";
+
+    /**
+     * Start the servers declared for the test class and its enclosing classes that are not already running and wait
+     * for them all to start.
+     *
+     * @param context The extension context for the test class.
+     */
+    @Override
+    public void beforeAll(final ExtensionContext context) {
+        final ExtensionContext.Store rootStore = context.getRoot().getStore(NAMESPACE);
+        final Logger logger = new JulLogger();
+        final ServerFactoryLocator locator = ServerFactoryLocator.getInstance(logger,
+                context.getRequiredTestClass().getClassLoader());
+        final List<RunningServer> servers = new ArrayList<>();
+        for (final MonitoredServer declaration : findDeclarations(context.getRequiredTestClass())) {
+            final ServerFactory factory = locator.getFactory(declaration.type());
+            if (factory == null) {
+                throw new ExtensionConfigurationException("Unknown server type: " + declaration.type());
+            }
+            final ServerConfiguration configuration = validate(factory, declaration);
+            final RunningServer server = rootStore.getOrComputeIfAbsent(
+                    Arrays.asList(declaration.type(), configuration),
+                    key -> RunningServer.start(factory, configuration, logger), RunningServer.class);
+            if (!servers.contains(server)) {
+                servers.add(server);
+            }
+        }
+        for (final RunningServer server : servers) {
+            server.await();
+        }
+        context.getStore(NAMESPACE).put(CLASS_SERVERS, servers);
+    }
+
+    /**
+     * Check whether a parameter is a server or a monitor that can be resolved.
+     *
+     * @param parameterContext The parameter context.
+     * @param extensionContext The extension context.
+     * @return {@code true} if the parameter is a {@link Server} or a {@link Monitor}.
+     */
+    @Override
+    public boolean supportsParameter(final ParameterContext parameterContext,
+                                     final ExtensionContext extensionContext) {
+        final Class<?> type = parameterContext.getParameter().getType();
+        return type == Monitor.class || Server.class.isAssignableFrom(type);
+    }
+
+    /**
+     * Resolve a parameter to the only server needed by the test class that matches the parameter type or to its
+     * monitor.
+     *
+     * @param parameterContext The parameter context.
+     * @param extensionContext The extension context.
+     * @return The server or monitor.
+     * @throws ParameterResolutionException If no server or more than one server matches the parameter type.
+     */
+    @Override
+    public Object resolveParameter(final ParameterContext parameterContext, final ExtensionContext extensionContext) {
+        final Class<?> type = parameterContext.getParameter().getType();
+        final boolean monitor = type == Monitor.class;
+        final List<?> servers = extensionContext.getStore(NAMESPACE).getOrDefault(CLASS_SERVERS, List.class,
+                new ArrayList<>());
+        RunningServer match = null;
+        for (final Object candidate : servers) {
+            final RunningServer server = (RunningServer) candidate;
+            if (monitor || type.isInstance(server.server)) {
+                if (match != null) {
+                    throw new ParameterResolutionException("More than one monitored server matches "
+                            + parameterContext.getParameter());
+                }
+                match = server;
+            }
+        }
+        if (match == null) {
+            throw new ParameterResolutionException("No monitored server matches " + parameterContext.getParameter());
+        }
+        return monitor ? match.monitor : match.server;
+    }
+
+    /**
+     * Find the servers declared for a test class and the classes that enclose it if it is a nested test class.
+     *
+     * @param testClass The test class.
+     * @return The server declarations.
+     */
+    private static List<MonitoredServer> findDeclarations(final Class<?> testClass) {
+        final List<MonitoredServer> declarations = new ArrayList<>();
+        for (Class<?> type = testClass; type != null; type = enclosingTestClass(type)) {
+            declarations.addAll(0, AnnotationSupport.findRepeatableAnnotations(type, MonitoredServer.class));
+        }
+        return declarations;
+    }
+
+    /**
+     * Get the class that encloses a nested test class.
+     *
+     * @param type The test class.
+     * @return The enclosing class or {@code null} if the test class is not nested.
+     */
+    private static Class<?> enclosingTestClass(final Class<?> type) {
+        return Modifier.isStatic(type.getModifiers()) ? null : type.getEnclosingClass();
+    }
+
+    /**
+     * Validate the configuration in a server declaration against the server factory's configuration schema.
+     *
+     * @param factory     The server factory.
+     * @param declaration The server declaration.
+     * @return The validated configuration.
+     * @throws ExtensionConfigurationException If the configuration is not valid.
+     */
+    private static ServerConfiguration validate(final ServerFactory factory, final MonitoredServer declaration) {
+        final Map<String, Object> config = new LinkedHashMap<>();
+        for (final String property : declaration.config()) {
+            final int separator = property.indexOf('=');
+            if (separator <= 0) {
+                throw new ExtensionConfigurationException("Invalid configuration property for server "
+                        + declaration.type() + ": " + property);
+            }
+            config.put(property.substring(0, separator).trim(), property.substring(separator + 1).trim());
+        }
+        try {
+            return factory.getConfigurationSchema().validate(config);
+        } catch (final InvalidConfigurationException e) {
+            throw new ExtensionConfigurationException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A server shared by the test classes for the rest of the test run. It is stopped when the root store is closed.
+     */
+    private static final class RunningServer implements ExtensionContext.Store.CloseableResource, MonitorObserver {
+
+        /**
+         * The server type.
+         */
+        private final String type;
+        /**
+         * The server.
+         */
+        private final Server server;
+        /**
+         * The monitor controlling the server, which listens on an ephemeral port.
+         */
+        private final Monitor monitor;
+        /**
+         * Used to log information and error messages.
+         */
+        private final Logger logger;
+        /**
+         * Completed once the server has started or failed to start.
+         */
+        private CompletableFuture<Boolean> started;
+
+        /**
+         * Initialise the running server.
+         *
+         * @param type   The server type.
+         * @param server The server.
+         * @param logger Used to log information and error messages.
+         */
+        private RunningServer(final String type, final Server server, final Logger logger) {
+            this.type = type;
+            this.server = server;
+            this.monitor = new Monitor(type, 0);
+            this.logger = logger;
+        }
+
+        /**
+         * Create and configure a server and start it without waiting for it to start.
+         *
+         * @param factory       The server factory.
+         * @param configuration The validated server configuration.
+         * @param logger        Used to log information and error messages.
+         * @return The running server.
+         */
+        static RunningServer start(final ServerFactory factory, final ServerConfiguration configuration,
+                                   final Logger logger) {
+            final Server server = factory.createServer();
+            server.configure(configuration, logger);
+            final RunningServer running = new RunningServer(factory.getServerName(), server, logger);
+            running.monitor.setConfiguration(factory.getConfigurationSchema(), configuration);
+            running.started = running.monitor.startAsync(server, logger, running);
+            return running;
+        }
+
+        /**
+         * Wait for the server to start.
+         *
+         * @throws IllegalStateException If the server did not start.
+         */
+        void await() {
+            if (!Boolean.TRUE.equals(started.join())) {
+                throw new IllegalStateException("Server " + type + " did not start");
+            }
+        }
+
+        /**
+         * Stop the server at the end of the test run.
+         */
+        @Override
+        public void close() {
+            if (Boolean.TRUE.equals(started.getNow(Boolean.FALSE))) {
+                monitor.stopAsync(logger).join();
+            }
+        }
+
+        /**
+         * Log that the server has started.
+         *
+         * @param server The server.
+         * @param logger Used to log information messages.
+         */
+        @Override
+        public void started(final Server server, final Logger logger) {
+            logger.logInfo("Started " + type + " server for the test run");
+        }
+
+        /**
+         * Log that the server has stopped.
+         *
+         * @param server The server.
+         * @param logger Used to log information messages.
+         */
+        @Override
+        public void stopped(final Server server, final Logger logger) {
+            logger.logInfo("Stopped " + type + " server");
+        }
+    }
+
+    /**
+     * Logs the messages from the monitor and servers to {@link java.util.logging}. Information messages are logged at
+     * {@link Level#FINE} so that the routine chatter of the monitor does not clutter the test output while errors are
+     * logged at {@link Level#SEVERE}.
+     */
+    private static final class JulLogger implements Logger {
+
+        /**
+         * The underlying logger.
+         */
+        private final java.util.logging.Logger delegate =
+                java.util.logging.Logger.getLogger(MonitoredServerExtension.class.getName());
+
+        /**
+         * Log an information message at {@link Level#FINE}.
+         *
+         * @param message The message.
+         */
+        @Override
+        public void logInfo(final String message) {
+            delegate.fine(message);
+        }
+
+        /**
+         * Log an error message.
+         *
+         * @param message The message.
+         */
+        @Override
+        public void logError(final String message) {
+            delegate.severe(message);
+        }
+
+        /**
+         * Log an error message.
+         *
+         * @param message The message.
+         * @param cause   The exception that caused the error.
+         */
+        @Override
+        public void logError(final String message, final Throwable cause) {
+            delegate.log(Level.SEVERE, message, cause);
+        }
+    }
+}
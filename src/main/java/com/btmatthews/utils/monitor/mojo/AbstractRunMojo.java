@@ -16,18 +16,31 @@
 
 package com.btmatthews.utils.monitor.mojo;
 
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
+import com.btmatthews.utils.monitor.CommandPolicy;
+import com.btmatthews.utils.monitor.InvalidConfigurationException;
 import com.btmatthews.utils.monitor.Logger;
 import com.btmatthews.utils.monitor.Monitor;
+import com.btmatthews.utils.monitor.MonitorListener;
 import com.btmatthews.utils.monitor.MonitorObserver;
 import com.btmatthews.utils.monitor.Server;
+import com.btmatthews.utils.monitor.ServerConfiguration;
 import com.btmatthews.utils.monitor.ServerFactory;
 import com.btmatthews.utils.monitor.ServerFactoryLocator;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Parameter;
 
 /**
  * Abstract base class for mojos that implement the run goal for plug-ins that use the Monitor framework.
+ * <p/>
+ * The mojo keeps no shared mutable state other than the thread-safe {@link ServerCache} so concrete mojos may be
+ * declared {@code threadSafe} and run by parallel reactor builds.
  *
  * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
  * @since 1.1.0
@@ -40,6 +53,120 @@ public abstract class AbstractRunMojo extends AbstractServerMojo implements Moni
     @Parameter(property = "monitor.daemon", defaultValue = "false")
     private boolean daemon;
 
+    /**
+     * The window in milliseconds within which {@code configure} commands sent to a reconfigurable server are
+     * coalesced into a single change.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.reconfigurationWindow", defaultValue = "0")
+    private long reconfigurationWindow;
+
+    /**
+     * If specified the monitor profiles the server start-up and writes the timeline to this file as JSON.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.startupProfile")
+    private File startupProfile;
+
+    /**
+     * If specified and the server supports socket activation the monitor binds these ports itself and only starts
+     * the server when the first connection arrives on one of them.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.activationPorts")
+    private List<Integer> activationPorts;
+
+    /**
+     * If non-zero the server is stopped automatically when the monitor has received no commands or health checks
+     * for this many milliseconds. This reclaims servers abandoned by a build that crashed before the stop goal ran.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.idleTimeout", defaultValue = "0")
+    private long idleTimeout;
+
+    /**
+     * If specified every command received by the monitor is recorded in this memory-mapped journal file, for example
+     * {@code ${project.build.directory}/monitor-journal.bin}, which can be read with
+     * {@link com.btmatthews.utils.monitor.CommandJournalReader}.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.commandJournal")
+    private File commandJournal;
+
+    /**
+     * The number of entries kept in the command journal before the oldest entries are overwritten.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.commandJournalCapacity", defaultValue = "4096")
+    private int commandJournalCapacity;
+
+    /**
+     * Determines how pending {@code configure} commands are handled when a {@code stop} or {@code drain} command is
+     * received. The {@code stop} or {@code drain} command is always executed first. {@code CANCEL} discards the
+     * pending {@code configure} commands and {@code COALESCE} applies the last value received for each property.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.commandPolicy", defaultValue = "COALESCE")
+    private CommandPolicy commandPolicy = CommandPolicy.COALESCE;
+
+    /**
+     * The time in milliseconds to wait for a server that signals its readiness, such as one that announces it in its
+     * log output, to start.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.startTimeout", defaultValue = "60000")
+    private long startTimeout = Monitor.DEFAULT_START_TIMEOUT;
+
+    /**
+     * The interval in milliseconds at which the watchdog checks that the server is still running. Crashed servers
+     * are restarted. The watchdog is disabled if the interval is zero.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.watchdogInterval", defaultValue = "0")
+    private long watchdogInterval;
+
+    /**
+     * The back-off in milliseconds before the watchdog first restarts a crashed server. The back-off doubles with
+     * each consecutive crash.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.restartBackoff", defaultValue = "1000")
+    private long restartBackoff = Monitor.DEFAULT_RESTART_BACKOFF;
+
+    /**
+     * The maximum back-off in milliseconds between restarts.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.maxRestartBackoff", defaultValue = "60000")
+    private long maxRestartBackoff = Monitor.DEFAULT_MAX_RESTART_BACKOFF;
+
+    /**
+     * The maximum number of restarts within the crash loop window before the watchdog gives up.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.crashLoopLimit", defaultValue = "5")
+    private int crashLoopLimit = Monitor.DEFAULT_CRASH_LOOP_LIMIT;
+
+    /**
+     * The crash loop window in milliseconds.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.crashLoopWindow", defaultValue = "600000")
+    private long crashLoopWindow = Monitor.DEFAULT_CRASH_LOOP_WINDOW;
+
     /**
      * Concrete classes should override this method to return the server type name.
      *
@@ -54,6 +181,17 @@ public abstract class AbstractRunMojo extends AbstractServerMojo implements Moni
      */
     public abstract Map<String, Object> getServerConfig();
 
+    /**
+     * Get the listeners that will receive the lifecycle events raised by the monitor. Concrete classes can override
+     * this method to stream events to dashboards or reports. The default implementation returns an empty list.
+     *
+     * @return The listeners.
+     * @since 3.1.0
+     */
+    public List<MonitorListener> getMonitorListeners() {
+        return Collections.emptyList();
+    }
+
     /**
      * This callback is called after the server has started.
      *
@@ -77,32 +215,102 @@ public abstract class AbstractRunMojo extends AbstractServerMojo implements Moni
     }
 
     /**
-     * Execute the Maven goal by creating a the server, configuring it and then running it with the monitor.
+     * Execute the Maven goal by creating a the server, configuring it and then running it with the monitor. The
+     * configuration is validated against the schema declared by the server factory before the server is created.
+     * If {@code monitor.reuse} is enabled in daemon mode and an identical server is already running in this JVM then
+     * that server is shared instead of starting another.
+     *
+     * @throws MojoExecutionException If the server or monitor configuration is invalid.
      */
     @Override
-    public void execute() {
+    public void execute() throws MojoExecutionException {
 
-        // Create the server
+        // Validate the configuration
 
         final ServerFactoryLocator locator = ServerFactoryLocator.getInstance(this);
         final ServerFactory factory = locator.getFactory(getServerType());
-        final Server server = factory.createServer();
+        final ServerConfiguration configuration;
+        try {
+            configuration = factory.getConfigurationSchema().validate(getServerConfig());
+        } catch (final InvalidConfigurationException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
 
-        // Configure the server
+        // Run the server sharing it with other modules if requested
 
-        final Map<String, Object> config = getServerConfig();
-        for (final Map.Entry<String, Object> entry : config.entrySet()) {
-            server.configure(entry.getKey(), entry.getValue(), this);
+        final Monitor monitor;
+        try {
+            monitor = createMonitor();
+        } catch (final IllegalStateException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
         }
+        monitor.setConfiguration(factory.getConfigurationSchema(), configuration);
+        monitor.setReconfigurationWindow(reconfigurationWindow);
+        if (startupProfile != null) {
+            monitor.setStartupProfileFile(startupProfile.toPath());
+        }
+        monitor.setStartTimeout(startTimeout);
+        monitor.setIdleTimeout(idleTimeout);
+        monitor.setCommandPolicy(commandPolicy);
+        if (commandJournal != null) {
+            try {
+                monitor.setCommandJournal(commandJournal.toPath(), commandJournalCapacity);
+            } catch (final IllegalArgumentException e) {
+                throw new MojoExecutionException(e.getMessage(), e);
+            }
+        }
+        if (activationPorts != null) {
+            final List<InetSocketAddress> addresses = new ArrayList<>(activationPorts.size());
+            for (final Integer port : activationPorts) {
+                addresses.add(new InetSocketAddress(port));
+            }
+            monitor.setSocketActivation(addresses);
+        }
+        monitor.setWatchdogInterval(watchdogInterval);
+        monitor.setRestartBackoff(restartBackoff, maxRestartBackoff);
+        monitor.setCrashLoopLimit(crashLoopLimit, crashLoopWindow);
+        for (final MonitorListener listener : getMonitorListeners()) {
+            monitor.addListener(listener);
+        }
+        if (daemon && isMonitorReuse()) {
+            final String hash = ServerCache.hash(getServerType(), configuration);
+            final String alias = getMonitorAlias();
+            if (ServerCache.acquire(hash, alias)) {
+                logInfo("Reusing running server");
+                return;
+            }
+            final Thread monitorThread;
+            try {
+                monitorThread = runServer(factory, configuration, monitor);
+            } catch (final RuntimeException e) {
+                ServerCache.abandon(hash, alias);
+                throw e;
+            }
+            ServerCache.register(hash, alias, monitor, monitorThread);
+        } else {
+            runServer(factory, configuration, monitor);
+        }
+    }
 
-        // Run the monitor
-
-        final Monitor monitor = createMonitor();
+    /**
+     * Create and configure the server and then run it with the monitor.
+     *
+     * @param factory       The factory used to create the server.
+     * @param configuration The validated server configuration.
+     * @param monitor       The monitor used to control the server.
+     * @return The thread running the monitor if the server is run as a daemon or {@code null} if the server was run
+     * in the foreground and has now stopped.
+     * @since 3.1.0
+     */
+    private Thread runServer(final ServerFactory factory, final ServerConfiguration configuration,
+                             final Monitor monitor) {
+        final Server server = factory.createServer();
+        server.configure(configuration, this);
         if (daemon) {
-            monitor.runMonitorDaemon(server, this, this);
-        } else {
-            monitor.runMonitor(server, this, this);
+            return monitor.runMonitorDaemon(server, this, this);
         }
+        monitor.runMonitor(server, this, this);
+        return null;
     }
 }
 
@@ -16,8 +16,11 @@
 
 package com.btmatthews.utils.monitor.mojo;
 
+import java.io.File;
+
 import com.btmatthews.utils.monitor.Logger;
 import com.btmatthews.utils.monitor.Monitor;
+import com.btmatthews.utils.monitor.MonitorAddressResolver;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
@@ -30,10 +33,19 @@ import org.apache.maven.plugins.annotations.Parameter;
 public abstract class AbstractServerMojo extends AbstractMojo implements Logger {
 
     /**
-     * The port to listen on for the monitor commands.
+     * The port to listen on for the monitor commands. Required unless {@link #monitorSocketPath} is specified or
+     * {@link #monitorEphemeral} is enabled.
      */
-    @Parameter(property = "monitor.port", required = true)
+    @Parameter(property = "monitor.port")
     private int monitorPort;
+    /**
+     * The path of the Unix domain socket to listen on for the monitor commands. If specified this is used instead
+     * of the TCP {@link #monitorPort}. Unix domain sockets require Java 16 or later.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.socketPath")
+    private File monitorSocketPath;
     /**
      * Key to provide when sending commands to the mail apache.
      */
@@ -53,14 +65,168 @@ public abstract class AbstractServerMojo extends AbstractMojo implements Logger
      */
     @Parameter(property = "monitor.retryInterval", defaultValue = "500")
     private int monitorRetryInterval;
+    /**
+     * If {@code true} the monitor only binds and connects to the loopback address avoiding the need to resolve the
+     * local host address.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.loopback", defaultValue = "false")
+    private boolean monitorLoopback;
+    /**
+     * The time in milliseconds for which the resolved local host address is cached.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.addressCacheTtl", defaultValue = "60000")
+    private long monitorAddressCacheTtl = MonitorAddressResolver.DEFAULT_TTL;
+    /**
+     * If {@code true} the monitor listens on an ephemeral port instead of {@link #monitorPort}. The port and key are
+     * published to the {@link #monitorHandoffFile} from where they are read by the stop goal.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.ephemeral", defaultValue = "false")
+    private boolean monitorEphemeral;
+    /**
+     * The file to which the port and key are published when the monitor listens on an ephemeral port.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.handoffFile", defaultValue = "${project.build.directory}/monitor.handoff")
+    private File monitorHandoffFile;
+    /**
+     * If {@code true} the monitor registers with a monitor broker listening on {@link #monitorPort} or
+     * {@link #monitorSocketPath} instead of listening for commands itself.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.brokered", defaultValue = "false")
+    private boolean monitorBrokered;
+    /**
+     * The secret presented when the monitor registers with a monitor broker that requires one.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.registrationSecret")
+    private String monitorRegistrationSecret;
+    /**
+     * If {@code true} the monitor also answers HTTP {@code GET /health} requests on its listener.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.healthEndpoint", defaultValue = "false")
+    private boolean monitorHealthEndpoint;
+    /**
+     * The interval in milliseconds at which the monitor refreshes the cached server status or zero to disable the
+     * background refresh.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.statusRefreshInterval", defaultValue = "0")
+    private long monitorStatusRefreshInterval;
+    /**
+     * If {@code true} a server started in daemon mode is shared with other modules in the same build that run a
+     * server of the same type with the same configuration. The server is stopped when the last module using it runs
+     * the stop goal.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.reuse", defaultValue = "false")
+    private boolean monitorReuse;
 
     /**
      * Create the monitor object tha is used to control a server.
      *
      * @return A {@link Monitor} object.
+     * @throws IllegalStateException If none of {@code monitor.port}, {@code monitor.socketPath} or
+     *                               {@code monitor.ephemeral} was specified.
      */
     public Monitor createMonitor() {
-        return new Monitor(monitorKey, monitorPort, monitorRetryCount, monitorRetryInterval);
+        if (monitorSocketPath != null) {
+            final Monitor monitor = new Monitor(monitorKey, monitorSocketPath.toPath(), monitorRetryCount,
+                    monitorRetryInterval);
+            monitor.setBrokered(monitorBrokered);
+            monitor.setRegistrationSecret(monitorRegistrationSecret);
+            monitor.setHealthEndpoint(monitorHealthEndpoint);
+            monitor.setStatusRefreshInterval(monitorStatusRefreshInterval);
+            return monitor;
+        }
+        if (monitorEphemeral) {
+            final Monitor monitor = createMonitor(monitorKey, 0);
+            monitor.setHandoffFile(monitorHandoffFile.toPath());
+            return monitor;
+        }
+        if (monitorPort <= 0) {
+            throw new IllegalStateException(
+                    "One of monitor.port, monitor.socketPath or monitor.ephemeral must be specified");
+        }
+        return createMonitor(monitorKey, monitorPort);
+    }
+
+    /**
+     * Create the monitor object that is used to control a server listening on a TCP port.
+     *
+     * @param key  The monitor key.
+     * @param port The monitor port.
+     * @return A {@link Monitor} object.
+     * @since 3.1.0
+     */
+    protected Monitor createMonitor(final String key, final int port) {
+        final Monitor monitor = new Monitor(key, port, monitorRetryCount, monitorRetryInterval);
+        monitor.setAddressResolver(new MonitorAddressResolver(monitorAddressCacheTtl, monitorLoopback));
+        monitor.setBrokered(monitorBrokered);
+        monitor.setRegistrationSecret(monitorRegistrationSecret);
+        monitor.setHealthEndpoint(monitorHealthEndpoint);
+        monitor.setStatusRefreshInterval(monitorStatusRefreshInterval);
+        return monitor;
+    }
+
+    /**
+     * Check whether servers are shared between modules that run identical servers.
+     *
+     * @return {@code true} if servers are shared.
+     * @since 3.1.0
+     */
+    protected boolean isMonitorReuse() {
+        return monitorReuse;
+    }
+
+    /**
+     * Get an alias that identifies the monitor endpoint configured for this module. This is used to track the
+     * modules holding a reference to a shared server.
+     *
+     * @return The monitor alias.
+     * @since 3.1.0
+     */
+    protected String getMonitorAlias() {
+        if (monitorSocketPath != null) {
+            return monitorKey + "@" + monitorSocketPath.getAbsolutePath();
+        }
+        if (monitorEphemeral) {
+            return monitorKey + "@" + monitorHandoffFile.getAbsolutePath();
+        }
+        return monitorKey + "@" + monitorPort;
+    }
+
+    /**
+     * Check whether the monitor listens on an ephemeral port.
+     *
+     * @return {@code true} if the monitor listens on an ephemeral port.
+     * @since 3.1.0
+     */
+    protected boolean isMonitorEphemeral() {
+        return monitorEphemeral;
+    }
+
+    /**
+     * Get the file to which the port and key are published when the monitor listens on an ephemeral port.
+     *
+     * @return The handoff file.
+     * @since 3.1.0
+     */
+    protected File getMonitorHandoffFile() {
+        return monitorHandoffFile;
     }
 
     /**
@@ -16,23 +16,150 @@
 
 package com.btmatthews.utils.monitor.mojo;
 
+import java.io.IOException;
+import java.util.List;
+
 import com.btmatthews.utils.monitor.Monitor;
+import com.btmatthews.utils.monitor.MonitorFanout;
+import com.btmatthews.utils.monitor.MonitorHandoff;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Parameter;
 
 /**
- * Implements the stop goal for plug-ins that use the Monitor framework.
+ * Implements the stop goal for plug-ins that use the Monitor framework. The mojo keeps no shared mutable state other
+ * than the thread-safe {@link ServerCache} so concrete mojos may be declared {@code threadSafe}.
  *
  * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
  * @since 1.1.0
  */
 public class AbstractStopMojo extends AbstractServerMojo {
 
+    /**
+     * If {@code true} the server is drained before it is stopped so that in-flight work can complete.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.drain", defaultValue = "false")
+    private boolean drain;
+
+    /**
+     * The deadline in milliseconds for in-flight work to complete when draining the server.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.drainTimeout", defaultValue = "30000")
+    private long drainTimeout = Monitor.DEFAULT_DRAIN_TIMEOUT;
+
+    /**
+     * If specified the {@code stop} or {@code drain} command is sent concurrently to each of these monitors instead
+     * of the monitor configured for this goal. Each endpoint is specified as {@code key:port}.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.endpoints")
+    private List<String> endpoints;
+
+    /**
+     * The time in milliseconds to wait for each of the {@code monitor.endpoints} to stop its server. When draining
+     * this should be longer than {@code monitor.drainTimeout}.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "monitor.endpointTimeout", defaultValue = "30000")
+    private long endpointTimeout = MonitorFanout.DEFAULT_TIMEOUT;
+
     /**
      * Stop a running an embedded server by sending a {@code stop} command to the monitor that is controlling that
-     * server.
+     * server. If the monitor is listening on an ephemeral port then the port and key are read from the handoff file.
+     * If the server is shared with other modules then the reference held by this module is released and the server
+     * is only stopped when the last reference is released. If {@code monitor.drain} is enabled the server is drained
+     * before it is stopped and the progress is logged. If {@code monitor.endpoints} is specified the command is sent to
+     * all of those monitors concurrently instead.
+     *
+     * @throws MojoExecutionException If the monitor endpoint was not specified.
      */
     @Override
-    public void execute() {
-        final Monitor monitor = createMonitor();
-        monitor.sendCommand("stop", this);
+    public void execute() throws MojoExecutionException {
+        if (endpoints != null && !endpoints.isEmpty()) {
+            stopEndpoints();
+            return;
+        }
+        final Monitor monitor;
+        if (isMonitorReuse() && ServerCache.isCached(getMonitorAlias())) {
+            monitor = ServerCache.release(getMonitorAlias());
+            if (monitor == null) {
+                logInfo("Server is still in use by other modules");
+                return;
+            }
+        } else if (isMonitorEphemeral()) {
+            final MonitorHandoff handoff;
+            try {
+                handoff = MonitorHandoff.read(getMonitorHandoffFile().toPath());
+            } catch (final IOException exception) {
+                logError("Error reading monitor handoff file", exception);
+                return;
+            }
+            monitor = createMonitor(handoff.getKey(), handoff.getPort());
+        } else {
+            try {
+                monitor = createMonitor();
+            } catch (final IllegalStateException e) {
+                throw new MojoExecutionException(e.getMessage(), e);
+            }
+        }
+        if (drain) {
+            logProgress(monitor.sendRequest("drain " + drainTimeout, this));
+        } else {
+            monitor.sendCommand("stop", this);
+        }
+    }
+
+    /**
+     * Send the {@code stop} or {@code drain} command to all the {@code monitor.endpoints} concurrently and log the
+     * outcome for each of them.
+     *
+     * @since 3.1.0
+     */
+    private void stopEndpoints() {
+        final MonitorFanout fanout = new MonitorFanout();
+        fanout.setTimeout(endpointTimeout);
+        for (final String endpoint : endpoints) {
+            final int separator = endpoint.lastIndexOf(':');
+            try {
+                fanout.addEndpoint(endpoint.substring(0, separator),
+                        Integer.parseInt(endpoint.substring(separator + 1)));
+            } catch (final IndexOutOfBoundsException | NumberFormatException e) {
+                logError("Invalid monitor endpoint \"" + endpoint + "\"");
+            }
+        }
+        for (final MonitorFanout.Result result : fanout.send(drain ? "drain " + drainTimeout : "stop", this)) {
+            switch (result.getStatus()) {
+                case OK:
+                    logProgress(result.getResponse());
+                    logInfo(result.toString());
+                    break;
+                case FAILED:
+                    logError("Error sending command to monitor " + result.getKey() + " on port " + result.getPort(),
+                            result.getCause());
+                    break;
+                default:
+                    logError(result.toString());
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Log the progress reported by a monitor while draining its server.
+     *
+     * @param progress The progress lines or {@code null}.
+     * @since 3.1.0
+     */
+    private void logProgress(final String progress) {
+        if (progress != null && !progress.isEmpty()) {
+            for (final String line : progress.split("\n")) {
+                logInfo(line);
+            }
+        }
     }
 }
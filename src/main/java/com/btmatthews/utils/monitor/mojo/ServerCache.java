@@ -0,0 +1,235 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor.mojo;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+import com.btmatthews.utils.monitor.Monitor;
+import com.btmatthews.utils.monitor.ServerConfiguration;
+
+/**
+ * A JVM-wide cache of the servers started by run goals in daemon mode. Servers are keyed by a stable hash of the
+ * server type and configuration so that modules in a reactor build that run an identical server share a single
+ * instance. Each module acquires a reference under its own monitor alias and the server is only stopped when the
+ * last reference is released.
+ * <p/>
+ * The cache is safe for use by parallel reactor builds. The first module to acquire a hash starts the server while
+ * any other modules acquiring the same hash wait for it to be registered. Servers with different hashes are started
+ * concurrently.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public final class ServerCache {
+
+    /**
+     * The cached servers keyed by the hash of their type and configuration.
+     */
+    private static final Map<String, Entry> ENTRIES = new HashMap<>();
+    /**
+     * The cached servers keyed by the monitor aliases of the modules that hold a reference.
+     */
+    private static final Map<String, Entry> ALIASES = new HashMap<>();
+
+    /**
+     * The constructor is private because this class only provides static methods.
+     */
+    private ServerCache() {
+    }
+
+    /**
+     * Calculate a stable hash of the server type and configuration. The hash does not depend on the order of the
+     * configuration properties.
+     *
+     * @param serverType    The server type.
+     * @param configuration The validated server configuration.
+     * @return The hash as a hexadecimal string.
+     */
+    public static String hash(final String serverType, final ServerConfiguration configuration) {
+        final StringBuilder builder = new StringBuilder(serverType);
+        for (final Map.Entry<String, Object> entry : new TreeMap<>(configuration.asMap()).entrySet()) {
+            builder.append('\n').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(builder.toString().getBytes(StandardCharsets.UTF_8));
+            final StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (final byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Acquire a reference to a running server with a matching hash. If another module is starting a matching server
+     * then this method waits until that server has been registered.
+     *
+     * @param hash  The hash of the server type and configuration.
+     * @param alias The monitor alias of the module acquiring the reference.
+     * @return {@code true} if a running server was found and a reference acquired or {@code false} if the caller
+     * must start the server and then either {@link #register(String, String, Monitor, Thread) register} it or
+     * {@link #abandon(String, String) abandon} the attempt.
+     */
+    public static boolean acquire(final String hash, final String alias) {
+        while (true) {
+            final Entry entry;
+            synchronized (ServerCache.class) {
+                final Entry existing = ENTRIES.get(hash);
+                if (existing == null || existing.isStopped()) {
+                    final Entry placeholder = new Entry(hash);
+                    ENTRIES.put(hash, placeholder);
+                    ALIASES.put(alias, placeholder);
+                    return false;
+                }
+                entry = existing;
+                if (ALIASES.put(alias, entry) != entry) {
+                    entry.references++;
+                }
+            }
+            if (entry.ready.join()) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Register a server that has just been started by a run goal in daemon mode after {@link #acquire(String, String)}
+     * returned {@code false}.
+     *
+     * @param hash    The hash of the server type and configuration.
+     * @param alias   The monitor alias of the module that started the server.
+     * @param monitor The monitor controlling the server.
+     * @param thread  The thread running the monitor.
+     */
+    public static void register(final String hash, final String alias, final Monitor monitor,
+                                final Thread thread) {
+        final Entry entry;
+        synchronized (ServerCache.class) {
+            final Entry existing = ALIASES.get(alias);
+            if (existing != null && existing.hash.equals(hash) && !existing.ready.isDone()) {
+                entry = existing;
+            } else {
+                entry = new Entry(hash);
+                ENTRIES.put(hash, entry);
+                ALIASES.put(alias, entry);
+            }
+            entry.monitor = monitor;
+            entry.thread = thread;
+        }
+        entry.ready.complete(Boolean.TRUE);
+    }
+
+    /**
+     * Abandon an attempt to start a server after {@link #acquire(String, String)} returned {@code false}. Any modules
+     * waiting for the server will try to start it themselves.
+     *
+     * @param hash  The hash of the server type and configuration.
+     * @param alias The monitor alias of the module that tried to start the server.
+     */
+    public static void abandon(final String hash, final String alias) {
+        final Entry entry;
+        synchronized (ServerCache.class) {
+            entry = ALIASES.get(alias);
+            if (entry == null || !entry.hash.equals(hash)) {
+                return;
+            }
+            ENTRIES.remove(hash, entry);
+            ALIASES.values().removeIf(value -> value == entry);
+        }
+        entry.ready.complete(Boolean.FALSE);
+    }
+
+    /**
+     * Check whether a module holds a reference to a cached server.
+     *
+     * @param alias The monitor alias of the module.
+     * @return {@code true} if the module holds a reference.
+     */
+    public static synchronized boolean isCached(final String alias) {
+        return ALIASES.containsKey(alias);
+    }
+
+    /**
+     * Release the reference to a cached server held by a module.
+     *
+     * @param alias The monitor alias of the module.
+     * @return The monitor controlling the server if this was the last reference and the server should be stopped or
+     * {@code null} if the server is still in use or the module did not hold a reference.
+     */
+    public static synchronized Monitor release(final String alias) {
+        final Entry entry = ALIASES.remove(alias);
+        if (entry == null || --entry.references > 0) {
+            return null;
+        }
+        ENTRIES.remove(entry.hash, entry);
+        return entry.monitor;
+    }
+
+    /**
+     * A cached server.
+     */
+    private static final class Entry {
+
+        /**
+         * The hash of the server type and configuration.
+         */
+        private final String hash;
+        /**
+         * Completed with {@code true} when the server has been registered or {@code false} if it was abandoned.
+         */
+        private final CompletableFuture<Boolean> ready = new CompletableFuture<>();
+        /**
+         * The monitor controlling the server.
+         */
+        private Monitor monitor;
+        /**
+         * The thread running the monitor.
+         */
+        private Thread thread;
+        /**
+         * The number of modules holding a reference.
+         */
+        private int references = 1;
+
+        /**
+         * Initialise the cache entry for a server that is being started.
+         *
+         * @param hash The hash of the server type and configuration.
+         */
+        Entry(final String hash) {
+            this.hash = hash;
+        }
+
+        /**
+         * Check whether the server has been registered and its monitor has since exited.
+         *
+         * @return {@code true} if the server has stopped.
+         */
+        boolean isStopped() {
+            return ready.isDone() && (thread == null || !thread.isAlive());
+        }
+    }
+}
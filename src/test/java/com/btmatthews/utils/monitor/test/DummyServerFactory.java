@@ -16,6 +16,8 @@
 
 package com.btmatthews.utils.monitor.test;
 
+import com.btmatthews.utils.monitor.ConfigurationProperty;
+import com.btmatthews.utils.monitor.ConfigurationSchema;
 import com.btmatthews.utils.monitor.Server;
 import com.btmatthews.utils.monitor.ServerFactory;
 
@@ -48,4 +50,15 @@ public class DummyServerFactory implements ServerFactory {
     public Server createServer() {
         return new DummyServer();
     }
+
+    /**
+     * Returns the schema for the dummy server configuration which only accepts the {@code debug} property.
+     *
+     * @return The configuration schema.
+     * @see ServerFactory#getConfigurationSchema()
+     */
+    @Override
+    public ConfigurationSchema getConfigurationSchema() {
+        return new ConfigurationSchema(ConfigurationProperty.optional("debug", Boolean.class, Boolean.FALSE));
+    }
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor.test;
+
+/**
+ * Records latencies in buckets whose width grows with the value so that percentiles can be reported to within about
+ * 1.5% of the recorded values using a fixed amount of memory, in the style of HdrHistogram. Values below 128 are
+ * recorded exactly and above that each power of two is divided into 64 buckets. A histogram is not thread safe so
+ * each client records into its own histogram and they are combined with {@link #add(LatencyHistogram)}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public final class LatencyHistogram {
+
+    /**
+     * The number of values below which values are recorded exactly.
+     */
+    private static final int EXACT_LIMIT = 128;
+    /**
+     * The number of buckets each power of two is divided into above {@link #EXACT_LIMIT}.
+     */
+    private static final int SUB_BUCKETS = 64;
+    /**
+     * The number of bits used to select a sub-bucket.
+     */
+    private static final int SUB_BUCKET_BITS = 6;
+    /**
+     * The number of buckets needed to record any non-negative {@code long}.
+     */
+    private static final int BUCKETS = EXACT_LIMIT + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    /**
+     * The number of values recorded in each bucket.
+     */
+    private final long[] counts = new long[BUCKETS];
+    /**
+     * The total number of values recorded.
+     */
+    private long totalCount;
+    /**
+     * The smallest value recorded.
+     */
+    private long min = Long.MAX_VALUE;
+    /**
+     * The largest value recorded.
+     */
+    private long max;
+    /**
+     * The sum of the values recorded.
+     */
+    private long sum;
+
+    /**
+     * Record a value. Negative values are recorded as zero.
+     *
+     * @param value The value.
+     */
+    public void record(final long value) {
+        final long recorded = Math.max(0L, value);
+        ++counts[indexOf(recorded)];
+        ++totalCount;
+        sum += recorded;
+        min = Math.min(min, recorded);
+        max = Math.max(max, recorded);
+    }
+
+    /**
+     * Add the values recorded in another histogram to this one.
+     *
+     * @param other The other histogram.
+     */
+    public void add(final LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; ++i) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Get the number of values recorded.
+     *
+     * @return The number of values.
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Get the smallest value recorded.
+     *
+     * @return The smallest value or zero if no values have been recorded.
+     */
+    public long getMin() {
+        return totalCount == 0L ? 0L : min;
+    }
+
+    /**
+     * Get the largest value recorded.
+     *
+     * @return The largest value or zero if no values have been recorded.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Get the mean of the values recorded.
+     *
+     * @return The mean or zero if no values have been recorded.
+     */
+    public double getMean() {
+        return totalCount == 0L ? 0.0 : (double) sum / totalCount;
+    }
+
+    /**
+     * Get the value at or below which the given percentage of the recorded values fall. The value reported is the
+     * largest value that would be recorded in the same bucket, capped at the largest value recorded.
+     *
+     * @param percentile The percentile between 0 and 100.
+     * @return The value at the percentile or zero if no values have been recorded.
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (totalCount == 0L) {
+            return 0L;
+        }
+        final long target = Math.max(1L, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * totalCount));
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(max, highestEquivalentValue(i));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Get the bucket in which a value is recorded.
+     *
+     * @param value The non-negative value.
+     * @return The bucket index.
+     */
+    static int indexOf(final long value) {
+        if (value < EXACT_LIMIT) {
+            return (int) value;
+        }
+        final int shift = Long.SIZE - SUB_BUCKET_BITS - 1 - Long.numberOfLeadingZeros(value);
+        return EXACT_LIMIT + (shift - 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Get the largest value that is recorded in a bucket.
+     *
+     * @param index The bucket index.
+     * @return The largest value in the bucket.
+     */
+    static long highestEquivalentValue(final int index) {
+        if (index < EXACT_LIMIT) {
+            return index;
+        }
+        final int shift = (index - EXACT_LIMIT) / SUB_BUCKETS + 1;
+        final long subBucket = (index - EXACT_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1L) << shift) - 1L;
+    }
+}
@@ -0,0 +1,499 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor.test;
+
+import com.btmatthews.utils.monitor.Logger;
+import com.btmatthews.utils.monitor.Monitor;
+import com.btmatthews.utils.monitor.MonitorObserver;
+import com.btmatthews.utils.monitor.Server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a monitor with many concurrent clients sending a weighted mix of commands and reports the throughput, the
+ * latency percentiles and the number of errors. Each client opens a new connection for every request, as
+ * {@link Monitor#sendCommand(String, int, String, Logger)} does, and a request is counted as an error if the
+ * connection fails or the response is not the one expected for the command. The test suite runs a short soak as a
+ * regression gate for changes to the monitor's listener and client and a longer run can be started from the command
+ * line:
+ * <pre>
+ * java -cp target/classes:target/test-classes com.btmatthews.utils.monitor.test.MonitorLoadGenerator 1000 100 10001
+ * </pre>
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public final class MonitorLoadGenerator {
+
+    /**
+     * The timeout in milliseconds for connecting to and reading from the monitor.
+     */
+    private static final int SOCKET_TIMEOUT = 30000;
+    /**
+     * The prefix of the response to a {@code status} command for a started server.
+     */
+    private static final String STARTED_STATUS = "{\"state\":\"STARTED\"";
+    /**
+     * The monitor key.
+     */
+    private final String monitorKey;
+    /**
+     * The address of the monitor.
+     */
+    private final InetSocketAddress address;
+    /**
+     * The relative frequency of each operation.
+     */
+    private final Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+    /**
+     * The number of concurrent clients.
+     */
+    private int clients = 100;
+    /**
+     * The number of requests sent by each client.
+     */
+    private int requestsPerClient = 100;
+    /**
+     * The delay in milliseconds between each byte sent by a slow client.
+     */
+    private long slowClientDelay = 5L;
+    /**
+     * The seed used to choose the operations so that runs are repeatable.
+     */
+    private long seed = 1L;
+
+    /**
+     * Initialise the load generator with the default mix of 70% {@code status}, 20% {@code configure}, 5% invalid key
+     * and 5% slow client requests.
+     *
+     * @param monitorKey The monitor key.
+     * @param port       The port on which the monitor is listening on the loopback interface.
+     */
+    public MonitorLoadGenerator(final String monitorKey, final int port) {
+        this.monitorKey = monitorKey;
+        this.address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        weights.put(Operation.STATUS, 70);
+        weights.put(Operation.CONFIGURE, 20);
+        weights.put(Operation.INVALID_KEY, 5);
+        weights.put(Operation.SLOW_CLIENT, 5);
+    }
+
+    /**
+     * Run a load test from the command line against a monitor controlling a {@link DummyServer}. The optional
+     * arguments are the number of clients, the number of requests per client and the monitor port.
+     *
+     * @param args The command line arguments.
+     * @throws Exception If the load test could not be run.
+     */
+    public static void main(final String[] args) throws Exception {
+        final int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        final int requests = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        final int port = args.length > 2 ? Integer.parseInt(args[2]) : 10001;
+        final Logger logger = new QuietLogger();
+        final Monitor monitor = new Monitor("load", port);
+        final Thread monitorThread = monitor.runMonitorDaemon(new DummyServer(), logger, new MonitorObserver() {
+            @Override
+            public void started(final Server server, final Logger logger) {
+            }
+
+            @Override
+            public void stopped(final Server server, final Logger logger) {
+            }
+        });
+        final MonitorLoadGenerator generator = new MonitorLoadGenerator("load", port);
+        generator.setClients(clients);
+        generator.setRequestsPerClient(requests);
+        final Result result = generator.run();
+        System.out.println(result);
+        Monitor.sendCommand("load", port, "stop", logger);
+        monitorThread.join(SOCKET_TIMEOUT);
+        if (result.getErrors() > 0L) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Set the number of concurrent clients.
+     *
+     * @param count The number of clients.
+     */
+    public void setClients(final int count) {
+        clients = count;
+    }
+
+    /**
+     * Set the number of requests sent by each client.
+     *
+     * @param count The number of requests.
+     */
+    public void setRequestsPerClient(final int count) {
+        requestsPerClient = count;
+    }
+
+    /**
+     * Set the relative frequency of an operation. A weight of zero disables the operation.
+     *
+     * @param operation The operation.
+     * @param weight    The relative frequency.
+     */
+    public void setWeight(final Operation operation, final int weight) {
+        weights.put(operation, weight);
+    }
+
+    /**
+     * Set the delay between each byte sent by a slow client.
+     *
+     * @param delay The delay in milliseconds.
+     */
+    public void setSlowClientDelay(final long delay) {
+        slowClientDelay = delay;
+    }
+
+    /**
+     * Set the seed used to choose the operations.
+     *
+     * @param value The seed.
+     */
+    public void setSeed(final long value) {
+        seed = value;
+    }
+
+    /**
+     * Run the load test. The clients are released together once they have all been started.
+     *
+     * @return The combined results of all the clients.
+     * @throws InterruptedException If the load test was interrupted.
+     */
+    public Result run() throws InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            final CountDownLatch ready = new CountDownLatch(clients);
+            final CountDownLatch go = new CountDownLatch(1);
+            final List<Future<Result>> futures = new ArrayList<>(clients);
+            for (int i = 0; i < clients; ++i) {
+                final Random random = new Random(seed + i);
+                futures.add(executor.submit(() -> {
+                    ready.countDown();
+                    go.await();
+                    return runClient(random);
+                }));
+            }
+            ready.await();
+            final long startTime = System.nanoTime();
+            go.countDown();
+            final Result result = new Result();
+            for (final Future<Result> future : futures) {
+                try {
+                    result.add(future.get());
+                } catch (final ExecutionException e) {
+                    result.errors += requestsPerClient;
+                }
+            }
+            result.elapsed = System.nanoTime() - startTime;
+            return result;
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(SOCKET_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Send the requests for one client.
+     *
+     * @param random Used to choose the operations.
+     * @return The results for the client.
+     * @throws InterruptedException If the client was interrupted.
+     */
+    private Result runClient(final Random random) throws InterruptedException {
+        final Result result = new Result();
+        int totalWeight = 0;
+        for (final int weight : weights.values()) {
+            totalWeight += weight;
+        }
+        for (int i = 0; i < requestsPerClient; ++i) {
+            final Operation operation = choose(random.nextInt(totalWeight));
+            final long startTime = System.nanoTime();
+            boolean succeeded;
+            try {
+                succeeded = send(operation);
+            } catch (final IOException e) {
+                succeeded = false;
+            }
+            result.latencies.record(System.nanoTime() - startTime);
+            result.operations.merge(operation, 1L, Long::sum);
+            if (!succeeded) {
+                ++result.errors;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Choose the operation corresponding to a point in the total weight.
+     *
+     * @param point A value between zero and the total weight.
+     * @return The operation.
+     */
+    private Operation choose(final int point) {
+        int remaining = point;
+        for (final Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            remaining -= entry.getValue();
+            if (remaining < 0) {
+                return entry.getKey();
+            }
+        }
+        return Operation.STATUS;
+    }
+
+    /**
+     * Send a request and check the response.
+     *
+     * @param operation The operation.
+     * @return {@code true} if the response was the one expected.
+     * @throws IOException          If there was a problem communicating with the monitor.
+     * @throws InterruptedException If a slow client was interrupted.
+     */
+    private boolean send(final Operation operation) throws IOException, InterruptedException {
+        switch (operation) {
+            case CONFIGURE:
+                return exchange(monitorKey + "\nconfigure load=true\n", 0L).isEmpty();
+            case INVALID_KEY:
+                return exchange(monitorKey.toUpperCase(Locale.ROOT) + "-invalid\nstop\n", 0L).isEmpty();
+            case SLOW_CLIENT:
+                return exchange(monitorKey + "\nstatus\n", slowClientDelay).startsWith(STARTED_STATUS);
+            default:
+                return exchange(monitorKey + "\nstatus\n", 0L).startsWith(STARTED_STATUS);
+        }
+    }
+
+    /**
+     * Send a request on a new connection and read the response until the monitor closes the connection.
+     *
+     * @param request The request.
+     * @param delay   If non-zero the request is sent a byte at a time with this delay in milliseconds between them.
+     * @return The response.
+     * @throws IOException          If there was a problem communicating with the monitor.
+     * @throws InterruptedException If a slow client was interrupted.
+     */
+    private String exchange(final String request, final long delay) throws IOException, InterruptedException {
+        try (Socket socket = new Socket()) {
+            socket.connect(address, SOCKET_TIMEOUT);
+            socket.setSoTimeout(SOCKET_TIMEOUT);
+            socket.setTcpNoDelay(true);
+            final byte[] bytes = request.getBytes(StandardCharsets.US_ASCII);
+            final OutputStream output = socket.getOutputStream();
+            if (delay == 0L) {
+                output.write(bytes);
+            } else {
+                for (final byte b : bytes) {
+                    output.write(b);
+                    output.flush();
+                    Thread.sleep(delay);
+                }
+            }
+            output.flush();
+            final InputStream input = socket.getInputStream();
+            final ByteArrayOutputStream response = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[512];
+            for (int count = input.read(buffer); count >= 0; count = input.read(buffer)) {
+                response.write(buffer, 0, count);
+            }
+            return new String(response.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * The kinds of request sent by the clients.
+     */
+    public enum Operation {
+        /**
+         * Request the server status.
+         */
+        STATUS,
+        /**
+         * Configure a server property.
+         */
+        CONFIGURE,
+        /**
+         * Send a command with an invalid monitor key, which the monitor must reject without a response.
+         */
+        INVALID_KEY,
+        /**
+         * Request the server status sending the request a byte at a time.
+         */
+        SLOW_CLIENT
+    }
+
+    /**
+     * The results of a load test.
+     */
+    public static final class Result {
+
+        /**
+         * The request latencies in nanoseconds.
+         */
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        /**
+         * The number of requests sent for each operation.
+         */
+        private final Map<Operation, Long> operations = new EnumMap<>(Operation.class);
+        /**
+         * The number of requests that failed.
+         */
+        private long errors;
+        /**
+         * The elapsed time in nanoseconds.
+         */
+        private long elapsed;
+
+        /**
+         * Add the results for a client.
+         *
+         * @param other The results for the client.
+         */
+        private void add(final Result other) {
+            latencies.add(other.latencies);
+            other.operations.forEach((operation, count) -> operations.merge(operation, count, Long::sum));
+            errors += other.errors;
+        }
+
+        /**
+         * Get the request latencies.
+         *
+         * @return The latencies in nanoseconds.
+         */
+        public LatencyHistogram getLatencies() {
+            return latencies;
+        }
+
+        /**
+         * Get the number of requests sent.
+         *
+         * @return The number of requests.
+         */
+        public long getRequests() {
+            return latencies.getTotalCount();
+        }
+
+        /**
+         * Get the number of requests sent for an operation.
+         *
+         * @param operation The operation.
+         * @return The number of requests.
+         */
+        public long getRequests(final Operation operation) {
+            return operations.getOrDefault(operation, 0L);
+        }
+
+        /**
+         * Get the number of requests that failed.
+         *
+         * @return The number of errors.
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * Get the throughput.
+         *
+         * @return The number of requests per second.
+         */
+        public double getThroughput() {
+            return elapsed == 0L ? 0.0 : getRequests() * (double) TimeUnit.SECONDS.toNanos(1L) / elapsed;
+        }
+
+        /**
+         * Describe the results.
+         *
+         * @return The report.
+         */
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "requests=%d errors=%d throughput=%.1f/s latency(ms) min=%.3f p50=%.3f p90=%.3f p99=%.3f "
+                            + "p99.9=%.3f max=%.3f mix=%s",
+                    getRequests(), errors, getThroughput(), millis(latencies.getMin()),
+                    millis(latencies.getValueAtPercentile(50.0)), millis(latencies.getValueAtPercentile(90.0)),
+                    millis(latencies.getValueAtPercentile(99.0)), millis(latencies.getValueAtPercentile(99.9)),
+                    millis(latencies.getMax()), operations);
+        }
+
+        /**
+         * Convert nanoseconds to milliseconds.
+         *
+         * @param nanos The time in nanoseconds.
+         * @return The time in milliseconds.
+         */
+        private static double millis(final long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1L);
+        }
+    }
+
+    /**
+     * A logger that discards the messages logged by the monitor during a command line run.
+     */
+    private static final class QuietLogger implements Logger {
+
+        /**
+         * Discard an information message.
+         *
+         * @param message The message.
+         */
+        @Override
+        public void logInfo(final String message) {
+        }
+
+        /**
+         * Discard an error message.
+         *
+         * @param message The message.
+         */
+        @Override
+        public void logError(final String message) {
+        }
+
+        /**
+         * Discard an error message.
+         *
+         * @param message The message.
+         * @param cause   The exception that caused the error.
+         */
+        @Override
+        public void logError(final String message, final Throwable cause) {
+        }
+    }
+}
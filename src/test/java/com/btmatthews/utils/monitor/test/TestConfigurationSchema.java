@@ -0,0 +1,96 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor.test;
+
+import com.btmatthews.utils.monitor.ConfigurationProperty;
+import com.btmatthews.utils.monitor.ConfigurationSchema;
+import com.btmatthews.utils.monitor.InvalidConfigurationException;
+import com.btmatthews.utils.monitor.ServerConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit test the validation of server configuration against a {@link ConfigurationSchema}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+class TestConfigurationSchema {
+
+    /**
+     * The schema used by the test cases.
+     */
+    private final ConfigurationSchema schema = new ConfigurationSchema(
+            ConfigurationProperty.required("port", Integer.class),
+            ConfigurationProperty.optional("debug", Boolean.class, Boolean.FALSE),
+            ConfigurationProperty.optional("timeout", Long.class),
+            ConfigurationProperty.optional("root", File.class));
+
+    /**
+     * Verify that string values are converted to the declared types and defaults are applied.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testValidConfiguration() throws Exception {
+        final Map<String, Object> config = new HashMap<>();
+        config.put("port", "8080");
+        config.put("timeout", 30);
+        config.put("root", "target/www");
+        final ServerConfiguration configuration = schema.validate(config);
+        assertThat(configuration.getInt("port", 0)).isEqualTo(8080);
+        assertThat(configuration.getBoolean("debug", true)).isFalse();
+        assertThat(configuration.getLong("timeout", 0L)).isEqualTo(30L);
+        assertThat(configuration.getFile("root")).isEqualTo(new File("target/www"));
+        assertThat(configuration.getNames()).containsExactlyInAnyOrder("port", "debug", "timeout", "root");
+    }
+
+    /**
+     * Verify that all the problems with an invalid configuration are reported.
+     */
+    @Test
+    void testInvalidConfiguration() {
+        final Map<String, Object> config = new HashMap<>();
+        config.put("debug", "yes");
+        config.put("host", "localhost");
+        assertThatThrownBy(() -> schema.validate(config))
+                .isInstanceOfSatisfying(InvalidConfigurationException.class, e ->
+                        assertThat(e.getProblems()).containsExactlyInAnyOrder(
+                                "Property debug must be of type Boolean",
+                                "Unknown property host",
+                                "Missing required property port"));
+    }
+
+    /**
+     * Verify that the permissive schema passes values through unchanged.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testAnySchema() throws Exception {
+        final Map<String, Object> config = new HashMap<>();
+        config.put("anything", "goes");
+        assertThat(ConfigurationSchema.ANY.validate(config).asMap()).isEqualTo(config);
+        assertThat(ConfigurationSchema.ANY.validate(null)).isEqualTo(ServerConfiguration.EMPTY);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor.test;
+
+import com.btmatthews.utils.monitor.ConfigurationSchema;
+import com.btmatthews.utils.monitor.ExternalProcessServer;
+import com.btmatthews.utils.monitor.ExternalProcessServerFactory;
+import com.btmatthews.utils.monitor.Logger;
+import com.btmatthews.utils.monitor.Monitor;
+import com.btmatthews.utils.monitor.MonitorObserver;
+import com.btmatthews.utils.monitor.Server;
+import com.btmatthews.utils.monitor.ServerFactoryLocator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit test the server that runs an external process.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+@ExtendWith(MockitoExtension.class)
+@EnabledOnOs({OS.LINUX, OS.MAC})
+public class TestExternalProcessServer {
+
+    /**
+     * Mock the logger test fixture.
+     */
+    @Mock
+    private Logger logger;
+
+    /**
+     * Verify that the output of the process is logged and that the process is terminated when the server is stopped.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testProcessOutput() throws Exception {
+        final Server server = createServer("sh -c 'echo hello; echo oops 1>&2; exec sleep 30'", 10000L);
+        server.start(logger);
+        assertThat(server.isStarted(logger)).isTrue();
+        verify(logger, timeout(5000L)).logInfo("hello");
+        verify(logger, timeout(5000L)).logError("oops");
+        server.stop(logger);
+        waitForStop(server);
+        assertThat(server.isStopped(logger)).isTrue();
+        assertThat(server.isStarted(logger)).isFalse();
+    }
+
+    /**
+     * Verify that a process that ignores the request to terminate is killed once the stop timeout has expired.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testStopEscalation() throws Exception {
+        final Server server = createServer("sh -c 'trap \"\" TERM; echo ready; while true; do sleep 1; done'", 200L);
+        server.start(logger);
+        verify(logger, timeout(5000L)).logInfo("ready");
+        server.stop(logger);
+        verify(logger, timeout(5000L)).logError("Process did not stop within 200ms, killing it");
+        waitForStop(server);
+        assertThat(server.isStopped(logger)).isTrue();
+    }
+
+    /**
+     * Verify that the monitor treats the server as started as soon as the ready marker is written, even before the
+     * end of the line.
+     *
+     * @param observer The mock observer.
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testReadyMarker(@Mock final MonitorObserver observer) throws Exception {
+        final Server server = createServer("sh -c 'echo starting; sleep 1; printf \"Server started\"; exec sleep 30'",
+                10000L);
+        server.configure(ExternalProcessServer.READY_MARKERS, "Server started|listening", logger);
+        final Monitor monitor = new Monitor("test", 10000);
+        final CompletableFuture<Boolean> started = monitor.startAsync(server, logger, observer);
+        verify(logger, timeout(5000L)).logInfo("starting");
+        assertThat(server.isStarted(logger)).isFalse();
+        assertThat(started.get(10L, TimeUnit.SECONDS)).isTrue();
+        assertThat(server.isStarted(logger)).isTrue();
+        assertThat(monitor.stopAsync(logger).get(10L, TimeUnit.SECONDS)).isTrue();
+        verify(observer).stopped(server, logger);
+    }
+
+    /**
+     * Create an external process server using the factory registered with the locator.
+     *
+     * @param command     The command line.
+     * @param stopTimeout The stop timeout.
+     * @return The configured server.
+     * @throws Exception If the configuration is invalid.
+     */
+    private Server createServer(final String command, final long stopTimeout) throws Exception {
+        final ExternalProcessServerFactory factory = (ExternalProcessServerFactory)
+                ServerFactoryLocator.getInstance(logger).getFactory(ExternalProcessServerFactory.SERVER_NAME);
+        final ConfigurationSchema schema = factory.getConfigurationSchema();
+        final Map<String, Object> config = new HashMap<>();
+        config.put(ExternalProcessServer.COMMAND, command);
+        config.put(ExternalProcessServer.STOP_TIMEOUT, Long.toString(stopTimeout));
+        final Server server = factory.createServer();
+        server.configure(schema.validate(config), logger);
+        return server;
+    }
+
+    /**
+     * Wait up to five seconds for the server to stop.
+     *
+     * @param server The server.
+     * @throws InterruptedException If the thread was interrupted.
+     */
+    private void waitForStop(final Server server) throws InterruptedException {
+        for (int i = 0; i < 50 && !server.isStopped(logger); ++i) {
+            Thread.sleep(100L);
+        }
+    }
+}
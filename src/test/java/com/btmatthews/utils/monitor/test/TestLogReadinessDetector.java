@@ -0,0 +1,89 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor.test;
+
+import com.btmatthews.utils.monitor.LogReadinessDetector;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test the detector that scans log output for readiness markers.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public class TestLogReadinessDetector {
+
+    /**
+     * Verify that a ready marker split across chunks is found and that overlapping markers do not hide it.
+     */
+    @Test
+    void testReadyMarkerAcrossChunks() {
+        final LogReadinessDetector detector = new LogReadinessDetector(
+                Arrays.asList("Server started", "started on port"), Collections.singletonList("FATAL"),
+                StandardCharsets.UTF_8);
+        scan(detector, "INFO Server sta");
+        assertThat(detector.getResult()).isNotDone();
+        scan(detector, "rting\nINFO Server st");
+        assertThat(detector.getResult()).isNotDone();
+        scan(detector, "arted on port 8080\n");
+        assertThat(detector.getResult()).isCompletedWithValue(true);
+        assertThat(detector.getMatchedMarker()).isEqualTo("Server started");
+    }
+
+    /**
+     * Verify that a failure marker completes the detection with {@code false} and that later output is ignored.
+     */
+    @Test
+    void testFailureMarker() {
+        final LogReadinessDetector detector = new LogReadinessDetector(
+                Collections.singletonList("READY"), Arrays.asList("Address already in use", "FATAL"),
+                StandardCharsets.UTF_8);
+        final LogReadinessDetector.Scanner stderr = detector.newScanner();
+        scan(detector, "binding to port 8080 Address ");
+        stderr.scan(bytes("FAT"), 0, 3);
+        scan(detector, "already in use\nREADY\n");
+        assertThat(detector.getResult()).isCompletedWithValue(false);
+        assertThat(detector.getMatchedMarker()).isEqualTo("Address already in use");
+    }
+
+    /**
+     * Scan a chunk of output.
+     *
+     * @param detector The detector.
+     * @param text     The output.
+     */
+    private static void scan(final LogReadinessDetector detector, final String text) {
+        final byte[] bytes = bytes(text);
+        detector.scan(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Encode output as bytes.
+     *
+     * @param text The output.
+     * @return The bytes.
+     */
+    private static byte[] bytes(final String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
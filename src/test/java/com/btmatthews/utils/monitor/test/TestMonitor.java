@@ -16,22 +16,61 @@
 
 package com.btmatthews.utils.monitor.test;
 
+import com.btmatthews.utils.monitor.CommandJournal;
+import com.btmatthews.utils.monitor.CommandJournalReader;
+import com.btmatthews.utils.monitor.CommandPolicy;
+import com.btmatthews.utils.monitor.ConfigurationChange;
+import com.btmatthews.utils.monitor.ConfigurationSchema;
+import com.btmatthews.utils.monitor.DrainableServer;
 import com.btmatthews.utils.monitor.Logger;
 import com.btmatthews.utils.monitor.Monitor;
+import com.btmatthews.utils.monitor.MonitorEvent;
 import com.btmatthews.utils.monitor.MonitorObserver;
+import com.btmatthews.utils.monitor.PhaseRecorder;
+import com.btmatthews.utils.monitor.ReconfigurableServer;
 import com.btmatthews.utils.monitor.Server;
+import com.btmatthews.utils.monitor.ServerStatus;
+import com.btmatthews.utils.monitor.StartupTimeline;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -89,6 +128,217 @@ public class TestMonitor extends AbstractMonitorTest {
         verifyNoMoreInteractions(logger, server, observer);
     }
 
+    /**
+     * Verify that a server can be started and stopped using the asynchronous API.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testMonitorAsync() throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(false, true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        final Monitor monitor = new Monitor("test", 10000);
+        final CompletableFuture<Boolean> started = monitor.startAsync(server, logger, observer);
+        assertThat(started.get(10L, TimeUnit.SECONDS)).isTrue();
+        verify(observer, timeout(5000L)).started(server, logger);
+        assertThat(monitor.stopAsync(logger).get(10L, TimeUnit.SECONDS)).isTrue();
+        verify(server).start(logger);
+        verify(server, times(2)).isStarted(logger);
+        verify(server).stop(logger);
+        verify(server).isStopped(logger);
+        verify(observer).stopped(server, logger);
+    }
+
+    /**
+     * Verify that the server is stopped once the monitor has been idle for the idle timeout and that activity
+     * postpones the timeout.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testMonitorIdleTimeout() throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        final Monitor monitor = new Monitor("test", 10000);
+        monitor.setIdleTimeout(1000L);
+        final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+        Thread.sleep(600L);
+        assertThat(new Monitor("test", 10000).sendRequest("status", logger)).startsWith("{\"state\":\"STARTED\"");
+        Thread.sleep(600L);
+        verify(server, never()).stop(logger);
+        monitorThread.join(15000L);
+        assertThat(monitorThread.isAlive()).isFalse();
+        verify(logger).logInfo("No activity for 1000ms, stopping idle server");
+        verify(server).stop(logger);
+        verify(observer).stopped(server, logger);
+    }
+
+    /**
+     * Verify that in-flight work reported by a drainable server postpones the idle timeout.
+     *
+     * @param drainableServer Mock server that reports its in-flight work.
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testMonitorIdleTimeoutWithInFlightWork(@Mock final DrainableServer drainableServer) throws Exception {
+        final AtomicInteger inFlight = new AtomicInteger(1);
+        when(drainableServer.isStarted(any(Logger.class))).thenReturn(true);
+        when(drainableServer.isStopped(any(Logger.class))).thenReturn(true);
+        when(drainableServer.getInFlightCount(any(Logger.class))).thenAnswer(invocation -> inFlight.get());
+        final Monitor monitor = new Monitor("test", 10000);
+        monitor.setIdleTimeout(500L);
+        final Thread monitorThread = monitor.runMonitorDaemon(drainableServer, logger, observer);
+        Thread.sleep(1500L);
+        verify(drainableServer, never()).stop(logger);
+        inFlight.set(0);
+        monitorThread.join(15000L);
+        assertThat(monitorThread.isAlive()).isFalse();
+        verify(logger).logInfo("No activity for 500ms, stopping idle server");
+        verify(drainableServer).stop(logger);
+        verify(observer).stopped(drainableServer, logger);
+    }
+
+    /**
+     * Verify that a failure to get the in-flight count is logged and does not prevent the idle timeout from stopping
+     * the server.
+     *
+     * @param drainableServer Mock server whose in-flight count cannot be determined.
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testMonitorIdleTimeoutWithFailingProbe(@Mock final DrainableServer drainableServer) throws Exception {
+        final IllegalStateException failure = new IllegalStateException("probe failed");
+        when(drainableServer.isStarted(any(Logger.class))).thenReturn(true);
+        when(drainableServer.isStopped(any(Logger.class))).thenReturn(true);
+        when(drainableServer.getInFlightCount(any(Logger.class))).thenThrow(failure);
+        final Monitor monitor = new Monitor("test", 10000);
+        monitor.setIdleTimeout(500L);
+        final Thread monitorThread = monitor.runMonitorDaemon(drainableServer, logger, observer);
+        monitorThread.join(15000L);
+        assertThat(monitorThread.isAlive()).isFalse();
+        verify(logger, atLeastOnce()).logError("Error getting the in-flight count", failure);
+        verify(logger).logInfo("No activity for 500ms, stopping idle server");
+        verify(drainableServer).stop(logger);
+        verify(observer).stopped(drainableServer, logger);
+    }
+
+    /**
+     * Verify that the commands received by the monitor are recorded in the command journal and that the oldest
+     * entries are overwritten when the journal is full.
+     *
+     * @param tempDir A temporary directory for the journal file.
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testMonitorCommandJournal(@TempDir final Path tempDir) throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        final Path journalFile = tempDir.resolve("monitor.journal");
+        final Monitor monitor = new Monitor("test", 10000);
+        monitor.setCommandJournal(journalFile, 2);
+        final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+        runWithDelay(() -> {
+            new Monitor("test", 10000).sendRequest("status", logger);
+            new Monitor("test", 10000).sendRequest("bogus", logger);
+            Monitor.sendCommand("test", 10000, "stop", logger);
+        });
+        monitorThread.join(15000L);
+        final List<CommandJournalReader.Entry> entries = CommandJournalReader.read(journalFile);
+        assertThat(entries).hasSize(2);
+        assertThat(entries.get(0).getSequence()).isEqualTo(1L);
+        assertThat(entries.get(0).getVerb()).isEqualTo("bogus");
+        assertThat(entries.get(0).getOutcome()).isEqualTo(CommandJournal.Outcome.UNRECOGNISED);
+        assertThat(entries.get(1).getSequence()).isEqualTo(2L);
+        assertThat(entries.get(1).getVerb()).isEqualTo("stop");
+        assertThat(entries.get(1).getOutcome()).isEqualTo(CommandJournal.Outcome.OK);
+        assertThat(entries.get(1).getSource()).startsWith("/127.0.0.1:");
+        assertThat(entries.get(1).getLatency()).isGreaterThan(0L);
+        verify(server).stop(logger);
+    }
+
+    /**
+     * Verify that a command journal without any entries is rejected.
+     *
+     * @param tempDir A temporary directory for the journal file.
+     */
+    @Test
+    void testCommandJournalCapacity(@TempDir final Path tempDir) {
+        final Path journalFile = tempDir.resolve("monitor.journal");
+        assertThatThrownBy(() -> new Monitor("test", 10000).setCommandJournal(journalFile, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CommandJournal.open(journalFile, -1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Verify that a stop command received with a flood of configure commands preempts them and that the pending
+     * configure commands are cancelled.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testCommandPolicyCancel() throws Exception {
+        final Thread monitorThread = floodMonitor(CommandPolicy.CANCEL);
+        verify(server).configure("first", "1", logger);
+        verify(server, never()).configure(eq("debug"), any(), any(Logger.class));
+        verify(server).stop(logger);
+        verify(logger).logInfo("Cancelled 20 configure commands superseded by a lifecycle command");
+        assertThat(monitorThread.isAlive()).isFalse();
+    }
+
+    /**
+     * Verify that a stop command received with a flood of configure commands preempts them and that the pending
+     * configure commands are coalesced to the last value for each property and applied first by default.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testCommandPolicyCoalesce() throws Exception {
+        final Thread monitorThread = floodMonitor(null);
+        final InOrder inOrder = inOrder(server);
+        inOrder.verify(server).configure("first", "1", logger);
+        inOrder.verify(server).configure("debug", "19", logger);
+        inOrder.verify(server).stop(logger);
+        verify(server, times(2)).configure(anyString(), any(), any(Logger.class));
+        verify(logger).logInfo("Coalesced 19 configure commands superseded by a lifecycle command");
+        assertThat(monitorThread.isAlive()).isFalse();
+    }
+
+    /**
+     * Run a monitor with a command policy and send it a flood of configure commands followed by a stop command while
+     * it is busy executing the first configure command so that they are all received together.
+     *
+     * @param policy The command policy or {@code null} to use the default.
+     * @return The monitor thread after it has finished.
+     * @throws Exception If the monitor could not be run.
+     */
+    private Thread floodMonitor(final CommandPolicy policy) throws Exception {
+        final CountDownLatch busy = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        doAnswer(invocation -> {
+            busy.countDown();
+            return release.await(10L, TimeUnit.SECONDS);
+        }).when(server).configure(eq("first"), any(), any(Logger.class));
+        final Monitor monitor = new Monitor("test", 10000);
+        if (policy != null) {
+            monitor.setCommandPolicy(policy);
+        }
+        final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+        verify(observer, timeout(5000L)).started(server, logger);
+        Monitor.sendCommand("test", 10000, "configure first=1", logger);
+        assertThat(busy.await(10L, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 20; ++i) {
+            Monitor.sendCommand("test", 10000, "configure debug=" + i, logger);
+        }
+        Monitor.sendCommand("test", 10000, "stop", logger);
+        Thread.sleep(500L);
+        release.countDown();
+        monitorThread.join(15000L);
+        return monitorThread;
+    }
+
     /**
      * Verify that a server can be configured via the monitor.
      *
@@ -101,7 +351,7 @@ public class TestMonitor extends AbstractMonitorTest {
         final Monitor monitor = new Monitor("test", 10000);
         final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
         runWithDelay(() -> {
-            Monitor.sendCommand("test", 10000, "configure debug=off", logger);
+            new Monitor("test", 10000).sendRequest("configure debug=off", logger);
             Monitor.sendCommand("test", 10000, "stop", logger);
         });
         monitorThread.join(15000L);
@@ -119,6 +369,193 @@ public class TestMonitor extends AbstractMonitorTest {
         verifyNoMoreInteractions(logger, server, observer);
     }
 
+    /**
+     * Verify that configuration changes sent to a reconfigurable server are diffed and coalesced.
+     *
+     * @param reconfigurableServer The mock reconfigurable server.
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testMonitorReconfigure(@Mock final ReconfigurableServer reconfigurableServer) throws Exception {
+        when(reconfigurableServer.isStarted(any(Logger.class))).thenReturn(true);
+        when(reconfigurableServer.isStopped(any(Logger.class))).thenReturn(true);
+        final Monitor monitor = new Monitor("test", 10000);
+        monitor.setConfiguration(ConfigurationSchema.ANY,
+                ConfigurationSchema.ANY.validate(Collections.singletonMap("debug", "off")));
+        monitor.setReconfigurationWindow(60000L);
+        final Thread monitorThread = monitor.runMonitorDaemon(reconfigurableServer, logger, observer);
+        runWithDelay(() -> {
+            Monitor.sendCommand("test", 10000, "configure debug=off", logger);
+            Monitor.sendCommand("test", 10000, "configure level=3", logger);
+            Monitor.sendCommand("test", 10000, "configure level=4", logger);
+            Monitor.sendCommand("test", 10000, "stop", logger);
+        });
+        monitorThread.join(15000L);
+        final ArgumentCaptor<ConfigurationChange> change = ArgumentCaptor.forClass(ConfigurationChange.class);
+        verify(reconfigurableServer).reconfigure(change.capture(), eq(logger));
+        assertThat(change.getValue().getChangedNames()).containsExactly("level");
+        assertThat(change.getValue().getCurrent().get("level")).isEqualTo("4");
+        verify(reconfigurableServer, never()).configure(anyString(), any(), any(Logger.class));
+        verify(reconfigurableServer).stop(logger);
+    }
+
+    /**
+     * Verify that lifecycle events are delivered to every registered listener and that a listener that throws an
+     * exception is logged once without preventing delivery to the others.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testMonitorEvents() throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        final Monitor monitor = new Monitor("test", 10000);
+        final List<MonitorEvent> events1 = new CopyOnWriteArrayList<>();
+        final List<MonitorEvent> events2 = new CopyOnWriteArrayList<>();
+        monitor.addListener(event -> {
+            throw new IllegalStateException("listener failed");
+        });
+        monitor.addListener(events1::add);
+        monitor.addListener(events2::add);
+        final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+        runWithDelay(() -> {
+            Monitor.sendCommand("test", 10000, "configure debug=off", logger);
+            Monitor.sendCommand("test", 10000, "stop", logger);
+        });
+        monitorThread.join(15000L);
+        for (int i = 0; i < 50 && events2.size() < 7; i++) {
+            Thread.sleep(100L);
+        }
+        assertThat(events1).extracting(MonitorEvent::getType).containsExactly(
+                MonitorEvent.Type.STARTING,
+                MonitorEvent.Type.STARTED,
+                MonitorEvent.Type.COMMAND_RECEIVED,
+                MonitorEvent.Type.CONFIGURING,
+                MonitorEvent.Type.COMMAND_RECEIVED,
+                MonitorEvent.Type.STOPPING,
+                MonitorEvent.Type.STOPPED);
+        assertThat(events2).isEqualTo(events1);
+        assertThat(events1.get(3).getDetail()).isEqualTo("debug");
+        assertThat(events1.get(6).getNanoTime()).isGreaterThan(events1.get(0).getNanoTime());
+        assertThat(monitor.getDroppedEvents()).isZero();
+        verify(logger).logError(eq("Error delivering event to listener"), any(IllegalStateException.class));
+    }
+
+    /**
+     * Verify that the start-up timeline is captured including sub-phases reported by the server.
+     *
+     * @param tempDir Temporary directory used to hold the start-up profile.
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testStartupProfiling(@TempDir final Path tempDir) throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        doAnswer(invocation -> {
+            final PhaseRecorder recorder = invocation.getArgument(0);
+            final PhaseRecorder.Phase phase = recorder.beginPhase("warm-up");
+            try {
+                Thread.sleep(10L);
+            } finally {
+                phase.close();
+            }
+            return null;
+        }).when(server).start(any(Logger.class));
+        final Path profile = tempDir.resolve("startup.json");
+        final Monitor monitor = new Monitor("test", 10000);
+        monitor.setStartupProfileFile(profile);
+        final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+        runWithDelay(() -> Monitor.sendCommand("test", 10000, "stop", logger));
+        monitorThread.join(15000L);
+        final StartupTimeline timeline = monitor.getStartupTimeline();
+        assertThat(timeline.getEntries()).extracting(StartupTimeline.Entry::getName)
+                .containsExactly("bind", "warm-up", "start", "probe-1", "observer");
+        assertThat(timeline.getEntries().get(1).getDurationNanos()).isGreaterThanOrEqualTo(10000000L);
+        assertThat(new String(Files.readAllBytes(profile), StandardCharsets.UTF_8)).startsWith("{\"monitorKey\":\"test\"").contains("\"name\":\"warm-up\"");
+        verify(server).stop(logger);
+    }
+
+    /**
+     * Verify that a drainable server is drained before it is stopped and the progress is reported to the client.
+     *
+     * @param drainableServer The mock drainable server.
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testMonitorDrain(@Mock final DrainableServer drainableServer) throws Exception {
+        when(drainableServer.isStarted(any(Logger.class))).thenReturn(true);
+        when(drainableServer.isStopped(any(Logger.class))).thenReturn(true);
+        when(drainableServer.getInFlightCount(any(Logger.class))).thenReturn(2, 2, 1, 0);
+        final Monitor monitor = new Monitor("test", 10000);
+        final AtomicReference<String> response = new AtomicReference<>();
+        final Thread monitorThread = monitor.runMonitorDaemon(drainableServer, logger, observer);
+        final CountDownLatch received = new CountDownLatch(1);
+        runWithDelay(() -> {
+            response.set(new Monitor("test", 10000).sendRequest("drain 5000", logger));
+            received.countDown();
+        });
+        monitorThread.join(15000L);
+        assertThat(received.await(5L, TimeUnit.SECONDS)).isTrue();
+        assertThat(response.get()).isEqualTo("in-flight 2\nin-flight 1\ndrained");
+        final InOrder inOrder = inOrder(drainableServer);
+        inOrder.verify(drainableServer).beginDrain(logger);
+        inOrder.verify(drainableServer).stop(logger);
+        verify(observer).stopped(drainableServer, logger);
+    }
+
+    /**
+     * Verify that the monitor continues to answer status requests while a server is draining.
+     *
+     * @param drainableServer Mock server that can be drained.
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testMonitorStatusWhileDraining(@Mock final DrainableServer drainableServer) throws Exception {
+        final AtomicInteger inFlight = new AtomicInteger(1);
+        when(drainableServer.isStarted(any(Logger.class))).thenReturn(true);
+        when(drainableServer.isStopped(any(Logger.class))).thenReturn(true);
+        when(drainableServer.getInFlightCount(any(Logger.class))).thenAnswer(invocation -> inFlight.get());
+        final Monitor monitor = new Monitor("test", 10000);
+        final Thread monitorThread = monitor.runMonitorDaemon(drainableServer, logger, observer);
+        verify(observer, timeout(5000L)).started(drainableServer, logger);
+        final CompletableFuture<String> drain = CompletableFuture.supplyAsync(
+                () -> new Monitor("test", 10000).sendRequest("drain 10000", logger));
+        verify(drainableServer, timeout(5000L)).beginDrain(logger);
+        verify(drainableServer, timeout(5000L)).getInFlightCount(logger);
+        assertThat(new Monitor("test", 10000).sendRequest("status", logger)).startsWith("{\"state\":\"DRAINING\"");
+        verify(drainableServer, never()).stop(logger);
+        inFlight.set(0);
+        assertThat(drain.get(5L, TimeUnit.SECONDS)).isEqualTo("in-flight 1\ndrained");
+        monitorThread.join(15000L);
+        verify(drainableServer).stop(logger);
+        verify(observer).stopped(drainableServer, logger);
+    }
+
+    /**
+     * Verify that a command sent without a line terminator is executed when the client closes its side of the
+     * connection.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testUnterminatedCommand() throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        final Monitor monitor = new Monitor("test", 10000);
+        final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+        verify(logger, timeout(5000L)).logInfo("Waiting for command from client");
+        try (final Socket socket = new Socket("localhost", 10000)) {
+            final OutputStream outputStream = socket.getOutputStream();
+            outputStream.write("test\nstop".getBytes(StandardCharsets.US_ASCII));
+            outputStream.flush();
+            socket.shutdownOutput();
+            monitorThread.join(15000L);
+        }
+        assertThat(monitorThread.isAlive()).isFalse();
+        verify(server).stop(logger);
+        verify(observer).stopped(server, logger);
+    }
+
     /**
      * Verify that the server ignores commands with an invalid key.
      *
@@ -131,7 +568,7 @@ public class TestMonitor extends AbstractMonitorTest {
         final Monitor monitor = new Monitor("test", 10000);
         final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
         runWithDelay(() -> {
-            Monitor.sendCommand("TEST", 10000, "stop", logger);
+            new Monitor("TEST", 10000).sendRequest("stop", logger);
             Monitor.sendCommand("test", 10000, "stop", logger);
         });
         monitorThread.join(15000L);
@@ -148,6 +585,86 @@ public class TestMonitor extends AbstractMonitorTest {
         verifyNoMoreInteractions(logger, server, observer);
     }
 
+    /**
+     * Verify that the cached server status can be requested from the monitor.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testMonitorStatus() throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        final Monitor monitor = new Monitor("test", 10000);
+        final AtomicReference<String> response = new AtomicReference<>();
+        final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+        runWithDelay(() -> {
+            response.set(new Monitor("test", 10000).sendRequest("status", logger));
+            Monitor.sendCommand("test", 10000, "stop", logger);
+        });
+        monitorThread.join(15000L);
+        assertThat(response.get()).startsWith("{\"state\":\"STARTED\",\"healthy\":true");
+        assertThat(monitor.getStatus().getState()).isEqualTo(ServerStatus.State.STOPPED);
+        assertThat(monitor.getStatus().getStoppedAt()).isPositive();
+        verify(server).stop(logger);
+        verify(observer).stopped(server, logger);
+    }
+
+    /**
+     * Verify that the monitor answers HTTP health checks when the health endpoint is enabled.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testMonitorHealthEndpoint() throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        final Monitor monitor = new Monitor("test", 10000);
+        monitor.setHealthEndpoint(true);
+        final AtomicReference<String> health = new AtomicReference<>();
+        final AtomicReference<String> notFound = new AtomicReference<>();
+        final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+        runWithDelay(() -> {
+            health.set(httpGet("/health"));
+            notFound.set(httpGet("/metrics"));
+            Monitor.sendCommand("test", 10000, "stop", logger);
+        });
+        monitorThread.join(15000L);
+        assertThat(health.get()).startsWith("HTTP/1.1 200 OK\r\n").contains("\"healthy\":true");
+        assertThat(notFound.get()).startsWith("HTTP/1.1 404 Not Found\r\n");
+        verify(server).stop(logger);
+        verify(observer).stopped(server, logger);
+    }
+
+    /**
+     * Verify that a monitor can be started and stopped using a Unix domain socket and that the socket file is
+     * removed when the monitor exits.
+     *
+     * @param tempDir Temporary directory used to hold the socket file.
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_16)
+    void testMonitorWithUnixDomainSocket(@TempDir final Path tempDir) throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        final Path socketPath = tempDir.resolve("monitor.sock");
+        final Monitor monitor = new Monitor("test", socketPath);
+        final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+        runWithDelay(() -> Monitor.sendCommand("test", socketPath, "stop", logger));
+        monitorThread.join(15000L);
+        verify(server).start(logger);
+        verify(server, times(2)).isStarted(logger);
+        verify(logger).logInfo("Waiting for command from client");
+        verify(logger).logInfo("Sending command \"stop\" to monitor");
+        verify(logger).logInfo("Receiving command from client");
+        verify(server).stop(logger);
+        verify(server).isStopped(logger);
+        verify(observer).started(server, logger);
+        verify(observer).stopped(server, logger);
+        verifyNoMoreInteractions(logger, server, observer);
+        assertThat(socketPath).doesNotExist();
+    }
+
     /**
      * Verify that the monitor will log an error if it could nt open a TCP port.
      *
@@ -167,4 +684,27 @@ public class TestMonitor extends AbstractMonitorTest {
             verifyNoMoreInteractions(logger, server, observer);
         }
     }
+
+    /**
+     * Send a HTTP {@code GET} request to the monitor and read the complete response.
+     *
+     * @param target The request target.
+     * @return The response.
+     * @throws IOException If there was a problem sending the request.
+     */
+    private static String httpGet(final String target) throws IOException {
+        try (final Socket socket = new Socket("localhost", 10000)) {
+            final OutputStream outputStream = socket.getOutputStream();
+            outputStream.write(("GET " + target + " HTTP/1.1\r\nHost: localhost\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            outputStream.flush();
+            final ByteArrayOutputStream response = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[512];
+            final InputStream inputStream = socket.getInputStream();
+            for (int count = inputStream.read(buffer); count >= 0; count = inputStream.read(buffer)) {
+                response.write(buffer, 0, count);
+            }
+            return new String(response.toByteArray(), StandardCharsets.US_ASCII);
+        }
+    }
 }
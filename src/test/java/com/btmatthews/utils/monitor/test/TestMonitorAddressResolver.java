@@ -0,0 +1,113 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor.test;
+
+import com.btmatthews.utils.monitor.MonitorAddressResolver;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit test the monitor address resolver.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public class TestMonitorAddressResolver {
+
+    /**
+     * Verify that a resolver pinned to the loopback address only returns the loopback address.
+     */
+    @Test
+    void testResolveLoopback() {
+        final MonitorAddressResolver resolver = new MonitorAddressResolver(MonitorAddressResolver.DEFAULT_TTL, true);
+        assertThat(resolver.resolve()).containsExactly(InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Verify that the loopback address is always the last candidate and that the candidates are cached.
+     */
+    @Test
+    void testResolveCached() {
+        final MonitorAddressResolver resolver = new MonitorAddressResolver(MonitorAddressResolver.DEFAULT_TTL, false);
+        final List<InetAddress> candidates = resolver.resolve();
+        assertThat(candidates)
+                .endsWith(InetAddress.getLoopbackAddress())
+                .doesNotHaveDuplicates();
+        assertThat(resolver.resolve()).isSameAs(candidates);
+        assertThat(new MonitorAddressResolver(MonitorAddressResolver.DEFAULT_TTL, false).resolve())
+                .isSameAs(candidates);
+    }
+
+    /**
+     * Verify that the resolver can connect to a listening socket.
+     *
+     * @throws IOException If the test case fails.
+     */
+    @Test
+    void testConnect() throws IOException {
+        try (final ServerSocket serverSocket = new ServerSocket()) {
+            serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            final MonitorAddressResolver resolver = MonitorAddressResolver.getDefault();
+            try (final SocketChannel channel = resolver.connect(serverSocket.getLocalPort())) {
+                assertThat(channel.isConnected()).isTrue();
+                assertThat(channel.isBlocking()).isTrue();
+            }
+        }
+    }
+
+    /**
+     * Verify that a resolver pinned to the loopback address can connect to a listening socket.
+     *
+     * @throws IOException If the test case fails.
+     */
+    @Test
+    void testConnectLoopback() throws IOException {
+        try (final ServerSocket serverSocket = new ServerSocket()) {
+            serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            final MonitorAddressResolver resolver =
+                    new MonitorAddressResolver(MonitorAddressResolver.DEFAULT_TTL, true);
+            try (final SocketChannel channel = resolver.connect(serverSocket.getLocalPort())) {
+                assertThat(channel.isConnected()).isTrue();
+                assertThat(channel.isBlocking()).isTrue();
+            }
+        }
+    }
+
+    /**
+     * Verify that the resolver fails to connect if there is nothing listening.
+     *
+     * @throws IOException If the test case fails.
+     */
+    @Test
+    void testConnectRefused() throws IOException {
+        final int port;
+        try (final ServerSocket serverSocket = new ServerSocket(0)) {
+            port = serverSocket.getLocalPort();
+        }
+        final MonitorAddressResolver resolver = MonitorAddressResolver.getDefault();
+        assertThatThrownBy(() -> resolver.connect(port)).isInstanceOf(IOException.class);
+    }
+}
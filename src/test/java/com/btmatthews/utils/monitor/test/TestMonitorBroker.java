@@ -0,0 +1,286 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor.test;
+
+import com.btmatthews.utils.monitor.Logger;
+import com.btmatthews.utils.monitor.Monitor;
+import com.btmatthews.utils.monitor.MonitorBroker;
+import com.btmatthews.utils.monitor.MonitorObserver;
+import com.btmatthews.utils.monitor.Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test the monitor broker.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+@ExtendWith(MockitoExtension.class)
+public class TestMonitorBroker extends AbstractMonitorTest {
+
+    /**
+     * Mock the server test fixture.
+     */
+    @Mock
+    private Server server;
+
+    /**
+     * Mock the logger used by the monitor.
+     */
+    @Mock
+    private Logger logger;
+
+    /**
+     * Mock the logger used by the broker.
+     */
+    @Mock
+    private Logger brokerLogger;
+
+    /**
+     * Mock the logger used by the client.
+     */
+    @Mock
+    private Logger clientLogger;
+
+    /**
+     * Mock the observer test fixture.
+     */
+    @Mock
+    private MonitorObserver observer;
+
+    /**
+     * The broker being tested.
+     */
+    private MonitorBroker broker;
+
+    /**
+     * The port on which the broker is listening.
+     */
+    private int brokerPort;
+
+    /**
+     * Start the broker on an ephemeral port.
+     *
+     * @throws Exception If the broker could not be started.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        broker = new MonitorBroker(0);
+        broker.runDaemon(brokerLogger);
+        brokerPort = broker.getLocalPort();
+    }
+
+    /**
+     * Stop the broker.
+     */
+    @AfterEach
+    void tearDown() {
+        broker.stop();
+    }
+
+    /**
+     * Verify that commands sent to the broker are routed to the registered monitor.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testBrokeredMonitor() throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        final Monitor monitor = new Monitor("test", brokerPort);
+        monitor.setBrokered(true);
+        final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+        runWithDelay(() -> Monitor.sendCommand("test", brokerPort, "stop", clientLogger));
+        monitorThread.join(15000L);
+        verify(server).start(logger);
+        verify(server, times(2)).isStarted(logger);
+        verify(logger).logInfo("Waiting for command from broker");
+        verify(logger).logInfo("Receiving command from broker");
+        verify(server).stop(logger);
+        verify(server).isStopped(logger);
+        verify(observer).started(server, logger);
+        verify(observer).stopped(server, logger);
+        verifyNoMoreInteractions(logger, server, observer);
+    }
+
+    /**
+     * Verify that the response from a registered monitor is relayed back to the client.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testBrokeredStatus() throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        final Monitor monitor = new Monitor("test", brokerPort);
+        monitor.setBrokered(true);
+        final AtomicReference<String> response = new AtomicReference<>();
+        final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+        runWithDelay(() -> {
+            response.set(new Monitor("test", brokerPort).sendRequest("status", clientLogger));
+            Monitor.sendCommand("test", brokerPort, "stop", clientLogger);
+        });
+        monitorThread.join(15000L);
+        assertThat(response.get()).startsWith("{\"state\":\"STARTED\"");
+        verify(server).stop(logger);
+        verify(observer).stopped(server, logger);
+    }
+
+    /**
+     * Verify that the broker rejects commands with a key that has not been registered.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testInvalidMonitorKey() throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        final Monitor monitor = new Monitor("test", brokerPort);
+        monitor.setBrokered(true);
+        final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+        runWithDelay(() -> {
+            Monitor.sendCommand("TEST", brokerPort, "stop", clientLogger);
+            Monitor.sendCommand("test", brokerPort, "stop", clientLogger);
+        });
+        monitorThread.join(15000L);
+        verify(brokerLogger).logError("Invalid monitor key");
+        verify(server).stop(logger);
+        verify(observer).stopped(server, logger);
+    }
+
+    /**
+     * Verify that the broker rejects a second monitor registering with a key that is already registered and keeps
+     * routing commands to the first.
+     *
+     * @param duplicateServer Mock server for the second monitor.
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testDuplicateRegistration(@Mock final Server duplicateServer) throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        when(duplicateServer.isStarted(any(Logger.class))).thenReturn(true);
+        when(duplicateServer.isStopped(any(Logger.class))).thenReturn(true);
+        final Monitor monitor = new Monitor("test", brokerPort);
+        monitor.setBrokered(true);
+        final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+        verify(brokerLogger, timeout(5000L)).logInfo("Registered monitor");
+        final Monitor duplicate = new Monitor("test", brokerPort);
+        duplicate.setBrokered(true);
+        final Thread duplicateThread = duplicate.runMonitorDaemon(duplicateServer, clientLogger, observer);
+        duplicateThread.join(15000L);
+        verify(brokerLogger).logError("Monitor key already registered");
+        verify(duplicateServer).stop(clientLogger);
+        verify(server, never()).stop(logger);
+        Monitor.sendCommand("test", brokerPort, "stop", clientLogger);
+        monitorThread.join(15000L);
+        verify(server).stop(logger);
+        verify(observer).stopped(server, logger);
+    }
+
+    /**
+     * Verify that a monitor presenting the registration secret required by the broker is registered.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testRegistrationSecret() throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        final MonitorBroker securedBroker = new MonitorBroker(0);
+        securedBroker.setRegistrationSecret("secret");
+        securedBroker.runDaemon(brokerLogger);
+        try {
+            final int securedPort = securedBroker.getLocalPort();
+            final Monitor monitor = new Monitor("test", securedPort);
+            monitor.setBrokered(true);
+            monitor.setRegistrationSecret("secret");
+            final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+            verify(brokerLogger, timeout(5000L)).logInfo("Registered monitor");
+            Monitor.sendCommand("test", securedPort, "stop", clientLogger);
+            monitorThread.join(15000L);
+            verify(brokerLogger, never()).logError("Invalid registration secret");
+            verify(server).stop(logger);
+            verify(observer).stopped(server, logger);
+        } finally {
+            securedBroker.stop();
+        }
+    }
+
+    /**
+     * Verify that the broker rejects a monitor that does not present the registration secret and that the monitor
+     * stops its server.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testInvalidRegistrationSecret() throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        final MonitorBroker securedBroker = new MonitorBroker(0);
+        securedBroker.setRegistrationSecret("secret");
+        securedBroker.runDaemon(brokerLogger);
+        try {
+            final Monitor monitor = new Monitor("test", securedBroker.getLocalPort());
+            monitor.setBrokered(true);
+            monitor.setRegistrationSecret("guess");
+            final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+            monitorThread.join(15000L);
+            assertThat(monitorThread.isAlive()).isFalse();
+            verify(brokerLogger).logError("Invalid registration secret");
+            verify(brokerLogger, never()).logInfo("Registered monitor");
+            verify(server).stop(logger);
+        } finally {
+            securedBroker.stop();
+        }
+    }
+
+    /**
+     * Verify that the server is stopped if the broker goes away.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testBrokerStopped() throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        final Monitor monitor = new Monitor("test", brokerPort);
+        monitor.setBrokered(true);
+        final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+        runWithDelay(broker::stop);
+        monitorThread.join(15000L);
+        verify(logger).logError("Lost connection to the monitor broker");
+        verify(server).stop(logger);
+        verify(observer).stopped(server, logger);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor.test;
+
+import com.btmatthews.utils.monitor.Logger;
+import com.btmatthews.utils.monitor.Monitor;
+import com.btmatthews.utils.monitor.MonitorFanout;
+import com.btmatthews.utils.monitor.MonitorObserver;
+import com.btmatthews.utils.monitor.Server;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test sending commands to many monitors concurrently.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+@ExtendWith(MockitoExtension.class)
+public class TestMonitorFanout {
+
+    /**
+     * Mock the first server test fixture.
+     */
+    @Mock
+    private Server server1;
+
+    /**
+     * Mock the second server test fixture.
+     */
+    @Mock
+    private Server server2;
+
+    /**
+     * Mock the logger used by the monitors.
+     */
+    @Mock
+    private Logger logger;
+
+    /**
+     * Mock the observer test fixture.
+     */
+    @Mock
+    private MonitorObserver observer;
+
+    /**
+     * Verify that a command is sent to all the monitors concurrently so that stopping them takes as long as the
+     * slowest rather than the sum, and that a monitor that is not running is reported as a failure.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testFanoutStop() throws Exception {
+        final Thread monitor1 = runMonitor(server1, 10000, 1000L);
+        final Thread monitor2 = runMonitor(server2, 10001, 1000L);
+        final MonitorFanout fanout = new MonitorFanout();
+        fanout.addEndpoint("test", 10000);
+        fanout.addEndpoint("test", 10001);
+        fanout.addEndpoint("test", 10002);
+        final long startTime = System.currentTimeMillis();
+        final List<MonitorFanout.Result> results = fanout.send("stop", logger);
+        assertThat(System.currentTimeMillis() - startTime).isLessThan(2000L);
+        monitor1.join(15000L);
+        monitor2.join(15000L);
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).getStatus()).isEqualTo(MonitorFanout.Status.OK);
+        assertThat(results.get(0).getElapsed()).isGreaterThanOrEqualTo(1000L);
+        assertThat(results.get(1).getStatus()).isEqualTo(MonitorFanout.Status.OK);
+        assertThat(results.get(2).getStatus()).isEqualTo(MonitorFanout.Status.FAILED);
+        assertThat(results.get(2).getPort()).isEqualTo(10002);
+        verify(logger).logInfo("Sending command \"stop\" to 3 monitors");
+        verify(server1).stop(logger);
+        verify(server2).stop(logger);
+    }
+
+    /**
+     * Verify that a monitor that does not respond within its timeout is reported without delaying the others.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testFanoutTimeout() throws Exception {
+        final Thread monitor1 = runMonitor(server1, 10000, 0L);
+        final Thread monitor2 = runMonitor(server2, 10001, 3000L);
+        final MonitorFanout fanout = new MonitorFanout();
+        fanout.setTimeout(500L);
+        fanout.addEndpoint("test", 10000, 2000L);
+        fanout.addEndpoint("test", 10001);
+        final List<MonitorFanout.Result> results = fanout.send("stop", logger);
+        monitor1.join(15000L);
+        monitor2.join(15000L);
+        assertThat(results.get(0).getStatus()).isEqualTo(MonitorFanout.Status.OK);
+        assertThat(results.get(1).getStatus()).isEqualTo(MonitorFanout.Status.TIMED_OUT);
+        assertThat(results.get(1).getElapsed()).isLessThan(2000L);
+        verify(server2).stop(logger);
+    }
+
+    /**
+     * Run a monitor for a mock server that takes some time to stop.
+     *
+     * @param server    The mock server.
+     * @param port      The monitor port.
+     * @param stopDelay The time in milliseconds the server takes to stop.
+     * @return The monitor thread.
+     */
+    private Thread runMonitor(final Server server, final int port, final long stopDelay) {
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        doAnswer(invocation -> {
+            Thread.sleep(stopDelay);
+            return null;
+        }).when(server).stop(any(Logger.class));
+        final Thread thread = new Monitor("test", port).runMonitorDaemon(server, logger, observer);
+        verify(observer, timeout(5000L)).started(server, logger);
+        return thread;
+    }
+}
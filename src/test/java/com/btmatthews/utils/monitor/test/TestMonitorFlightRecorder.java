@@ -0,0 +1,111 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor.test;
+
+import com.btmatthews.utils.monitor.Logger;
+import com.btmatthews.utils.monitor.Monitor;
+import com.btmatthews.utils.monitor.MonitorObserver;
+import com.btmatthews.utils.monitor.Server;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verify the Java Flight Recorder events emitted by the monitor.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+@ExtendWith(MockitoExtension.class)
+@EnabledForJreRange(min = JRE.JAVA_11)
+class TestMonitorFlightRecorder extends AbstractMonitorTest {
+
+    /**
+     * Mock the server test fixture.
+     */
+    @Mock
+    private Server server;
+
+    /**
+     * Mock the logger test fixture.
+     */
+    @Mock
+    private Logger logger;
+
+    /**
+     * Mock the observer test fixture.
+     */
+    @Mock
+    private MonitorObserver observer;
+
+    /**
+     * Verify that command, lifecycle and connection events are recorded.
+     *
+     * @param tempDir Temporary directory used to hold the recording.
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testEventsRecorded(@TempDir final Path tempDir) throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        final Path file = tempDir.resolve("monitor.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.btmatthews.monitor.MonitorCommand");
+            recording.enable("com.btmatthews.monitor.ServerStart");
+            recording.enable("com.btmatthews.monitor.ServerStop");
+            recording.enable("com.btmatthews.monitor.MonitorConnection");
+            recording.start();
+            final Monitor monitor = new Monitor("test", 10000);
+            final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+            runWithDelay(() -> {
+                Monitor.sendCommand("TEST", 10000, "stop", logger);
+                Monitor.sendCommand("test", 10000, "configure debug=off", logger);
+                Monitor.sendCommand("test", 10000, "stop", logger);
+            });
+            monitorThread.join(15000L);
+            recording.stop();
+            recording.dump(file);
+        }
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertThat(events)
+                .filteredOn(event -> event.getEventType().getName().equals("com.btmatthews.monitor.MonitorCommand"))
+                .extracting(event -> event.getString("verb"), event -> event.getBoolean("success"))
+                .containsExactly(tuple("configure", true), tuple("stop", true));
+        assertThat(events)
+                .filteredOn(event -> event.getEventType().getName().equals("com.btmatthews.monitor.MonitorConnection"))
+                .extracting(event -> event.getString("outcome"))
+                .containsExactlyInAnyOrder("INVALID_KEY", "COMMAND", "COMMAND");
+        assertThat(events)
+                .extracting(event -> event.getEventType().getName())
+                .contains("com.btmatthews.monitor.ServerStart", "com.btmatthews.monitor.ServerStop");
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor.test;
+
+import com.btmatthews.utils.monitor.Logger;
+import com.btmatthews.utils.monitor.Monitor;
+import com.btmatthews.utils.monitor.MonitorObserver;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Soak test the monitor with many concurrent clients. This is a regression gate for changes to the monitor's
+ * listener and client so it fails if any request fails or if a request takes an unreasonable time.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+@ExtendWith(MockitoExtension.class)
+public class TestMonitorLoad {
+
+    /**
+     * The longest acceptable request latency in nanoseconds.
+     */
+    private static final long MAX_LATENCY = TimeUnit.SECONDS.toNanos(5L);
+
+    /**
+     * Mock the logger used by the monitor.
+     */
+    @Mock
+    private Logger logger;
+
+    /**
+     * Mock the observer test fixture.
+     */
+    @Mock
+    private MonitorObserver observer;
+
+    /**
+     * Verify that the monitor answers every request correctly when it is driven by many concurrent clients sending a
+     * mix of commands.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testMonitorUnderLoad() throws Exception {
+        final Monitor monitor = new Monitor("test", 10000);
+        final Thread monitorThread = monitor.runMonitorDaemon(new DummyServer(), logger, observer);
+        final MonitorLoadGenerator generator = new MonitorLoadGenerator("test", 10000);
+        generator.setClients(50);
+        generator.setRequestsPerClient(40);
+        generator.setSlowClientDelay(1L);
+        final MonitorLoadGenerator.Result result = generator.run();
+        Monitor.sendCommand("test", 10000, "stop", logger);
+        monitorThread.join(15000L);
+        assertThat(result.getRequests()).isEqualTo(2000L);
+        assertThat(result.getErrors()).as(result.toString()).isEqualTo(0L);
+        assertThat(result.getLatencies().getValueAtPercentile(99.0)).as(result.toString()).isLessThan(MAX_LATENCY);
+        verify(logger, times((int) result.getRequests(MonitorLoadGenerator.Operation.INVALID_KEY)))
+                .logError("Invalid monitor key");
+        assertThat(monitorThread.isAlive()).isFalse();
+    }
+}
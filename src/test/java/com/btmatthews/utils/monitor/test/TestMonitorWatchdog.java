@@ -0,0 +1,109 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor.test;
+
+import com.btmatthews.utils.monitor.Logger;
+import com.btmatthews.utils.monitor.Monitor;
+import com.btmatthews.utils.monitor.MonitorObserver;
+import com.btmatthews.utils.monitor.Server;
+import com.btmatthews.utils.monitor.ServerStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test the watchdog that restarts crashed servers.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+@ExtendWith(MockitoExtension.class)
+public class TestMonitorWatchdog extends AbstractMonitorTest {
+
+    /**
+     * Mock the server test fixture.
+     */
+    @Mock
+    private Server server;
+
+    /**
+     * Mock the logger test fixture.
+     */
+    @Mock
+    private Logger logger;
+
+    /**
+     * Mock the observer test fixture.
+     */
+    @Mock
+    private MonitorObserver observer;
+
+    /**
+     * Verify that the watchdog restarts a server that has crashed and notifies the observer.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testRestartCrashedServer() throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(true, true, false, true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        final Monitor monitor = new Monitor("test", 10000, 3, 100);
+        monitor.setWatchdogInterval(100L);
+        monitor.setRestartBackoff(50L, 50L);
+        final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+        verify(observer, timeout(5000L)).restarted(server, logger);
+        assertThat(monitor.getStatus().getState()).isEqualTo(ServerStatus.State.STARTED);
+        monitor.sendCommand("stop", logger);
+        monitorThread.join(15000L);
+        verify(server, times(2)).start(logger);
+        verify(observer).crashed(server, 1, logger);
+        verify(logger).logError("Server is no longer running");
+        verify(server).stop(logger);
+        verify(observer).stopped(server, logger);
+    }
+
+    /**
+     * Verify that the watchdog gives up if the server is crash looping.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testCrashLoop() throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(true, true, false);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        final Monitor monitor = new Monitor("test", 10000, 1, 10);
+        monitor.setWatchdogInterval(20L);
+        monitor.setRestartBackoff(10L, 40L);
+        monitor.setCrashLoopLimit(2, 60000L);
+        final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+        verify(observer, timeout(5000L)).crashed(server, 3, logger);
+        verify(logger, timeout(5000L)).logError("Server restarted 2 times within 60000ms, giving up");
+        assertThat(monitor.getStatus().getState()).isEqualTo(ServerStatus.State.FAILED);
+        monitor.sendCommand("stop", logger);
+        monitorThread.join(15000L);
+        verify(server, times(3)).start(logger);
+        verify(server).stop(logger);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor.test;
+
+import com.btmatthews.utils.monitor.NetworkProbe;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test the non-blocking TCP and HTTP readiness probes.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+public class TestNetworkProbe {
+
+    /**
+     * The loopback address used by the test fixtures.
+     */
+    private static final String HOST = "127.0.0.1";
+
+    /**
+     * Verify that TCP and HTTP probes against several ports are run concurrently and report the correct results.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testProbes() throws Exception {
+        final int closedPort;
+        try (final ServerSocket closed = new ServerSocket(0, 1, InetAddress.getByName(HOST))) {
+            closedPort = closed.getLocalPort();
+        }
+        final HttpServer httpServer = HttpServer.create(new InetSocketAddress(HOST, 0), 0);
+        httpServer.createContext("/health", exchange -> {
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        httpServer.start();
+        try (final ServerSocket open = new ServerSocket(0, 1, InetAddress.getByName(HOST))) {
+            final int httpPort = httpServer.getAddress().getPort();
+            assertThat(NetworkProbe.tcp(HOST, open.getLocalPort()).check(2000L).get(5L, TimeUnit.SECONDS))
+                    .isTrue();
+            assertThat(NetworkProbe.tcp(HOST, closedPort).check(2000L).get(5L, TimeUnit.SECONDS)).isFalse();
+            assertThat(NetworkProbe.http(HOST, httpPort, "/health").check(2000L).get(5L, TimeUnit.SECONDS))
+                    .isTrue();
+            assertThat(NetworkProbe.http(HOST, httpPort, "/missing").check(2000L).get(5L, TimeUnit.SECONDS))
+                    .isFalse();
+            assertThat(NetworkProbe.checkAll(2000L, Arrays.asList(
+                    NetworkProbe.tcp(HOST, open.getLocalPort()),
+                    NetworkProbe.http(HOST, httpPort, "health"),
+                    NetworkProbe.tcp(HOST, closedPort))).get(5L, TimeUnit.SECONDS)).isEqualTo(2);
+        } finally {
+            httpServer.stop(0);
+        }
+    }
+
+    /**
+     * Verify that a HTTP probe against a port that accepts connections but never answers times out.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testHttpProbeTimeout() throws Exception {
+        try (final ServerSocket silent = new ServerSocket(0, 1, InetAddress.getByName(HOST))) {
+            final long start = System.nanoTime();
+            assertThat(NetworkProbe.http(HOST, silent.getLocalPort(), "/").check(300L).get(5L, TimeUnit.SECONDS))
+                    .isFalse();
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isBetween(250L, 3000L);
+        }
+    }
+
+    /**
+     * Verify that waiting for probes reports that they could not be completed if the calling thread is interrupted.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testAwaitAllInterrupted() throws Exception {
+        try (final ServerSocket silent = new ServerSocket(0, 1, InetAddress.getByName(HOST))) {
+            Thread.currentThread().interrupt();
+            try {
+                assertThat(NetworkProbe.awaitAll(2000L, NetworkProbe.http(HOST, silent.getLocalPort(), "/")))
+                        .isEqualTo(-1);
+            } finally {
+                assertThat(Thread.interrupted()).isTrue();
+            }
+        }
+    }
+}
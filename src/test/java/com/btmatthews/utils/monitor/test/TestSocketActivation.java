@@ -0,0 +1,192 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor.test;
+
+import com.btmatthews.utils.monitor.AbstractServer;
+import com.btmatthews.utils.monitor.Logger;
+import com.btmatthews.utils.monitor.Monitor;
+import com.btmatthews.utils.monitor.MonitorObserver;
+import com.btmatthews.utils.monitor.ServerStatus;
+import com.btmatthews.utils.monitor.SocketActivatedServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit test socket activated servers.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+@ExtendWith(MockitoExtension.class)
+public class TestSocketActivation {
+
+    /**
+     * Mock the logger test fixture.
+     */
+    @Mock
+    private Logger logger;
+
+    /**
+     * Mock the observer test fixture.
+     */
+    @Mock
+    private MonitorObserver observer;
+
+    /**
+     * Verify that the server is only started when the first connection arrives and that it accepts that connection
+     * on the listener bound by the monitor.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testActivatedOnFirstConnection() throws Exception {
+        final GreetingServer server = new GreetingServer();
+        final Monitor monitor = new Monitor("test", 10000);
+        monitor.setSocketActivation(Collections.singletonList(new InetSocketAddress("127.0.0.1", 0)));
+        final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+        assertThat(monitor.getStatus().getState()).isEqualTo(ServerStatus.State.WAITING);
+        assertThat(server.starts.get()).isZero();
+        final InetSocketAddress address = monitor.getActivationAddresses().get(0);
+        try (final Socket socket = new Socket(address.getAddress(), address.getPort())) {
+            final BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            assertThat(reader.readLine()).isEqualTo("hello");
+        }
+        verify(observer, timeout(5000L)).started(server, logger);
+        assertThat(server.starts.get()).isEqualTo(1);
+        assertThat(monitor.getStatus().getState()).isEqualTo(ServerStatus.State.STARTED);
+        monitor.sendCommand("stop", logger);
+        monitorThread.join(15000L);
+        verify(observer).stopped(server, logger);
+        assertThat(server.stops.get()).isEqualTo(1);
+    }
+
+    /**
+     * Verify that a server that was never connected to is never started and its ports are released when the monitor
+     * is stopped.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testStopBeforeActivation() throws Exception {
+        final GreetingServer server = new GreetingServer();
+        final Monitor monitor = new Monitor("test", 10000);
+        monitor.setSocketActivation(Collections.singletonList(new InetSocketAddress("127.0.0.1", 0)));
+        final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+        final InetSocketAddress address = monitor.getActivationAddresses().get(0);
+        monitor.sendCommand("stop", logger);
+        monitorThread.join(15000L);
+        assertThat(server.starts.get()).isZero();
+        assertThat(server.stops.get()).isZero();
+        verify(observer, never()).started(server, logger);
+        assertThatThrownBy(() -> new Socket(address.getAddress(), address.getPort()).close())
+                .isInstanceOf(ConnectException.class);
+    }
+
+    /**
+     * A socket activated server that greets each client.
+     */
+    private static final class GreetingServer extends AbstractServer implements SocketActivatedServer {
+
+        /**
+         * The number of times the server was started.
+         */
+        private final AtomicInteger starts = new AtomicInteger();
+        /**
+         * The number of times the server was stopped.
+         */
+        private final AtomicInteger stops = new AtomicInteger();
+        /**
+         * The listener handed over by the monitor.
+         */
+        private volatile ServerSocketChannel listener;
+
+        /**
+         * Keep the listener handed over by the monitor.
+         *
+         * @param listeners The bound listeners.
+         * @param logger    Used to log error messages.
+         */
+        @Override
+        public void activate(final List<ServerSocketChannel> listeners, final Logger logger) {
+            listener = listeners.get(0);
+        }
+
+        /**
+         * Start a thread that greets each client.
+         *
+         * @param logger Used to log error messages.
+         */
+        @Override
+        public void start(final Logger logger) {
+            starts.incrementAndGet();
+            final Thread thread = new Thread(() -> {
+                try {
+                    while (true) {
+                        try (final SocketChannel channel = listener.accept()) {
+                            final PrintWriter writer = new PrintWriter(Channels.newWriter(channel, "UTF-8"));
+                            writer.println("hello");
+                            writer.flush();
+                        }
+                    }
+                } catch (final IOException e) {
+                    // The listener has been closed
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * Close the listener.
+         *
+         * @param logger Used to log error messages.
+         */
+        @Override
+        public void stop(final Logger logger) {
+            stops.incrementAndGet();
+            try {
+                listener.close();
+            } catch (final IOException e) {
+                // Ignore errors closing the listener
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor.test.junit;
+
+import com.btmatthews.utils.monitor.Logger;
+import com.btmatthews.utils.monitor.Monitor;
+import com.btmatthews.utils.monitor.Server;
+import com.btmatthews.utils.monitor.ServerStatus;
+import com.btmatthews.utils.monitor.junit.MonitoredServer;
+import com.btmatthews.utils.monitor.test.DummyServer;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit test the JUnit Jupiter extension that shares monitored servers across the test run.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+@MonitoredServer(type = "dummy", config = "debug=true")
+public class TestMonitoredServerExtension {
+
+    /**
+     * The servers resolved for the test methods.
+     */
+    private static final List<Server> SERVERS = new CopyOnWriteArrayList<>();
+
+    /**
+     * Verify that the declared server has been started, that it and its monitor are resolved as parameters and that
+     * it is the same server as the one given to the nested class.
+     *
+     * @param server  The monitored server.
+     * @param monitor The monitor controlling the server.
+     */
+    @Test
+    void testServerStarted(final DummyServer server, final Monitor monitor) {
+        assertThat(monitor.getStatus().getState()).isEqualTo(ServerStatus.State.STARTED);
+        assertThat(monitor.sendRequest("status", mock(Logger.class))).startsWith("{\"state\":\"STARTED\"");
+        assertThat(SERVERS).allMatch(other -> other == server);
+        SERVERS.add(server);
+    }
+
+    /**
+     * Tests in a nested class that inherits the server declaration.
+     */
+    @Nested
+    class SameServer {
+
+        /**
+         * Verify that the nested class is given the same server as the enclosing class instead of starting another
+         * one.
+         *
+         * @param server The monitored server.
+         */
+        @Test
+        void testServerShared(final Server server) {
+            assertThat(SERVERS).allMatch(other -> other == server);
+            SERVERS.add(server);
+        }
+    }
+}
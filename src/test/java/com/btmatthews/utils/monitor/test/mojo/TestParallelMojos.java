@@ -0,0 +1,204 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor.test.mojo;
+
+import com.btmatthews.utils.monitor.mojo.AbstractRunMojo;
+import com.btmatthews.utils.monitor.mojo.AbstractStopMojo;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stress test the run and stop mojos executing concurrently as they would in a parallel reactor build.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+class TestParallelMojos {
+
+    /**
+     * The number of modules in the simulated reactor.
+     */
+    private static final int MODULES = 8;
+
+    /**
+     * The first monitor port used by the modules.
+     */
+    private static final int BASE_PORT = 10020;
+
+    /**
+     * Verify that modules running identical servers in parallel share a single server per configuration and that
+     * only the last module to stop a server actually stops it.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testParallelReactor() throws Exception {
+        final Queue<String> messages = new ConcurrentLinkedQueue<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(MODULES);
+        try {
+            final CyclicBarrier runBarrier = new CyclicBarrier(MODULES);
+            final List<Callable<Void>> runs = new ArrayList<>();
+            for (int module = 0; module < MODULES; module++) {
+                final RunMojo mojo = new RunMojo(module % 2 == 0, messages);
+                configure(mojo, module);
+                ReflectionUtils.setVariableValueInObject(mojo, "daemon", Boolean.TRUE);
+                runs.add(() -> {
+                    runBarrier.await();
+                    mojo.execute();
+                    return null;
+                });
+            }
+            for (final Future<Void> result : executor.invokeAll(runs)) {
+                result.get();
+            }
+            assertThat(messages).filteredOn("Reusing running server"::equals).hasSize(MODULES - 2);
+
+            final CyclicBarrier stopBarrier = new CyclicBarrier(MODULES);
+            final List<Callable<Void>> stops = new ArrayList<>();
+            for (int module = 0; module < MODULES; module++) {
+                final StopMojo mojo = new StopMojo(messages);
+                configure(mojo, module);
+                stops.add(() -> {
+                    stopBarrier.await();
+                    mojo.execute();
+                    return null;
+                });
+            }
+            for (final Future<Void> result : executor.invokeAll(stops)) {
+                result.get();
+            }
+            assertThat(messages).filteredOn("Server is still in use by other modules"::equals).hasSize(MODULES - 2);
+            assertThat(messages).filteredOn("Sending command \"stop\" to monitor"::equals).hasSize(2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Configure the monitor parameters for a module.
+     *
+     * @param mojo   The mojo.
+     * @param module The module number.
+     * @throws IllegalAccessException If the parameters could not be set.
+     */
+    private static void configure(final Object mojo, final int module) throws IllegalAccessException {
+        ReflectionUtils.setVariableValueInObject(mojo, "monitorKey", "module" + module);
+        ReflectionUtils.setVariableValueInObject(mojo, "monitorPort", BASE_PORT + module);
+        ReflectionUtils.setVariableValueInObject(mojo, "monitorReuse", Boolean.TRUE);
+    }
+
+    /**
+     * Run mojo for a module in the simulated reactor.
+     */
+    private static final class RunMojo extends AbstractRunMojo {
+
+        /**
+         * The server configuration.
+         */
+        private final Map<String, Object> config;
+
+        /**
+         * Collects the information messages.
+         */
+        private final Queue<String> messages;
+
+        /**
+         * Initialise the mojo.
+         *
+         * @param debug    The value of the {@code debug} server property.
+         * @param messages Collects the information messages.
+         */
+        RunMojo(final boolean debug, final Queue<String> messages) {
+            this.config = Collections.singletonMap("debug", debug);
+            this.messages = messages;
+        }
+
+        /**
+         * Get the server type.
+         *
+         * @return Always returns {@code "dummy"}.
+         */
+        @Override
+        public String getServerType() {
+            return "dummy";
+        }
+
+        /**
+         * Get the server configuration.
+         *
+         * @return The server configuration.
+         */
+        @Override
+        public Map<String, Object> getServerConfig() {
+            return config;
+        }
+
+        /**
+         * Collect an information message.
+         *
+         * @param message The information message.
+         */
+        @Override
+        public void logInfo(final String message) {
+            messages.add(message);
+        }
+    }
+
+    /**
+     * Stop mojo for a module in the simulated reactor.
+     */
+    private static final class StopMojo extends AbstractStopMojo {
+
+        /**
+         * Collects the information messages.
+         */
+        private final Queue<String> messages;
+
+        /**
+         * Initialise the mojo.
+         *
+         * @param messages Collects the information messages.
+         */
+        StopMojo(final Queue<String> messages) {
+            this.messages = messages;
+        }
+
+        /**
+         * Collect an information message.
+         *
+         * @param message The information message.
+         */
+        @Override
+        public void logInfo(final String message) {
+            messages.add(message);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.btmatthews.utils.monitor.Logger;
 import com.btmatthews.utils.monitor.Monitor;
 import com.btmatthews.utils.monitor.mojo.AbstractRunMojo;
 import com.btmatthews.utils.monitor.test.AbstractMonitorTest;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.codehaus.plexus.util.ReflectionUtils;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,6 +17,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.util.HashMap;
 import java.util.Map;
 
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
@@ -136,6 +138,36 @@ class TestRunMojo extends AbstractMonitorTest {
         mojoThread.join(15000L);
     }
 
+    /**
+     * Verify that the server configuration is validated before the server is started.
+     */
+    @Test
+    void testRunWithInvalidConfig() {
+        final Map<String, Object> config = new HashMap<>();
+        config.put("debug", "maybe");
+        config.put("verbose", Boolean.TRUE);
+        when(mojo.getServerType()).thenReturn("dummy");
+        when(mojo.getServerConfig()).thenReturn(config);
+        assertThatThrownBy(mojo::execute)
+                .isInstanceOf(MojoExecutionException.class)
+                .hasMessageContaining("Property debug must be of type Boolean")
+                .hasMessageContaining("Unknown property verbose");
+    }
+
+    /**
+     * Verify that the run goal fails if no monitor port, socket path or ephemeral port was specified.
+     *
+     * @throws Exception If there was an error.
+     */
+    @Test
+    void testRunWithoutMonitorPort() throws Exception {
+        ReflectionUtils.setVariableValueInObject(mojo, "monitorPort", 0);
+        when(mojo.getServerType()).thenReturn("dummy");
+        assertThatThrownBy(mojo::execute)
+                .isInstanceOf(MojoExecutionException.class)
+                .hasMessage("One of monitor.port, monitor.socketPath or monitor.ephemeral must be specified");
+    }
+
     /**
      * Verify that we can start the server as a daemon.
      *
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2011-2021 Brian Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.utils.monitor.test.mojo;
+
+import com.btmatthews.utils.monitor.ConfigurationSchema;
+import com.btmatthews.utils.monitor.Monitor;
+import com.btmatthews.utils.monitor.ServerConfiguration;
+import com.btmatthews.utils.monitor.mojo.ServerCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test {@link ServerCache}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 3.1.0
+ */
+class TestServerCache {
+
+    /**
+     * Verify that the hash depends on the server type and configuration values but not the property order.
+     *
+     * @throws Exception If the test case fails.
+     */
+    @Test
+    void testHash() throws Exception {
+        final Map<String, Object> config1 = new LinkedHashMap<>();
+        config1.put("port", 8080);
+        config1.put("debug", Boolean.TRUE);
+        final Map<String, Object> config2 = new LinkedHashMap<>();
+        config2.put("debug", Boolean.TRUE);
+        config2.put("port", 8080);
+        final ServerConfiguration configuration1 = ConfigurationSchema.ANY.validate(config1);
+        final ServerConfiguration configuration2 = ConfigurationSchema.ANY.validate(config2);
+        assertThat(ServerCache.hash("dummy", configuration1)).isEqualTo(ServerCache.hash("dummy", configuration2));
+        assertThat(ServerCache.hash("other", configuration1)).isNotEqualTo(ServerCache.hash("dummy", configuration1));
+        config2.put("port", 8081);
+        assertThat(ServerCache.hash("dummy", ConfigurationSchema.ANY.validate(config2)))
+                .isNotEqualTo(ServerCache.hash("dummy", configuration1));
+    }
+
+    /**
+     * Verify that a cached server is shared and only released by the last module holding a reference.
+     */
+    @Test
+    void testReferenceCounting() {
+        final Monitor monitor = new Monitor("cache", 10001);
+        assertThat(ServerCache.acquire("hash", "module1")).isFalse();
+        ServerCache.register("hash", "module1", monitor, Thread.currentThread());
+        assertThat(ServerCache.acquire("hash", "module2")).isTrue();
+        assertThat(ServerCache.acquire("hash", "module2")).isTrue();
+        assertThat(ServerCache.isCached("module2")).isTrue();
+        assertThat(ServerCache.release("module1")).isNull();
+        assertThat(ServerCache.release("module2")).isSameAs(monitor);
+        assertThat(ServerCache.isCached("module2")).isFalse();
+        assertThat(ServerCache.acquire("hash", "module3")).isFalse();
+    }
+}
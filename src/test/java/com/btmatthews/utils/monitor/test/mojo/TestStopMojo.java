@@ -6,19 +6,28 @@ import com.btmatthews.utils.monitor.MonitorObserver;
 import com.btmatthews.utils.monitor.Server;
 import com.btmatthews.utils.monitor.mojo.AbstractStopMojo;
 import com.btmatthews.utils.monitor.test.AbstractMonitorTest;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.codehaus.plexus.util.ReflectionUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -81,9 +90,11 @@ class TestStopMojo extends AbstractMonitorTest {
 
     /**
      * Verify that stop logs an error if there is no monitor running.
+     *
+     * @throws Exception If the test case failed.
      */
     @Test
-    void testStopWithNoServer() {
+    void testStopWithNoServer() throws Exception {
         when(mojo.getLog()).thenReturn(log);
         mojo.execute();
         verify(log).info("Sending command \"stop\" to monitor");
@@ -91,6 +102,19 @@ class TestStopMojo extends AbstractMonitorTest {
         verifyNoMoreInteractions(server, logger, log, observer);
     }
 
+    /**
+     * Verify that stop fails if no monitor port, socket path or ephemeral port was specified.
+     *
+     * @throws Exception If the test case failed.
+     */
+    @Test
+    void testStopWithoutMonitorPort() throws Exception {
+        ReflectionUtils.setVariableValueInObject(mojo, "monitorPort", 0);
+        assertThatThrownBy(mojo::execute)
+                .isInstanceOf(MojoExecutionException.class)
+                .hasMessage("One of monitor.port, monitor.socketPath or monitor.ephemeral must be specified");
+    }
+
     /**
      * Start a mock server and verify that the {@link com.btmatthews.utils.monitor.mojo.AbstractStopMojo} signals it to shutdown.
      *
@@ -117,6 +141,32 @@ class TestStopMojo extends AbstractMonitorTest {
         verifyNoMoreInteractions(server, logger, log, observer);
     }
 
+    /**
+     * Start two mock servers and verify that the {@link com.btmatthews.utils.monitor.mojo.AbstractStopMojo} signals
+     * them both to shutdown when the monitor endpoints are specified.
+     *
+     * @throws Exception If the test case failed.
+     */
+    @Test
+    void testStopWithEndpoints() throws Exception {
+        ReflectionUtils.setVariableValueInObject(mojo, "endpoints", Arrays.asList("dummy:10000", "dummy:10001"));
+        when(mojo.getLog()).thenReturn(log);
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        final Thread monitorThread1 = new Monitor("dummy", 10000).runMonitorDaemon(server, logger, observer);
+        final Thread monitorThread2 = new Monitor("dummy", 10001).runMonitorDaemon(server, logger, observer);
+        verify(observer, timeout(5000L).times(2)).started(server, logger);
+        mojo.execute();
+        monitorThread1.join(15000L);
+        monitorThread2.join(15000L);
+        verify(log).info("Sending command \"stop\" to 2 monitors");
+        verify(log).info(startsWith("Monitor dummy on port 10000 OK in "));
+        verify(log).info(startsWith("Monitor dummy on port 10001 OK in "));
+        verify(server, times(2)).stop(logger);
+        verify(observer, times(2)).stopped(server, logger);
+        verifyNoMoreInteractions(log);
+    }
+
     /**
      * Verify that stop logs an error if the wrong client is used.
      *
@@ -132,6 +182,7 @@ class TestStopMojo extends AbstractMonitorTest {
         final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
         runWithDelay(() -> {
             wrongMojo.execute();
+            verify(logger, timeout(5000L)).logError("Invalid monitor key");
             mojo.execute();
         });
         monitorThread.join(15000L);
@@ -147,4 +198,55 @@ class TestStopMojo extends AbstractMonitorTest {
         verify(observer).stopped(server, logger);
         verifyNoMoreInteractions(server, logger, log, observer);
     }
+
+    /**
+     * Start a mock server on an ephemeral port and verify that the
+     * {@link com.btmatthews.utils.monitor.mojo.AbstractStopMojo} reads the port and key from the handoff file and
+     * signals it to shutdown.
+     *
+     * @param tempDir Temporary directory used to hold the handoff file.
+     * @throws Exception If the test case failed.
+     */
+    @Test
+    void testStopWithHandoffFile(@TempDir final Path tempDir) throws Exception {
+        final Path handoffFile = tempDir.resolve("monitor.handoff");
+        ReflectionUtils.setVariableValueInObject(mojo, "monitorKey", null);
+        ReflectionUtils.setVariableValueInObject(mojo, "monitorEphemeral", Boolean.TRUE);
+        ReflectionUtils.setVariableValueInObject(mojo, "monitorHandoffFile", handoffFile.toFile());
+        when(mojo.getLog()).thenReturn(log);
+        when(server.isStarted(any(Logger.class))).thenReturn(true);
+        when(server.isStopped(any(Logger.class))).thenReturn(true);
+        final Monitor monitor = new Monitor("dummy", 0);
+        monitor.setHandoffFile(handoffFile);
+        final Thread monitorThread = monitor.runMonitorDaemon(server, logger, observer);
+        runWithDelay(mojo::execute);
+        monitorThread.join(15000L);
+        verify(server).start(logger);
+        verify(server, times(2)).isStarted(logger);
+        verify(logger).logInfo("Waiting for command from client");
+        verify(log).info("Sending command \"stop\" to monitor");
+        verify(logger).logInfo("Receiving command from client");
+        verify(server).stop(logger);
+        verify(server).isStopped(logger);
+        verify(observer).started(server, logger);
+        verify(observer).stopped(server, logger);
+        verifyNoMoreInteractions(server, logger, log, observer);
+        assertThat(handoffFile).doesNotExist();
+    }
+
+    /**
+     * Verify that stop logs an error if the handoff file does not exist.
+     *
+     * @param tempDir Temporary directory that would hold the handoff file.
+     * @throws Exception If the test case failed.
+     */
+    @Test
+    void testStopWithMissingHandoffFile(@TempDir final Path tempDir) throws Exception {
+        ReflectionUtils.setVariableValueInObject(mojo, "monitorEphemeral", Boolean.TRUE);
+        ReflectionUtils.setVariableValueInObject(mojo, "monitorHandoffFile", tempDir.resolve("monitor.handoff").toFile());
+        when(mojo.getLog()).thenReturn(log);
+        mojo.execute();
+        verify(log).error(eq("Error reading monitor handoff file"), any(NoSuchFileException.class));
+        verifyNoMoreInteractions(server, logger, log, observer);
+    }
 }